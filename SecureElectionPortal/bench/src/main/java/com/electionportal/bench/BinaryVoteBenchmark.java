@@ -0,0 +1,67 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.Vote;
+import com.electionportal.services.BinaryVoteStore;
+import com.electionportal.services.DataManager;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares votes.csv with the binary vote store: file size, full load
+ * into Vote objects, and a per-candidate count that builds no Vote objects.
+ * Also checks that CSV -> binary -> CSV round-trips byte for byte.
+ *
+ * Usage: BinaryVoteBenchmark [ballots]   (default 5,000,000)
+ */
+public class BinaryVoteBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int ballots = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        Path dir = Files.createTempDirectory("binary-votes-bench");
+        try {
+            List<Vote> votes = new ArrayList<>(ballots);
+            for (int i = 0; i < ballots; i++) {
+                votes.add(new Vote(SyntheticData.voterId(i), SyntheticData.candidateId(i % 12)));
+            }
+            DataManager csv = new DataManager(dir);
+            csv.saveVotes(votes);
+            votes = null;
+
+            Path csvFile = dir.resolve("votes.csv");
+            Path binFile = dir.resolve("votes.bin");
+            long start = System.nanoTime();
+            BinaryVoteStore.importCsv(csvFile, binFile);
+            long importNanos = System.nanoTime() - start;
+
+            DataManager binary = new DataManager(dir);
+            binary.setBinaryVotes(true);
+
+            System.out.printf("%,d ballots%n", ballots);
+            System.out.printf("  file size        csv %,14d B   binary %,14d B%n", Files.size(csvFile), Files.size(binFile));
+            System.out.printf("  import csv->bin  %,d ms%n", importNanos / 1_000_000);
+            System.out.printf("  loadVotes        csv %,8d ms     binary %,8d ms%n",
+                    time(() -> csv.loadVotes().size()), time(() -> binary.loadVotes().size()));
+            System.out.printf("  count by cand.   csv %,8d ms     binary %,8d ms%n",
+                    time(() -> csv.countStoredVotes().size()), time(() -> binary.countStoredVotes().size()));
+
+            Map<String, Long> fromCsv = csv.countStoredVotes();
+            Map<String, Long> fromBin = binary.countStoredVotes();
+            Path roundTrip = dir.resolve("roundtrip.csv");
+            BinaryVoteStore.exportCsv(binFile, roundTrip);
+            System.out.println("  counts match: " + fromCsv.equals(fromBin)
+                    + ", round trip identical: " + (Files.mismatch(csvFile, roundTrip) == -1));
+        } finally {
+            SyntheticData.deleteRecursively(dir);
+        }
+    }
+
+    private static long time(Runnable action) {
+        action.run(); // warm-up
+        long start = System.nanoTime();
+        action.run();
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
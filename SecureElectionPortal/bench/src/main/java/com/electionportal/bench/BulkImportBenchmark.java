@@ -0,0 +1,116 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.ElectionState;
+import com.electionportal.models.User;
+import com.electionportal.models.Voter;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import com.electionportal.services.ImportReport;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Compares registering voters one registerVoter call at a time with one
+ * importVoters call over a roll file. The roll also contains a few bad rows
+ * (an existing username, an in-file duplicate, a short row); the run checks
+ * that exactly those are rejected, that the IDs are one unbroken sequence,
+ * and that the saved users.csv reloads with every imported voter.
+ *
+ * Usage: BulkImportBenchmark [rollSize] [oneByOneSize]   (default 200,000 / 2,000)
+ */
+public class BulkImportBenchmark {
+
+    // Rows deliberately added to the roll that must be rejected
+    private static final int BAD_ROWS = 3;
+
+    public static void main(String[] args) throws IOException {
+        int rollSize = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int oneByOneSize = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        oneByOne(Math.min(oneByOneSize, 200)); // warm-up
+        importRoll(Math.min(rollSize, 10_000));
+
+        long oneByOneNanos = oneByOne(oneByOneSize);
+        System.out.printf("registerVoter x %,d: %,d ms (%,.0f voters/s)%n",
+                oneByOneSize, oneByOneNanos / 1_000_000, oneByOneSize * 1e9 / oneByOneNanos);
+
+        boolean ok = importRoll(rollSize);
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok) System.exit(1);
+    }
+
+    private static long oneByOne(int voters) throws IOException {
+        Path dir = SyntheticData.create(0, 3, ElectionState.REGISTRATION);
+        try {
+            ElectionManager manager = new ElectionManager(new DataManager(dir));
+            // Each call saved before returning: the durability importVoters gives a whole roll
+            manager.setWriteBehind(false);
+            long start = System.nanoTime();
+            for (int i = 0; i < voters; i++) {
+                manager.registerVoter(SyntheticData.username(i), "Voter " + i, SyntheticData.PASSWORD);
+            }
+            return System.nanoTime() - start;
+        } finally {
+            SyntheticData.deleteRecursively(dir);
+        }
+    }
+
+    private static boolean importRoll(int voters) throws IOException {
+        Path dir = SyntheticData.create(0, 3, ElectionState.REGISTRATION);
+        Path roll = dir.resolve("roll.csv");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(roll)) {
+                writer.write("username,fullName,password\n");
+                writer.write("ADMIN,Clashes with the default admin,x\n");
+                for (int i = 0; i < voters; i++) {
+                    writer.write(SyntheticData.username(i) + ",Voter " + i + "," + SyntheticData.PASSWORD + "\n");
+                    if (i == voters / 2) {
+                        writer.write(SyntheticData.username(0) + ",Duplicate,x\n");
+                        writer.write("missing-fields\n");
+                    }
+                }
+            }
+
+            ElectionManager manager = new ElectionManager(new DataManager(dir));
+            PrintStream out = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            long start = System.nanoTime();
+            ImportReport report;
+            try {
+                report = manager.importVoters(roll);
+            } finally {
+                System.setOut(out);
+            }
+            long elapsed = System.nanoTime() - start;
+
+            // IDs must run v-001 .. v-N with no gaps or repeats, and survive a reload
+            Set<String> ids = new HashSet<>();
+            ElectionManager reloaded = new ElectionManager(new DataManager(dir));
+            for (User user : reloaded.getUsers()) {
+                if (user instanceof Voter v) ids.add(v.getUserId());
+            }
+            reloaded.close();
+            boolean idsOk = ids.size() == voters
+                    && ids.contains(SyntheticData.voterId(0))
+                    && ids.contains(SyntheticData.voterId(voters - 1));
+
+            boolean ok = report.isSuccessful()
+                    && report.getImported() == voters
+                    && report.getErrors().size() == BAD_ROWS
+                    && idsOk;
+            System.out.printf("importVoters  %,d: %,d ms (%,.0f voters/s) | imported %,d, rejected %,d -> %s%n",
+                    voters, elapsed / 1_000_000, voters * 1e9 / elapsed,
+                    report.getImported(), report.getErrors().size(), ok ? "ok" : "MISMATCH");
+            if (!ok) report.getErrors().forEach(System.out::println);
+            return ok;
+        } finally {
+            SyntheticData.deleteRecursively(dir);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.*;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stress test for concurrent castVote. Every voter tries to vote twice,
+ * from two different virtual threads, and the run checks that exactly one
+ * ballot per voter was kept in memory, in the tally and in the journal.
+ * The same workload is then repeated with every castVote behind one
+ * global lock as a throughput baseline.
+ *
+ * Usage: ConcurrentVoteStress [voters] [candidates]   (default 100,000 / 5)
+ */
+public class ConcurrentVoteStress {
+
+    private static final int ATTEMPTS_PER_VOTER = 2;
+
+    public static void main(String[] args) throws IOException {
+        int voters = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int candidates = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        run("warm-up", Math.min(voters, 20_000), candidates, false);
+        boolean ok = run("per-voter CAS", voters, candidates, false);
+        ok &= run("single global lock", voters, candidates, true);
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok) System.exit(1);
+    }
+
+    private static boolean run(String label, int voterCount, int candidateCount, boolean globalLock) throws IOException {
+        Path dir = SyntheticData.create(voterCount, candidateCount, ElectionState.VOTING);
+        PrintStream out = System.out;
+        try {
+            ElectionManager manager = new ElectionManager(new DataManager(dir));
+            // Every ballot must stay in journal.log to be counted below
+            manager.setCheckpointInterval(0);
+            List<Voter> voters = new ArrayList<>(voterCount);
+            for (User user : manager.getUsers()) {
+                if (user instanceof Voter v) voters.add(v);
+            }
+
+            Object lock = new Object();
+            AtomicInteger accepted = new AtomicInteger();
+            // castVote reports rejected duplicates on stdout; keep the report readable
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            long start = System.nanoTime();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int attempt = 0; attempt < ATTEMPTS_PER_VOTER; attempt++) {
+                    for (int i = 0; i < voters.size(); i++) {
+                        Voter voter = voters.get(i);
+                        String candidateId = SyntheticData.candidateId((i + attempt) % candidateCount);
+                        executor.submit(() -> {
+                            boolean cast;
+                            if (globalLock) {
+                                synchronized (lock) {
+                                    cast = manager.castVote(voter, candidateId);
+                                }
+                            } else {
+                                cast = manager.castVote(voter, candidateId);
+                            }
+                            if (cast) accepted.incrementAndGet();
+                        });
+                    }
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            System.setOut(out);
+
+            long journaled;
+            try (var lines = Files.lines(dir.resolve("journal.log"))) {
+                journaled = lines.count();
+            }
+            Set<String> journaledVoters = new HashSet<>();
+            for (Vote vote : new DataManager(dir).loadJournal()) {
+                journaledVoters.add(vote.getVoterId());
+            }
+            manager.changeState(ElectionState.CLOSED);
+            Map<String, Integer> results = manager.tallyVotes();
+            int tallied = results.values().stream().mapToInt(Integer::intValue).sum();
+
+            boolean ok = accepted.get() == voterCount
+                    && manager.getBallotsCast() == voterCount
+                    && tallied == voterCount
+                    && journaled == voterCount
+                    && journaledVoters.size() == voterCount
+                    && manager.verifyTally();
+
+            System.out.printf("%-20s %,d attempts in %,d ms = %,.0f attempts/s | accepted %,d, tallied %,d, journaled %,d -> %s%n",
+                    label, voterCount * ATTEMPTS_PER_VOTER, elapsed / 1_000_000,
+                    voterCount * ATTEMPTS_PER_VOTER * 1e9 / elapsed,
+                    accepted.get(), tallied, journaled, ok ? "ok" : "MISMATCH");
+            return ok;
+        } finally {
+            System.setOut(out);
+            SyntheticData.deleteRecursively(dir);
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.ElectionState;
+import com.electionportal.models.User;
+import com.electionportal.models.Voter;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import com.electionportal.services.UserIndex;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Kill-during-write recovery. Half the electorate has voted already, and
+ * voting opened with a full save, as changeState writes one. Each round
+ * starts a child JVM that casts ballots one voter after another while the
+ * election is checkpointed every interval ballots, kills it (SIGKILL) at a
+ * random moment, sometimes in the middle of writing a checkpoint, and
+ * reopens the election. Every acknowledged ballot must be back, and exactly
+ * the ballots durable on disk: voters vote in order, so the newest complete
+ * journal record or checkpoint, read here without DataManager, says how
+ * many there are. No voter may have two, and the live counters must match
+ * the ballots. Each round prints the time to reopen the election and,
+ * within that, to restore the ballots: load the chain of checkpoints, then
+ * replay the journal tail. A checkpoint writes only the ballots since the
+ * one before it, so it is done long before the next is due, and the tail
+ * stays within about one interval (two if the kill interrupted a
+ * checkpoint) however many ballots the election holds. At the end the
+ * newest checkpoint is damaged on purpose, and recovery must fall back to
+ * the one before it; then the same ballots are restored from a journal
+ * holding every one of them, for comparison.
+ *
+ * Usage: CrashRecoveryCheck [voters] [interval] [rounds]   (default 2,000,000, 50,000, 8)
+ */
+public class CrashRecoveryCheck {
+
+    // The child reports its progress every this many ballots
+    private static final int ACK_EVERY = 100;
+    private static final int CANDIDATES = 5;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--child")) {
+            child(Path.of(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+            return;
+        }
+        int voters = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int interval = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+
+        Path dir = SyntheticData.create(voters, CANDIDATES, ElectionState.VOTING, 0.5);
+        Path plain = null;
+        try {
+            ElectionManager opening = new ElectionManager(new DataManager(dir));
+            opening.saveAllData();
+            opening.close();
+            SplittableRandom random = new SplittableRandom(21);
+            boolean ok = true;
+            int cast = voters / 2;
+            int midCheckpoint = 0;
+            Restore restore = null;
+            System.out.printf("%,d voters, checkpoint every %,d ballots%n", voters, interval);
+            for (int round = 1; round <= rounds && cast < voters; round++) {
+                List<Path> leftOver = checkpointTemps(dir);
+                Child child = Child.start(dir, interval, cast);
+                Thread.sleep(1_000 + random.nextInt(3_000));
+                child.kill();
+                // A new temp file means a checkpoint was being written when the child died
+                boolean torn = !leftOver.containsAll(checkpointTemps(dir));
+                if (torn) midCheckpoint++;
+
+                long start = System.nanoTime();
+                ElectionManager manager = new ElectionManager(new DataManager(dir));
+                long reopenMs = (System.nanoTime() - start) / 1_000_000;
+                restore = Restore.time(dir);
+                long ballots = manager.getBallotsCast();
+                long durable = durableBallots(dir, cast);
+                boolean consistent = ballots >= child.acknowledged && ballots == durable
+                        && votedPrefix(manager, (int) ballots, voters, random) && manager.verifyTally();
+                ok &= consistent;
+                System.out.printf("round %d: killed after %,d acknowledged, %,d on disk%s | reopened with %,d ballots in %,d ms;"
+                                + " ballots: checkpoint %,d ms + %,d journaled in %,d ms -> %s%n",
+                        round, child.acknowledged, durable, torn ? " (mid-checkpoint)" : "",
+                        ballots, reopenMs, restore.checkpointMs, restore.replayed, restore.journalMs,
+                        consistent ? "ok" : "MISMATCH");
+                manager.close();
+                cast = (int) ballots;
+            }
+            System.out.printf("%d kill(s) landed while a checkpoint was being written%n", midCheckpoint);
+
+            ok &= recoversFromDamagedCheckpoint(dir, cast);
+
+            // The same ballots with no checkpoint or snapshot: every one is in the journal
+            plain = SyntheticData.create(voters, CANDIDATES, ElectionState.VOTING);
+            try (BufferedWriter journal = Files.newBufferedWriter(plain.resolve("journal.log"))) {
+                for (int i = 0; i < cast; i++) {
+                    journal.write("VOTE," + SyntheticData.voterId(i) + "," + SyntheticData.candidateId(i % CANDIDATES));
+                    journal.newLine();
+                }
+            }
+            Restore fromJournal = Restore.time(plain);
+            ok &= new ElectionManager(new DataManager(plain)).getBallotsCast() == cast;
+            if (restore != null) {
+                System.out.printf("%,d ballots restored from checkpoint + tail in %,d ms, from the journal alone in %,d ms%n",
+                        cast, restore.checkpointMs + restore.journalMs, fromJournal.journalMs);
+            }
+
+            System.out.println(ok ? "PASS" : "FAIL");
+            if (!ok) System.exit(1);
+        } finally {
+            SyntheticData.deleteRecursively(dir);
+            if (plain != null) SyntheticData.deleteRecursively(plain);
+        }
+    }
+
+    /**
+     * Ballots in the files on disk, found without DataManager: the most a
+     * checkpoint header or a complete journal line accounts for. Voter i
+     * casts ballot i, so "VOTE,v-n,..." means n ballots are durable.
+     */
+    private static long durableBallots(Path dir, long atLeast) throws Exception {
+        long durable = atLeast;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.matches("checkpoint-\\d+\\.bin")) {
+                    durable = Math.max(durable, checkpointEnd(file));
+                } else if (name.matches("journal(-\\d+)?\\.log")) {
+                    durable = Math.max(durable, lastJournaled(file));
+                }
+            }
+        }
+        return durable;
+    }
+
+    // Header: magic | version | sequence | first ballot | ballot count
+    private static long checkpointEnd(Path file) throws Exception {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            in.skipNBytes(16);
+            return in.readLong() + in.readLong();
+        }
+    }
+
+    // The voter number in the last line that ends, or 0
+    private static long lastJournaled(Path file) throws Exception {
+        byte[] bytes = Files.readAllBytes(file);
+        int end = bytes.length;
+        while (end > 0 && bytes[end - 1] != '\n') end--; // Drop a torn last line
+        if (end == 0) return 0;
+        int start = end - 1;
+        while (start > 0 && bytes[start - 1] != '\n') start--;
+        String[] parts = new String(bytes, start, end - 1 - start, StandardCharsets.UTF_8).split(",");
+        return Long.parseLong(parts[1].substring(2));
+    }
+
+    // Voters vote in order, so exactly the first `ballots` of them have voted
+    private static boolean votedPrefix(ElectionManager manager, int ballots, int voters, SplittableRandom random) {
+        UserIndex users = manager.getUserIndex();
+        boolean ok = ballots == 0 || voted(users, ballots - 1);
+        if (ballots < voters) ok &= !voted(users, ballots);
+        for (int i = 0; i < 1_000 && ballots > 0; i++) {
+            ok &= voted(users, random.nextInt(ballots));
+        }
+        return ok;
+    }
+
+    private static boolean voted(UserIndex users, int i) {
+        User user = users.find(SyntheticData.username(i));
+        return user instanceof Voter voter && voter.hasVoted();
+    }
+
+    // Flips a byte in the middle of the newest checkpoint, then recovers
+    private static boolean recoversFromDamagedCheckpoint(Path dir, int ballots) throws Exception {
+        List<Path> checkpoints = checkpoints(dir);
+        if (checkpoints.size() < 2) {
+            System.out.println("fewer than two checkpoints; damaged-checkpoint fallback not exercised");
+            return true;
+        }
+        Path newest = checkpoints.get(checkpoints.size() - 1);
+        try (RandomAccessFile file = new RandomAccessFile(newest.toFile(), "rw")) {
+            long middle = file.length() / 2;
+            file.seek(middle);
+            int b = file.read();
+            file.seek(middle);
+            file.write(b ^ 0x5A);
+        }
+        ElectionManager manager = new ElectionManager(new DataManager(dir));
+        boolean ok = manager.getBallotsCast() == ballots && manager.verifyTally();
+        System.out.printf("damaged %s: recovered %,d ballots from the checkpoint before it -> %s%n",
+                newest.getFileName(), manager.getBallotsCast(), ok ? "ok" : "MISMATCH");
+        manager.close();
+        return ok;
+    }
+
+    // The vote part of recovery on its own: the checkpoint, then the journal after it
+    private record Restore(long checkpointMs, long journalMs, int replayed) {
+        static Restore time(Path dir) {
+            DataManager store = new DataManager(dir);
+            long start = System.nanoTime();
+            store.forEachStoredVote((voterId, rankingField) -> { });
+            long loaded = System.nanoTime();
+            int replayed = store.loadJournal().size();
+            long end = System.nanoTime();
+            return new Restore((loaded - start) / 1_000_000, (end - loaded) / 1_000_000, replayed);
+        }
+    }
+
+    private static List<Path> checkpoints(Path dir) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().matches("checkpoint-\\d+\\.bin"))
+                    .sorted(Comparator.comparingLong(f -> Long.parseLong(f.getFileName().toString().replaceAll("\\D", ""))))
+                    .toList();
+        }
+    }
+
+    private static List<Path> checkpointTemps(Path dir) throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().matches("checkpoint-\\d+\\.bin\\.tmp")).toList();
+        }
+    }
+
+    /**
+     * The voting process: casts ballots for voters from, from + 1, ... and
+     * prints "ACK n" once the first n voters' ballots are all accepted.
+     */
+    private static void child(Path dir, int interval, int from) throws Exception {
+        ElectionManager manager = new ElectionManager(new DataManager(dir));
+        manager.setCheckpointInterval(interval);
+        UserIndex users = manager.getUserIndex();
+        System.out.println("READY");
+        for (int i = from; users.find(SyntheticData.username(i)) instanceof Voter voter; i++) {
+            if (!manager.castVote(voter, SyntheticData.candidateId(i % CANDIDATES))) System.exit(1);
+            if ((i + 1) % ACK_EVERY == 0) System.out.println("ACK " + (i + 1));
+        }
+        Thread.sleep(Long.MAX_VALUE); // Out of voters; wait to be killed
+    }
+
+    private static final class Child {
+        private final Process process;
+        private final Thread reader;
+        private final CountDownLatch ready = new CountDownLatch(1);
+        private volatile int acknowledged;
+
+        private Child(Process process, int from) {
+            this.process = process;
+            this.acknowledged = from;
+            this.reader = new Thread(this::read);
+            reader.start();
+        }
+
+        static Child start(Path dir, int interval, int from) throws Exception {
+            Process process = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                    "-cp", System.getProperty("java.class.path"), CrashRecoveryCheck.class.getName(),
+                    "--child", dir.toString(), String.valueOf(interval), String.valueOf(from))
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            Child child = new Child(process, from);
+            if (!child.ready.await(2, TimeUnit.MINUTES)) throw new IllegalStateException("child did not start");
+            return child;
+        }
+
+        private void read() {
+            try (BufferedReader lines = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    if (line.equals("READY")) ready.countDown();
+                    if (line.startsWith("ACK ")) acknowledged = Integer.parseInt(line.substring(4));
+                }
+            } catch (Exception e) {
+                // The child was killed mid-line
+            }
+        }
+
+        void kill() throws InterruptedException {
+            process.destroyForcibly();
+            process.waitFor();
+            reader.join();
+        }
+    }
+}
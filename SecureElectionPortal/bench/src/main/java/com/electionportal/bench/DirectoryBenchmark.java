@@ -0,0 +1,124 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.User;
+import com.electionportal.models.Voter;
+import com.electionportal.services.UserDirectory;
+import com.electionportal.services.UserDirectory.Match;
+import com.electionportal.services.UserIndex;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.Predicate;
+
+/**
+ * User directory queries over a large electorate: time per page for each
+ * kind of search, against filtering and sorting the whole user list (what a
+ * listing without an index has to do). Paging through every match of a
+ * query must return each matching user exactly once, in the same order as
+ * the full sort.
+ *
+ * Usage: DirectoryBenchmark [users]   (default 1,000,000)
+ */
+public class DirectoryBenchmark {
+
+    private static final String[] FIRST = {"Anna", "Ben", "Carla", "David", "Elena", "Farid", "Grace", "Hugo",
+            "Ines", "Jonas", "Kim", "Leila", "Marco", "Nadia", "Omar", "Priya", "Quinn", "Rosa", "Sam", "Tariq"};
+    private static final String[] LAST = {"Smith", "Okafor", "Garcia", "Nguyen", "Kowalski", "Haddad", "Rossi",
+            "Tanaka", "Muller", "Silva", "Andersen", "Cohen", "Ivanova", "Dubois", "Khan", "Larsen", "Moreau"};
+    private static final int PAGE = 20;
+
+    public static void main(String[] args) {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        SplittableRandom random = new SplittableRandom(7);
+        UserIndex index = new UserIndex();
+        List<User> users = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            String name = FIRST[random.nextInt(FIRST.length)] + " " + LAST[random.nextInt(LAST.length)] + "-" + i;
+            Voter voter = new Voter(SyntheticData.voterId(i), "user" + i, name, "x", false);
+            users.add(voter);
+            index.add(voter);
+        }
+        UserDirectory directory = index.getDirectory();
+
+        long start = System.nanoTime();
+        directory.find(Match.USERNAME, "", null, PAGE);
+        System.out.printf("%,d users; directory built on first query in %,d ms%n",
+                userCount, (System.nanoTime() - start) / 1_000_000);
+
+        boolean ok = true;
+        ok &= report(directory, users, Match.USERNAME, "user12345");
+        ok &= report(directory, users, Match.NAME, "okafor");
+        ok &= report(directory, users, Match.NAME, "grace sm");
+        ok &= report(directory, users, Match.CONTAINS, "-99999");
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok) System.exit(1);
+    }
+
+    private static boolean report(UserDirectory directory, List<User> users, Match match, String query) {
+        // Warm up, then time the first page and a page deep into the results
+        for (int i = 0; i < 20; i++) directory.find(match, query, null, PAGE);
+        long start = System.nanoTime();
+        UserDirectory.Page first = directory.find(match, query, null, PAGE);
+        long firstPage = System.nanoTime() - start;
+
+        List<User> paged = new ArrayList<>(first.users());
+        String cursor = first.next();
+        long deepest = 0;
+        int pages = 1;
+        while (cursor != null) {
+            long t = System.nanoTime();
+            UserDirectory.Page page = directory.find(match, query, cursor, PAGE);
+            deepest = System.nanoTime() - t;
+            paged.addAll(page.users());
+            cursor = page.next();
+            pages++;
+        }
+
+        start = System.nanoTime();
+        List<User> expected = naive(users, match, query);
+        long naive = System.nanoTime() - start;
+
+        Set<String> distinct = new HashSet<>();
+        for (User user : paged) distinct.add(user.getUsername());
+        boolean ok = paged.equals(expected) && distinct.size() == paged.size();
+        System.out.printf("%-8s %-10s %,7d matches, %,6d pages | first page %,8.3f ms, last page %,8.3f ms"
+                        + " | filter+sort all %,6d ms -> %s%n",
+                match, "\"" + query + "\"", paged.size(), pages, firstPage / 1e6, deepest / 1e6,
+                naive / 1_000_000, ok ? "ok" : "MISMATCH");
+        return ok;
+    }
+
+    // The same result order the directory promises, computed the slow way
+    private static List<User> naive(List<User> users, Match match, String query) {
+        String q = query.toLowerCase(Locale.ROOT);
+        Predicate<User> matches;
+        Comparator<User> order = Comparator.comparing(u -> u.getUsername().toLowerCase(Locale.ROOT));
+        switch (match) {
+            case USERNAME -> matches = u -> u.getUsername().toLowerCase(Locale.ROOT).startsWith(q);
+            case NAME -> {
+                matches = u -> firstWordMatch(u, q) != null;
+                order = Comparator.comparing((User u) -> firstWordMatch(u, q))
+                        .thenComparing(u -> u.getUsername().toLowerCase(Locale.ROOT));
+            }
+            default -> matches = u -> u.getUsername().toLowerCase(Locale.ROOT).contains(q)
+                    || u.getFullName().toLowerCase(Locale.ROOT).contains(q);
+        }
+        return users.stream().filter(matches).sorted(order).toList();
+    }
+
+    // The name from the first word that starts with q, or null
+    private static String firstWordMatch(User user, String q) {
+        String name = user.getFullName().toLowerCase(Locale.ROOT);
+        List<String> words = Arrays.asList(name.split(" "));
+        for (int i = 0; i < words.size(); i++) {
+            String suffix = String.join(" ", words.subList(i, words.size()));
+            if (suffix.startsWith(q)) return suffix;
+        }
+        return null;
+    }
+}
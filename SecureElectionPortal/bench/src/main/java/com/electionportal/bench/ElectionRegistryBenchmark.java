@@ -0,0 +1,265 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.ElectionState;
+import com.electionportal.models.User;
+import com.electionportal.models.Voter;
+import com.electionportal.services.ElectionRegistry;
+import com.electionportal.services.LatencyHistogram;
+import com.electionportal.web.ElectionHttpServer;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hosts hundreds of small elections and one large one in a single
+ * ElectionRegistry under a memory budget. A "city" election takes ballots
+ * nonstop, one lease per ballot as an HTTP request would, while every town
+ * is visited in random order for a few rounds: ballots where voting is
+ * open, a tally where it is closed. Towns are loaded on first visit and
+ * unloaded when the budget is reached, so most visits reload one; the
+ * busy city must stay loaded throughout, even though it alone is over budget.
+ * Reports how long loading and leasing take, what the city's ballots
+ * cost meanwhile, the heap, and the threads left once everything is idle.
+ * Then every election is reopened to check that no ballot was lost
+ * through unloading, and the HTTP routes are checked: a session only works
+ * for its own election, and only until that election is unloaded.
+ *
+ * Usage: ElectionRegistryBenchmark [towns] [voters per town] [budget MB]   (default 300, 2,000, 16)
+ */
+public class ElectionRegistryBenchmark {
+
+    private static final int CANDIDATES = 4;
+    private static final int CITY_VOTERS = 200_000;
+    private static final int ROUNDS = 3;
+    private static final int BALLOTS_PER_VISIT = 5;
+    private static final long IDLE_MILLIS = 2_000;
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+
+    public static void main(String[] args) throws Exception {
+        int towns = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int voters = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        long budget = (args.length > 2 ? Long.parseLong(args[2]) : 16) << 20;
+
+        Path root = Files.createTempDirectory("election-registry");
+        PrintStream out = System.out;
+        try {
+            long start = System.nanoTime();
+            int[] expected = new int[towns];
+            for (int t = 0; t < towns; t++) {
+                // Every third town has closed, with half its voters having voted
+                boolean closed = t % 3 == 0;
+                Path dir = SyntheticData.create(voters, CANDIDATES, closed ? ElectionState.CLOSED : ElectionState.VOTING,
+                        closed ? 0.5 : 0.0);
+                Files.move(dir, root.resolve(town(t)));
+                expected[t] = closed ? voters / 2 : ROUNDS * BALLOTS_PER_VISIT;
+            }
+            Files.move(SyntheticData.create(CITY_VOTERS, CANDIDATES, ElectionState.VOTING), root.resolve("city"));
+            System.out.printf("%,d towns of %,d voters and a city of %,d, written in %,d ms; budget %,d MB%n",
+                    towns, voters, CITY_VOTERS, (System.nanoTime() - start) / 1_000_000, budget >> 20);
+
+            // Loading prints the odd notice; keep the report readable
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            long heapBefore = usedHeap();
+            ElectionRegistry registry = new ElectionRegistry(root, budget, IDLE_MILLIS);
+            int listed = registry.list().size();
+            long cityStart = System.nanoTime();
+            long cityGeneration;
+            try (ElectionRegistry.Lease lease = registry.acquire("city")) {
+                cityGeneration = lease.generation();
+            }
+            long cityLoadMillis = (System.nanoTime() - cityStart) / 1_000_000;
+
+            AtomicBoolean touring = new AtomicBoolean(true);
+            LatencyHistogram cityBallots = new LatencyHistogram();
+            AtomicInteger cityCast = new AtomicInteger();
+            Thread city = Thread.ofPlatform().name("city").start(() -> {
+                for (int i = 0; touring.get() && i < CITY_VOTERS; i++) {
+                    long t0 = System.nanoTime();
+                    try (ElectionRegistry.Lease lease = registry.acquire("city")) {
+                        User user = lease.manager().getUserIndex().find(SyntheticData.username(i));
+                        if (user instanceof Voter voter
+                                && lease.manager().castVote(voter, SyntheticData.candidateId(i % CANDIDATES))) {
+                            cityCast.incrementAndGet();
+                        }
+                    }
+                    cityBallots.recordSince(t0);
+                }
+            });
+
+            LatencyHistogram loads = new LatencyHistogram();
+            LatencyHistogram warm = new LatencyHistogram();
+            boolean ok = listed == towns + 1;
+            List<Integer> order = new ArrayList<>();
+            for (int t = 0; t < towns; t++) order.add(t);
+            Random random = new Random(25);
+            long tourStart = System.nanoTime();
+            for (int round = 0; round < ROUNDS; round++) {
+                Collections.shuffle(order, random);
+                for (int t : order) {
+                    long loadsBefore = registry.getLoads();
+                    long t0 = System.nanoTime();
+                    try (ElectionRegistry.Lease lease = registry.acquire(town(t))) {
+                        (registry.getLoads() > loadsBefore ? loads : warm).recordSince(t0);
+                        if (lease.manager().getCurrentState() == ElectionState.CLOSED) {
+                            ok &= lease.manager().tallyVotes() != null;
+                            continue;
+                        }
+                        for (int b = 0; b < BALLOTS_PER_VISIT; b++) {
+                            int v = round * BALLOTS_PER_VISIT + b;
+                            Voter voter = (Voter) lease.manager().getUserIndex().find(SyntheticData.username(v));
+                            ok &= lease.manager().castVote(voter, SyntheticData.candidateId(v % CANDIDATES));
+                        }
+                    }
+                }
+            }
+            long tourMillis = (System.nanoTime() - tourStart) / 1_000_000;
+            touring.set(false);
+            city.join();
+            // Only elections in active use may take the total over budget
+            boolean cityStayed;
+            try (ElectionRegistry.Lease lease = registry.acquire("city")) {
+                cityStayed = lease.generation() == cityGeneration;
+            }
+            long active = 0;
+            for (ElectionRegistry.Status status : registry.loaded()) {
+                if (status.idleMillis() < ElectionRegistry.ACTIVE_MILLIS) active += status.footprint();
+            }
+            long loaded = registry.getLoadedBytes();
+            long heapLoaded = usedHeap() - heapBefore;
+            ok &= loaded - active <= budget && cityStayed;
+
+            // Idle for longer than the timeout, with no requests: the sweep unloads everything
+            Thread.sleep(IDLE_MILLIS + 1_500);
+            int residents = registry.loaded().size();
+            int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+            ok &= residents == 0;
+            long heapIdle = usedHeap() - heapBefore;
+            long totalLoads = registry.getLoads();
+            registry.close();
+            System.setOut(out);
+
+            System.out.printf("city loaded in %,d ms; %d town visits in %,d ms: %,d loads (%,d reloads after unloading)%n",
+                    cityLoadMillis, ROUNDS * towns, tourMillis, totalLoads, totalLoads - towns - 1);
+            System.out.printf("  acquire, loading   : p50 %s ms, p99 %s ms%n", millis(loads.getPercentileNanos(50)),
+                    millis(loads.getPercentileNanos(99)));
+            System.out.printf("  acquire, loaded    : p50 %s ms, p99 %s ms%n", millis(warm.getPercentileNanos(50)),
+                    millis(warm.getPercentileNanos(99)));
+            System.out.printf("  city meanwhile     : %,d ballots, lease + castVote p50 %s ms, p99 %s ms, max %s ms%n",
+                    cityCast.get(), millis(cityBallots.getPercentileNanos(50)),
+                    millis(cityBallots.getPercentileNanos(99)), millis(cityBallots.getMaxNanos()));
+            System.out.printf("  estimated loaded   : %,d KB of %,d KB (%,d KB in active use); heap retained %,d MB%n",
+                    loaded >> 10, budget >> 10, active >> 10, heapLoaded >> 20);
+            System.out.println("  city               : " + (cityStayed ? "stayed loaded" : "UNLOADED while busy"));
+            System.out.printf("  after %d s idle     : %d election(s) loaded, heap retained %,d MB, %d live threads%n",
+                    (IDLE_MILLIS + 1_500) / 1000, residents, heapIdle >> 20, threads);
+
+            ok &= ballotsKept(root, towns, expected, cityCast.get());
+            ok &= sessionsStayInTheirElection(root);
+            System.out.println(ok ? "PASS" : "FAIL");
+            if (!ok) System.exit(1);
+        } finally {
+            System.setOut(out);
+            SyntheticData.deleteRecursively(root);
+        }
+    }
+
+    // Every ballot cast through a lease must be there after a restart
+    private static boolean ballotsKept(Path root, int towns, int[] expected, int cityCast) {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        boolean ok = true;
+        try (ElectionRegistry registry = new ElectionRegistry(root, 0, IDLE_MILLIS)) {
+            for (int t = 0; t < towns; t++) {
+                try (ElectionRegistry.Lease lease = registry.acquire(town(t))) {
+                    ok &= lease.manager().getBallotsCast() == expected[t];
+                }
+            }
+            try (ElectionRegistry.Lease lease = registry.acquire("city")) {
+                ok &= lease.manager().getBallotsCast() == cityCast;
+            }
+        } finally {
+            System.setOut(out);
+        }
+        System.out.println("  reopened           : " + (ok ? "every ballot kept" : "BALLOTS MISSING"));
+        return ok;
+    }
+
+    // A budget of 0 keeps only the election last used, once the other is no longer in active use
+    private static boolean sessionsStayInTheirElection(Path root) throws Exception {
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try (ElectionRegistry registry = new ElectionRegistry(root, 0, IDLE_MILLIS);
+             ElectionHttpServer server = new ElectionHttpServer(registry, 0)) {
+            server.start();
+            HttpClient http = HttpClient.newHttpClient();
+            String base = "http://localhost:" + server.getPort() + "/elections/";
+            String voter = SyntheticData.username(1_000);
+
+            String token = login(http, base + town(1), voter);
+            boolean ok = send(http, base + town(1) + "/api/vote", token, "candidateId=" + SyntheticData.candidateId(0)) == 200;
+            ok &= send(http, base + town(1) + "/api/receipt", token, null) == 200;
+            ok &= send(http, base + town(2) + "/api/receipt", token, null) == 401; // Same username, other election
+            ok &= login(http, base + town(2), voter) != null;
+            Thread.sleep(ElectionRegistry.ACTIVE_MILLIS + 200);
+            ok &= send(http, base + town(2) + "/api/candidates", null, null) == 200; // Unloads town 1
+            ok &= send(http, base + town(1) + "/api/receipt", token, null) == 401; // Reloaded: log in again
+            ok &= send(http, base + town(1) + "/api/receipt", login(http, base + town(1), voter), null) == 200;
+            ok &= send(http, base + "nowhere/api/candidates", null, null) == 404;
+            ok &= http.send(HttpRequest.newBuilder(URI.create(base.substring(0, base.length() - 1))).build(),
+                    HttpResponse.BodyHandlers.ofString()).body().contains("\"city\"");
+            System.setOut(out);
+            System.out.println("  HTTP sessions      : " + (ok ? "scoped to their election and load" : "MISMATCH"));
+            return ok;
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    private static String login(HttpClient http, String election, String username) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(election + "/api/login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("username=" + username + "&password=" + SyntheticData.PASSWORD))
+                .build();
+        Matcher token = TOKEN.matcher(http.send(request, HttpResponse.BodyHandlers.ofString()).body());
+        return token.find() ? token.group(1) : null;
+    }
+
+    private static int send(HttpClient http, String url, String token, String form) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url));
+        if (token != null) request.header("Authorization", "Bearer " + token);
+        if (form != null) {
+            request.header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(form));
+        }
+        return http.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static String town(int t) { return String.format("town-%03d", t); }
+
+    private static String millis(long nanos) {
+        return String.format("%.2f", nanos / 1e6);
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
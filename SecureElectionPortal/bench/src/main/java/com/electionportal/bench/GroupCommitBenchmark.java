@@ -0,0 +1,80 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.*;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Measures votes/sec and castVote latency with durable group commit
+ * across batch size / max wait settings. "batch 1" is one force() per ballot.
+ *
+ * Usage: GroupCommitBenchmark [voters] [concurrentVoters]   (default 20,000 / 1,000)
+ */
+public class GroupCommitBenchmark {
+
+    // {maxBatchSize, maxWaitMicros}
+    private static final int[][] SETTINGS = {
+            {1, 0}, {16, 0}, {64, 100}, {256, 500}, {1024, 2000}
+    };
+
+    public static void main(String[] args) throws Exception {
+        int voters = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+
+        System.out.printf("%,d ballots, %,d concurrent voters%n", voters, concurrency);
+        System.out.println("batch   wait(us)    votes/s     p50 us     p99 us     max us");
+        for (int[] setting : SETTINGS) {
+            run(voters, concurrency, setting[0], setting[1]);
+        }
+    }
+
+    private static void run(int voterCount, int concurrency, int batchSize, int maxWaitMicros) throws Exception {
+        Path dir = SyntheticData.create(voterCount, 5, ElectionState.VOTING);
+        try {
+            DataManager dataManager = new DataManager(dir);
+            dataManager.enableGroupCommit(batchSize, maxWaitMicros);
+            ElectionManager manager = new ElectionManager(dataManager);
+
+            List<Voter> voters = new ArrayList<>(voterCount);
+            for (User user : manager.getUsers()) {
+                if (user instanceof Voter v) voters.add(v);
+            }
+
+            long[] latencies = new long[voterCount];
+            long start = System.nanoTime();
+            // Each worker casts a contiguous slice, so at most `concurrency` ballots are in flight
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                int slice = (voterCount + concurrency - 1) / concurrency;
+                for (int w = 0; w < concurrency; w++) {
+                    int from = w * slice;
+                    int to = Math.min(voterCount, from + slice);
+                    executor.submit(() -> {
+                        for (int i = from; i < to; i++) {
+                            long t0 = System.nanoTime();
+                            manager.castVote(voters.get(i), SyntheticData.candidateId(i % 5));
+                            latencies[i] = System.nanoTime() - t0;
+                        }
+                    });
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            dataManager.disableGroupCommit();
+
+            Arrays.sort(latencies);
+            System.out.printf("%5d %10d %10.0f %10d %10d %10d%n", batchSize, maxWaitMicros,
+                    voterCount * 1e9 / elapsed,
+                    latencies[latencies.length / 2] / 1_000,
+                    latencies[(int) (latencies.length * 0.99)] / 1_000,
+                    latencies[latencies.length - 1] / 1_000);
+        } finally {
+            SyntheticData.deleteRecursively(dir);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.Vote;
+import com.electionportal.services.BallotBox;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Heap used by the vote state for N voters who have all voted:
+ * before = a List<Vote> with parsed String IDs plus one AtomicBoolean
+ * "has voted" flag per voter; after = BallotBox (dictionary-encoded ints
+ * and a bitset). The voter ID strings themselves belong to the Voter
+ * objects in both cases and are excluded.
+ *
+ * Usage: HeapFootprintBenchmark [voters...]   (default 1,000,000 10,000,000)
+ * 10M voters needs roughly -Xmx6g for the "before" layout.
+ */
+public class HeapFootprintBenchmark {
+
+    private static final int CANDIDATES = 12;
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[] {1_000_000, 10_000_000} : parse(args);
+        footprint(100_000); // Warm-up: the first measurement in a fresh JVM is skewed
+        System.out.println("voters          before (List<Vote>)     after (BallotBox)   bytes/voter before -> after");
+        for (int n : sizes) {
+            long[] bytes = footprint(n);
+            System.out.printf("%,-14d %,18d B %,18d B %12.1f -> %.1f%n",
+                    n, bytes[0], bytes[1], (double) bytes[0] / n, (double) bytes[1] / n);
+        }
+    }
+
+    /**
+     * @return {before, after} heap bytes for n voters
+     */
+    private static long[] footprint(int n) {
+        String[] voterIds = new String[n];
+        for (int i = 0; i < n; i++) voterIds[i] = SyntheticData.voterId(i);
+
+        long before = measure(() -> {
+            List<Vote> votes = new ArrayList<>(n);
+            List<AtomicBoolean> flags = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                // As DataManager.loadVotes used to build them: fresh Strings from split()
+                String[] parts = (voterIds[i] + "," + SyntheticData.candidateId(i % CANDIDATES)).split(",");
+                votes.add(new Vote(parts[0], parts[1]));
+                flags.add(new AtomicBoolean(true));
+            }
+            return new Object[] {votes, flags};
+        });
+
+        long after = measure(() -> {
+            BallotBox box = new BallotBox();
+            for (int i = 0; i < n; i++) box.addVoterId(voterIds[i]);
+            for (int c = 0; c < CANDIDATES; c++) box.addCandidate(SyntheticData.candidateId(c));
+            for (int i = 0; i < n; i++) {
+                box.addBallot(voterIds[i], SyntheticData.candidateId(i % CANDIDATES));
+                box.markVoted(i);
+            }
+            return box;
+        });
+
+        return new long[] {before, after};
+    }
+
+    private interface Builder {
+        Object build();
+    }
+
+    /**
+     * @return Heap retained by the object graph the builder returns.
+     */
+    private static long measure(Builder builder) {
+        long base = usedAfterGc();
+        Object retained = builder.build();
+        long used = usedAfterGc() - base;
+        Reference.reachabilityFence(retained); // keep it reachable until measured
+        return used;
+    }
+
+    private static long usedAfterGc() {
+        for (int i = 0; i < 3; i++) System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static int[] parse(String[] args) {
+        int[] sizes = new int[args.length];
+        for (int i = 0; i < args.length; i++) sizes[i] = Integer.parseInt(args[i]);
+        return sizes;
+    }
+}
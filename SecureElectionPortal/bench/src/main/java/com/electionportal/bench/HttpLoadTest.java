@@ -0,0 +1,130 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.ElectionState;
+import com.electionportal.services.AuthService;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import com.electionportal.web.ElectionHttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local load test for the HTTP API. Every voter logs in and casts one ballot
+ * over HTTP, with a fixed number of clients in flight at once. The run is
+ * repeated at several concurrency levels against a fresh election each time,
+ * and the final tally is checked to contain exactly one ballot per voter.
+ *
+ * Usage: HttpLoadTest [voters] [candidates]   (default 5,000 / 5)
+ */
+public class HttpLoadTest {
+
+    private static final int[] CONCURRENCY = {1, 16, 64};
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final Pattern TOKEN = Pattern.compile("\"token\":\"([^\"]+)\"");
+
+    public static void main(String[] args) throws Exception {
+        int voters = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int candidates = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        run("warm-up", Math.min(voters, 1_000), candidates, 16);
+        boolean ok = true;
+        for (int concurrency : CONCURRENCY) {
+            ok &= run(concurrency + " clients", voters, candidates, concurrency);
+        }
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok) System.exit(1);
+    }
+
+    private static boolean run(String label, int voterCount, int candidateCount, int concurrency) throws Exception {
+        Path dir = SyntheticData.create(voterCount, candidateCount, ElectionState.VOTING);
+        PrintStream out = System.out;
+        ElectionManager manager = new ElectionManager(new DataManager(dir));
+        AuthService auth = new AuthService(manager.getUserIndex(), manager.getMetrics());
+        try (ElectionHttpServer server = new ElectionHttpServer(manager, auth, 0);
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            server.start();
+            String base = "http://localhost:" + server.getPort();
+            HttpClient http = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clients)
+                    .build();
+
+            Semaphore inFlight = new Semaphore(concurrency);
+            AtomicInteger accepted = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            // Rejected-ballot messages from castVote would swamp the report
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            long start = System.nanoTime();
+            try (ExecutorService voters = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < voterCount; i++) {
+                    String username = SyntheticData.username(i);
+                    String candidateId = SyntheticData.candidateId(i % candidateCount);
+                    inFlight.acquire();
+                    voters.submit(() -> {
+                        try {
+                            String token = login(http, base, username, SyntheticData.PASSWORD);
+                            int status = post(http, base + "/api/vote", token, "candidateId=" + candidateId).statusCode();
+                            (status == 200 ? accepted : failed).incrementAndGet();
+                        } catch (Exception e) {
+                            System.err.println(username + ": " + e);
+                            failed.incrementAndGet();
+                        } finally {
+                            inFlight.release();
+                        }
+                        return null;
+                    });
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            System.setOut(out);
+
+            String adminToken = login(http, base, "admin", SyntheticData.PASSWORD);
+            post(http, base + "/api/admin/state", adminToken, "state=CLOSED");
+            String tally = http.send(HttpRequest.newBuilder(URI.create(base + "/api/admin/tally")).timeout(REQUEST_TIMEOUT)
+                    .header("Authorization", "Bearer " + adminToken).GET().build(),
+                    HttpResponse.BodyHandlers.ofString()).body();
+            long tallied = 0;
+            Matcher count = Pattern.compile(":(\\d+)").matcher(tally);
+            while (count.find()) tallied += Long.parseLong(count.group(1));
+
+            boolean ok = accepted.get() == voterCount && failed.get() == 0 && tallied == voterCount;
+            int requests = voterCount * 2;
+            System.out.printf("%-12s %,d requests in %,d ms = %,.0f requests/s | accepted %,d, failed %,d, tallied %,d -> %s%n",
+                    label, requests, elapsed / 1_000_000, requests * 1e9 / elapsed,
+                    accepted.get(), failed.get(), tallied, ok ? "ok" : "MISMATCH");
+            return ok;
+        } finally {
+            System.setOut(out);
+            SyntheticData.deleteRecursively(dir);
+        }
+    }
+
+    private static String login(HttpClient http, String base, String username, String password) throws Exception {
+        String body = post(http, base + "/api/login", null, "username=" + username + "&password=" + password).body();
+        Matcher token = TOKEN.matcher(body);
+        if (!token.find()) throw new IOException("Login failed for " + username + ": " + body);
+        return token.group(1);
+    }
+
+    private static HttpResponse<String> post(HttpClient http, String url, String token, String form) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form));
+        if (token != null) request.header("Authorization", "Bearer " + token);
+        return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
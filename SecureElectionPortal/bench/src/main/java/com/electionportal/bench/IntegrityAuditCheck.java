@@ -0,0 +1,215 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.ElectionState;
+import com.electionportal.models.User;
+import com.electionportal.models.Voter;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import com.electionportal.services.IntegrityAudit;
+import com.electionportal.services.IntegrityAudit.Kind;
+import java.io.BufferedWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Integrity audit over a large data set with faults planted at random
+ * places: half the voters have voted, and a few of them of each kind are
+ * broken (a voter registered twice, a ballot missing, a flag not set, two
+ * ballots, a ballot for a candidate or from a voter that does not exist,
+ * lines that do not parse). Every fault must be reported, at the right
+ * line, and nothing else. Prints the audit time and the peak heap; run
+ * with a small -Xmx to see memory stay bounded. Then a live election is
+ * audited through ElectionManager.auditIntegrity and must come out clean.
+ *
+ * Usage: IntegrityAuditCheck [voters] [faults per kind]   (default 10,000,000, 25)
+ */
+public class IntegrityAuditCheck {
+
+    private static final int CANDIDATES = 5;
+
+    // What is planted at a voter
+    private static final byte NONE = 0;
+    private static final byte REGISTERED_TWICE = 1;
+    private static final byte NO_BALLOT = 2;
+    private static final byte NOT_MARKED = 3;
+    private static final byte TWO_BALLOTS = 4;
+    private static final byte UNKNOWN_CANDIDATE = 5;
+    private static final byte STRAY_BALLOT = 6; // Followed by a ballot from a voter who does not exist
+    private static final byte BROKEN_LINES = 7; // Followed by a bad users.csv line and a bad ballot line
+
+    private record Expected(Kind kind, String file, long line) {}
+
+    public static void main(String[] args) throws Exception {
+        int voters = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int faults = args.length > 1 ? Integer.parseInt(args[1]) : 25;
+
+        Path dir = SyntheticData.create(0, CANDIDATES, ElectionState.VOTING);
+        try {
+            long start = System.nanoTime();
+            Set<Expected> expected = plant(dir, voters, faults, new SplittableRandom(22));
+            System.out.printf("%,d voters, %,d bytes of users.csv, %,d faults planted, written in %,d ms%n",
+                    voters, Files.size(dir.resolve("users.csv")), expected.size(),
+                    (System.nanoTime() - start) / 1_000_000);
+
+            boolean ok = true;
+            for (int run = 1; run <= 2; run++) {
+                resetPeaks();
+                IntegrityAudit.Report report = IntegrityAudit.run(dir);
+                Set<Expected> found = new HashSet<>();
+                for (IntegrityAudit.Problem problem : report.problems()) {
+                    found.add(new Expected(problem.kind(), problem.file(), problem.line()));
+                }
+                Map<Kind, Long> counts = new EnumMap<>(Kind.class);
+                for (Expected e : expected) counts.merge(e.kind(), 1L, Long::sum);
+                boolean match = found.equals(expected) && report.counts().equals(counts)
+                        && report.ballots() == voters / 2 + (long) faults && report.warnings().isEmpty();
+                if (!match && run == 1) {
+                    Set<Expected> missed = new HashSet<>(expected);
+                    missed.removeAll(found);
+                    found.removeAll(expected);
+                    System.out.println("  missed: " + missed);
+                    System.out.println("  unexpected: " + found);
+                    System.out.println("  counts: " + report.counts() + " expected " + counts);
+                }
+                ok &= match;
+                System.out.printf("run %d: %,d ballots audited in %,d ms, peak heap %,d MB, %,d problem(s) -> %s%n",
+                        run, report.ballots(), report.elapsedMillis(), peakHeap() >> 20,
+                        report.problems().size(), match ? "ok" : "MISMATCH");
+            }
+
+            ok &= auditsLiveElection();
+            System.out.println(ok ? "PASS" : "FAIL");
+            if (!ok) System.exit(1);
+        } finally {
+            SyntheticData.deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Writes users.csv and votes.csv with faults at random voters.
+     * @return Every problem the audit should list
+     */
+    private static Set<Expected> plant(Path dir, int voters, int faults, SplittableRandom random) throws Exception {
+        byte[] planted = new byte[voters];
+        int voted = voters / 2;
+        for (byte kind = NO_BALLOT; kind <= BROKEN_LINES; kind++) {
+            for (int placed = 0; placed < faults; ) {
+                int i = random.nextInt(voted);
+                if (planted[i] == NONE) {
+                    planted[i] = kind;
+                    placed++;
+                }
+            }
+        }
+        for (int placed = 0; placed < faults; ) {
+            int i = voted + random.nextInt(voters - voted); // Registered twice, never voted
+            if (planted[i] == NONE) {
+                planted[i] = REGISTERED_TWICE;
+                placed++;
+            }
+        }
+
+        Set<Expected> expected = new HashSet<>();
+        String hash = User.simulateHash(SyntheticData.PASSWORD);
+        long userLine = 0;
+        long voteLine = 0;
+        int strangers = 0;
+        try (BufferedWriter users = Files.newBufferedWriter(dir.resolve("users.csv"));
+             BufferedWriter votes = Files.newBufferedWriter(dir.resolve("votes.csv"))) {
+            users.write("ADMIN,a-001,admin,Default Admin," + hash + "\n");
+            userLine++;
+            for (int i = 0; i < voters; i++) {
+                String id = SyntheticData.voterId(i);
+                byte fault = planted[i];
+                boolean marked = i < voted && fault != NOT_MARKED;
+                String user = "VOTER," + id + "," + SyntheticData.username(i) + ",Voter " + i + "," + hash + ","
+                        + marked + "\n";
+                users.write(user);
+                userLine++;
+                if (fault == REGISTERED_TWICE) {
+                    users.write(user);
+                    userLine++;
+                    expected.add(new Expected(Kind.DUPLICATE_VOTER, "users.csv", userLine - 1));
+                    expected.add(new Expected(Kind.DUPLICATE_VOTER, "users.csv", userLine));
+                }
+                if (fault == NO_BALLOT) {
+                    expected.add(new Expected(Kind.MARKED_WITHOUT_BALLOT, "users.csv", userLine));
+                }
+                if (fault == BROKEN_LINES) {
+                    users.write("VOTER,v-x" + i + "," + hash + "\n");
+                    userLine++;
+                    expected.add(new Expected(Kind.MALFORMED_LINE, "users.csv", userLine));
+                }
+                if (i >= voted || fault == NO_BALLOT) continue;
+
+                String candidate = fault == UNKNOWN_CANDIDATE ? "c-999" : SyntheticData.candidateId(i % CANDIDATES);
+                votes.write(id + "," + candidate + "\n");
+                voteLine++;
+                if (fault == NOT_MARKED) expected.add(new Expected(Kind.BALLOT_NOT_MARKED, "votes.csv", voteLine));
+                if (fault == UNKNOWN_CANDIDATE) expected.add(new Expected(Kind.UNKNOWN_CANDIDATE, "votes.csv", voteLine));
+                if (fault == TWO_BALLOTS) {
+                    votes.write(id + "," + SyntheticData.candidateId((i + 1) % CANDIDATES) + "\n");
+                    voteLine++;
+                    expected.add(new Expected(Kind.DUPLICATE_BALLOT, "votes.csv", voteLine - 1));
+                    expected.add(new Expected(Kind.DUPLICATE_BALLOT, "votes.csv", voteLine));
+                }
+                if (fault == STRAY_BALLOT) {
+                    votes.write(SyntheticData.voterId(voters + strangers++) + "," + SyntheticData.candidateId(0) + "\n");
+                    voteLine++;
+                    expected.add(new Expected(Kind.UNKNOWN_VOTER, "votes.csv", voteLine));
+                }
+                if (fault == BROKEN_LINES) {
+                    votes.write(id + "\n");
+                    voteLine++;
+                    expected.add(new Expected(Kind.MALFORMED_LINE, "votes.csv", voteLine));
+                }
+            }
+        }
+        return expected;
+    }
+
+    // The admin command: votes cast through the journal, then audited after a save
+    private static boolean auditsLiveElection() throws Exception {
+        Path dir = SyntheticData.create(20_000, CANDIDATES, ElectionState.VOTING, 0.25);
+        try {
+            ElectionManager manager = new ElectionManager(new DataManager(dir));
+            manager.setCheckpointInterval(2_000);
+            for (int i = 5_000; i < 12_000; i++) {
+                if (manager.getUserIndex().find(SyntheticData.username(i)) instanceof Voter voter) {
+                    manager.castVote(voter, SyntheticData.candidateId(i % CANDIDATES));
+                }
+            }
+            IntegrityAudit.Report report = manager.auditIntegrity();
+            manager.close();
+            boolean ok = report != null && report.isClean() && report.ballots() == 12_000 && report.voted() == 12_000;
+            System.out.printf("live election: %s -> %s%n", report == null ? "no report"
+                    : report.ballots() + " ballots, " + report.counts(), ok ? "ok" : "MISMATCH");
+            return ok;
+        } finally {
+            SyntheticData.deleteRecursively(dir);
+        }
+    }
+
+    private static void resetPeaks() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+}
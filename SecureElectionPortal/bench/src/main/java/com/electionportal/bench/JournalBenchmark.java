@@ -0,0 +1,85 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.*;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import java.io.IOException;
+import java.nio.file.*;
+
+/**
+ * Compares the per-vote persistence cost of the vote journal against
+ * the old "rewrite every file" save, at growing ballot counts.
+ *
+ * Usage: JournalBenchmark [maxBallots]   (default 10,000,000)
+ */
+public class JournalBenchmark {
+
+    // Full rewrites are O(N) each, so they are only measured up to this size
+    private static final int MAX_REWRITE_SIZE = 1_000_000;
+    private static final int SAMPLE = 10_000;
+
+    public static void main(String[] args) throws IOException {
+        int maxBallots = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+
+        measureJournal(SAMPLE * 5); // JIT warm-up
+        System.out.println("ballots      journal ns/vote   rewrite ns/vote");
+        for (int n = 1_000; n <= maxBallots; n *= 10) {
+            double journal = measureJournal(n);
+            String rewrite = n <= MAX_REWRITE_SIZE ? String.format("%,.0f", measureRewrite(n)) : "-";
+            System.out.printf("%,-12d %,15.0f %17s%n", n, journal, rewrite);
+        }
+    }
+
+    /**
+     * Appends n ballots to a fresh journal and returns the average cost
+     * of the last SAMPLE appends, i.e. the cost once the journal is already large.
+     */
+    private static double measureJournal(int n) throws IOException {
+        Path dir = Files.createTempDirectory("journal-bench");
+        try {
+            DataManager dataManager = new DataManager(dir);
+            int warm = Math.max(0, n - SAMPLE);
+            for (int i = 0; i < warm; i++) {
+                dataManager.appendVote(vote(i));
+            }
+            long start = System.nanoTime();
+            for (int i = warm; i < n; i++) {
+                dataManager.appendVote(vote(i));
+            }
+            long elapsed = System.nanoTime() - start;
+            dataManager.clearJournal();
+            return (double) elapsed / (n - warm);
+        } finally {
+            SyntheticData.deleteRecursively(dir);
+        }
+    }
+
+    /**
+     * Returns the cost of the full save (saveAllData) one ballot used to
+     * trigger when n voters have already voted.
+     */
+    private static double measureRewrite(int n) throws IOException {
+        Path dir = SyntheticData.create(n, 5, ElectionState.VOTING, 1.0);
+        try {
+            ElectionManager manager = new ElectionManager(new DataManager(dir));
+            int rounds = 3;
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                manager.saveAllData();
+            }
+            long elapsed = System.nanoTime() - start;
+            manager.close();
+            return (double) elapsed / rounds;
+        } finally {
+            SyntheticData.deleteRecursively(dir);
+        }
+    }
+
+    private static Vote vote(int i) {
+        return new Vote(voterId(i), "c-00" + (i % 5 + 1));
+    }
+
+    private static String voterId(int i) {
+        return SyntheticData.voterId(i);
+    }
+}
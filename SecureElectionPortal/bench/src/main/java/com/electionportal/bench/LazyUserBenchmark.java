@@ -0,0 +1,112 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.*;
+import com.electionportal.services.AuthService;
+import com.electionportal.services.BallotBox;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import com.electionportal.services.UserIndex;
+import java.lang.ref.Reference;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Startup time and resident memory with users loaded lazily, against
+ * building every User up front (what startup used to do: read every user,
+ * index every object, bind every voter to the ballot box). Then lookup
+ * latency for a user read from users.csv and for one already cached, and
+ * the heap after far more distinct users have logged in than the cache
+ * holds. Logins must succeed for every user looked up, and fail for a
+ * wrong password.
+ *
+ * Usage: LazyUserBenchmark [voters]   (default 2,000,000)
+ */
+public class LazyUserBenchmark {
+
+    private static final int LOOKUPS = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        int voters = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        Path dir = SyntheticData.create(voters, 5, ElectionState.VOTING);
+        try {
+            long baseline = usedHeap();
+
+            long start = System.nanoTime();
+            UserIndex file = new UserIndex();
+            file.load(dir.resolve("users.csv"), (voterId, hasVoted, precinctId) -> {}, voter -> {});
+            List<User> users = file.getUsers(file.size());
+            file.close();
+            UserIndex eagerIndex = new UserIndex();
+            eagerIndex.rebuild(users);
+            BallotBox box = new BallotBox();
+            for (User user : users) {
+                if (user instanceof Voter v) box.addVoter(v);
+            }
+            long eagerMs = (System.nanoTime() - start) / 1_000_000;
+            long eagerHeap = usedHeap() - baseline;
+            // Keep them reachable until measured
+            Reference.reachabilityFence(users);
+            Reference.reachabilityFence(eagerIndex);
+            Reference.reachabilityFence(box);
+            users = null;
+            eagerIndex = null;
+            box = null;
+
+            baseline = usedHeap();
+            start = System.nanoTime();
+            ElectionManager manager = new ElectionManager(new DataManager(dir));
+            long lazyMs = (System.nanoTime() - start) / 1_000_000;
+            long lazyHeap = usedHeap() - baseline;
+            Reference.reachabilityFence(manager);
+
+            System.out.printf("%,d voters%n", voters);
+            System.out.printf("  every User up front : %,6d ms, %,5d MB retained%n", eagerMs, eagerHeap >> 20);
+            System.out.printf("  index only (lazy)   : %,6d ms, %,5d MB retained%n", lazyMs, lazyHeap >> 20);
+
+            UserIndex index = manager.getUserIndex();
+            SplittableRandom random = new SplittableRandom(42);
+            String[] names = new String[LOOKUPS];
+            for (int i = 0; i < LOOKUPS; i++) names[i] = SyntheticData.username(random.nextInt(voters));
+            long cold = System.nanoTime();
+            for (String name : names) {
+                if (index.find(name) == null) throw new IllegalStateException("missing " + name);
+            }
+            cold = System.nanoTime() - cold;
+            long warm = System.nanoTime();
+            for (String name : names) index.find(name);
+            warm = System.nanoTime() - warm;
+            System.out.printf("  find, read from file: %,8.2f us   cached: %,6.2f us%n",
+                    cold / 1e3 / LOOKUPS, warm / 1e3 / LOOKUPS);
+
+            // Many more distinct users than the cache holds
+            int touched = Math.min(voters, 3 * UserIndex.DEFAULT_CACHE_SIZE);
+            for (int i = 0; i < touched; i++) index.find(SyntheticData.username(i));
+            long afterTouch = usedHeap() - baseline;
+            System.out.printf("  after %,d distinct users looked up: %,d MB retained%n", touched, afterTouch >> 20);
+
+            AuthService auth = new AuthService(index);
+            boolean ok = true;
+            for (int i = 0; i < 1_000; i++) {
+                String name = SyntheticData.username(random.nextInt(voters));
+                ok &= auth.login(name, SyntheticData.PASSWORD) != null;
+                ok &= auth.login(name, "wrong") == null;
+            }
+            ok &= index.find("no-such-user") == null && manager.getRegisteredVoterCount() == voters;
+            System.out.println(ok ? "PASS" : "FAIL");
+            manager.close();
+            if (!ok) System.exit(1);
+        } finally {
+            SyntheticData.deleteRecursively(dir);
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,494 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.ElectionState;
+import com.electionportal.models.User;
+import com.electionportal.models.Voter;
+import com.electionportal.services.AuthService;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import com.electionportal.services.IntegrityAudit;
+import com.electionportal.services.LatencyHistogram;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end load simulation of one election day against the real
+ * ElectionManager / AuthService / DataManager stack on local disk:
+ *   setup         the candidate slate and precincts, through ElectionManager
+ *   registration  a burst of registerVoter calls, Poisson arrivals at a fixed rate
+ *   login storm   polls open and every voter who will vote logs in at once
+ *   voting        ballots arrive over a compressed polling day, following a
+ *                 morning / evening double peak; some are ranked, some are
+ *                 double submissions that must be rejected
+ *   close + tally close the polls, tally, runoff, verify, audit, restart
+ *
+ * Arrivals are open-loop: each operation has an intended start time, and its
+ * response time is measured from then, so time spent queued behind a slow
+ * operation is counted (a rate of 0 runs the phase closed-loop instead, as
+ * fast as the workers go). At most [concurrency] operations are in flight.
+ * Every random choice comes from the seed, so two runs with the same
+ * arguments offer exactly the same load. The report gives each phase's
+ * throughput, latency percentiles, heap and data size; it is printed and,
+ * if a file is given, written there too.
+ *
+ * Usage: LoadSimulator [voters] [concurrency] [registrations/s] [peak votes/s] [turnout %] [seed] [report file]
+ *        (default 50,000, 64, 25,000, 10,000, 70, 24, none)
+ */
+public class LoadSimulator {
+
+    private static final int CANDIDATES = 6;
+    private static final List<String> PRECINCTS = List.of("north", "south", "east", "west");
+    // Relative arrival rate over each hour the polls are open, 7:00 to 20:00
+    private static final double[] POLLING_DAY = {0.9, 1.0, 0.7, 0.5, 0.45, 0.6, 0.5, 0.45, 0.55, 0.8, 1.0, 0.85, 0.5};
+    private static final double RANKED_SHARE = 0.25;
+    private static final double DOUBLE_SUBMIT_SHARE = 0.01;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private record Config(int voters, int concurrency, double registrationRate, double voteRate, int turnoutPercent,
+                          long seed) {}
+
+    /**
+     * What was offered to a phase and what came back.
+     */
+    private record Phase(String name, int ops, long ok, long rejected, long errors, long elapsedNanos,
+                         double offeredRate, LatencyHistogram response, LatencyHistogram service,
+                         long heapAfter, long heapPeak, long dataBytes, List<String> notes) {}
+
+    /**
+     * The voting phase, decided up front: operation i is a ballot from
+     * session voter[i], intended to start at arrival[i] nanoseconds.
+     */
+    private record VotingPlan(int[] voter, long[] arrival, List<List<String>> ranking, int doubles) {}
+
+    public static void main(String[] args) throws Exception {
+        Config config = new Config(
+                args.length > 0 ? Integer.parseInt(args[0]) : 50_000,
+                args.length > 1 ? Integer.parseInt(args[1]) : 64,
+                args.length > 2 ? Double.parseDouble(args[2]) : 25_000,
+                args.length > 3 ? Double.parseDouble(args[3]) : 10_000,
+                args.length > 4 ? Integer.parseInt(args[4]) : 70,
+                args.length > 5 ? Long.parseLong(args[5]) : 24);
+        Path reportFile = args.length > 6 ? Path.of(args[6]) : null;
+
+        List<Phase> phases = new ArrayList<>();
+        Map<String, Long> files = new TreeMap<>();
+        boolean ok = simulate(config, phases, files);
+
+        String report = report(config, phases, files, ok);
+        System.out.print(report);
+        if (reportFile != null) {
+            Files.writeString(reportFile, report);
+            System.out.println("Report written to " + reportFile);
+        }
+        if (!ok) System.exit(1);
+    }
+
+    private static boolean simulate(Config config, List<Phase> phases, Map<String, Long> files) throws Exception {
+        SplittableRandom random = new SplittableRandom(config.seed());
+        Path dir = SyntheticData.create(0, 0, ElectionState.REGISTRATION);
+        PrintStream out = System.out;
+        try {
+            // Rejected ballots and state changes are reported on stdout; keep the report readable
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            ElectionManager manager = new ElectionManager(new DataManager(dir));
+            AuthService auth = new AuthService(manager.getUserIndex(), manager.getMetrics());
+
+            Map<String, Step> setup = new LinkedHashMap<>();
+            setup.put("slate", () -> {
+                boolean added = true;
+                for (int c = 0; c < CANDIDATES; c++) {
+                    added &= manager.addCandidate(candidateName(c), "Party " + (c % 3), "Platform " + c);
+                }
+                return added;
+            });
+            setup.put("precincts", () -> manager.configurePrecincts(PRECINCTS));
+            phases.add(steps("setup", dir, setup));
+
+            int voters = config.voters();
+            phases.add(drive("registration", dir, voters, config.concurrency(), config.registrationRate(),
+                    poisson(voters, config.registrationRate(), random),
+                    i -> manager.registerVoter(SyntheticData.username(i), "Voter " + i, SyntheticData.PASSWORD)));
+
+            // Who turns out, in a seeded order; everyone who will vote logs in when the polls open
+            int turnout = (int) Math.round(voters * config.turnoutPercent() / 100.0);
+            int[] turningOut = shuffledPrefix(voters, turnout, random);
+            Voter[] sessions = new Voter[turnout];
+            phases.add(steps("open polls", dir, Map.of("state VOTING", () -> manager.changeState(ElectionState.VOTING))));
+            phases.add(drive("login storm", dir, turnout, config.concurrency(), 0, null, i -> {
+                User user = auth.login(SyntheticData.username(turningOut[i]), SyntheticData.PASSWORD);
+                sessions[i] = user instanceof Voter voter ? voter : null;
+                return sessions[i] != null;
+            }));
+
+            VotingPlan plan = votingPlan(turnout, config.voteRate(), random);
+            Phase voting = drive("voting", dir, plan.voter().length, config.concurrency(), config.voteRate(),
+                    config.voteRate() > 0 ? plan.arrival() : null,
+                    i -> sessions[plan.voter()[i]] != null && manager.castVote(sessions[plan.voter()[i]], plan.ranking().get(i)));
+            phases.add(voting);
+
+            Map<String, Integer> expected = expectedTally(plan);
+            Map<String, Step> closing = new LinkedHashMap<>();
+            closing.put("close polls", () -> manager.changeState(ElectionState.CLOSED));
+            closing.put("tally", () -> expected.equals(manager.tallyVotes()));
+            closing.put("runoff", () -> manager.tallyRunoff() != null);
+            closing.put("verify", () -> manager.verifyTally() && manager.verifyVoteLog());
+            closing.put("audit", () -> {
+                IntegrityAudit.Report audit = manager.auditIntegrity();
+                return audit != null && audit.isClean() && audit.ballots() == turnout;
+            });
+            closing.put("shutdown", () -> {
+                manager.close();
+                return true;
+            });
+            closing.put("restart", () -> {
+                ElectionManager reopened = new ElectionManager(new DataManager(dir));
+                boolean same = reopened.getBallotsCast() == turnout && expected.equals(reopened.tallyVotes());
+                reopened.close();
+                return same;
+            });
+            phases.add(steps("close + tally", dir, closing));
+
+            fileSizes(dir, files);
+            // Only the double submissions may be turned away
+            boolean ok = true;
+            for (Phase phase : phases) {
+                ok &= phase.errors() == 0 && phase.rejected() == (phase == voting ? plan.doubles() : 0);
+            }
+            return ok;
+        } finally {
+            System.setOut(out);
+            SyntheticData.deleteRecursively(dir);
+        }
+    }
+
+    // --- Load generation ---
+
+    /**
+     * Runs ops operations, op(0) .. op(ops - 1), with at most concurrency in flight.
+     * @param arrivals Intended start of each operation, in nanoseconds from the
+     *                 phase start and in order, or null to start each as soon as
+     *                 a worker is free
+     */
+    private static Phase drive(String name, Path dir, int ops, int concurrency, double offeredRate, long[] arrivals,
+                               IntPredicate op) throws Exception {
+        LatencyHistogram response = new LatencyHistogram();
+        LatencyHistogram service = new LatencyHistogram();
+        LongAdder ok = new LongAdder();
+        LongAdder rejected = new LongAdder();
+        LongAdder errors = new LongAdder();
+        Semaphore inFlight = new Semaphore(concurrency);
+
+        resetPeaks();
+        long start = System.nanoTime();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < ops; i++) {
+                long intended;
+                if (arrivals == null) {
+                    inFlight.acquire();
+                    intended = System.nanoTime();
+                } else {
+                    intended = start + arrivals[i];
+                    parkUntil(intended);
+                    inFlight.acquire(); // When this blocks, the wait shows in the response time
+                }
+                int index = i;
+                workers.submit(() -> {
+                    long begin = System.nanoTime();
+                    try {
+                        (op.test(index) ? ok : rejected).increment();
+                    } catch (RuntimeException e) {
+                        System.err.println(name + " #" + index + ": " + e);
+                        errors.increment();
+                    } finally {
+                        long end = System.nanoTime();
+                        service.record(end - begin);
+                        response.record(end - intended);
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long peak = peakHeap();
+        return new Phase(name, ops, ok.sum(), rejected.sum(), errors.sum(), elapsed, offeredRate, response, service,
+                usedHeap(), peak, dataBytes(dir), List.of());
+    }
+
+    private interface Step {
+        boolean run() throws Exception;
+    }
+
+    /**
+     * Runs single administrative steps one after another, timing each.
+     */
+    private static Phase steps(String name, Path dir, Map<String, Step> steps) throws Exception {
+        LatencyHistogram latency = new LatencyHistogram();
+        List<String> notes = new ArrayList<>();
+        long ok = 0;
+        long errors = 0;
+        resetPeaks();
+        long start = System.nanoTime();
+        for (Map.Entry<String, Step> step : steps.entrySet()) {
+            long begin = System.nanoTime();
+            boolean passed;
+            try {
+                passed = step.getValue().run();
+            } catch (Exception e) {
+                System.err.println(name + " / " + step.getKey() + ": " + e);
+                passed = false;
+                errors++;
+            }
+            long took = System.nanoTime() - begin;
+            latency.record(took);
+            if (passed) ok++;
+            notes.add(String.format("%s %s ms%s", step.getKey(), millis(took), passed ? "" : " (FAILED)"));
+        }
+        long elapsed = System.nanoTime() - start;
+        long peak = peakHeap();
+        return new Phase(name, steps.size(), ok, steps.size() - ok - errors, errors, elapsed, 0, latency, latency,
+                usedHeap(), peak, dataBytes(dir), notes);
+    }
+
+    private static void parkUntil(long deadline) {
+        for (long wait; (wait = deadline - System.nanoTime()) > 0; ) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    /**
+     * Poisson arrivals at a fixed rate: exponential gaps between operations.
+     * @return Nanosecond offsets, or null for a rate of 0 (closed loop)
+     */
+    private static long[] poisson(int ops, double perSecond, SplittableRandom random) {
+        if (perSecond <= 0) return null;
+        long[] arrivals = new long[ops];
+        double at = 0;
+        for (int i = 0; i < ops; i++) {
+            at += -Math.log(1 - random.nextDouble()) / perSecond;
+            arrivals[i] = (long) (at * 1e9);
+        }
+        return arrivals;
+    }
+
+    /**
+     * One ballot per session, at a time drawn from POLLING_DAY with the busiest
+     * hour offered at peakRate, plus a few double submissions (the same ballot
+     * again shortly after). A quarter of the ballots rank two or three candidates;
+     * first preferences lean towards the first candidates on the slate.
+     */
+    private static VotingPlan votingPlan(int sessions, double peakRate, SplittableRandom random) {
+        double total = Arrays.stream(POLLING_DAY).sum();
+        double busiest = Arrays.stream(POLLING_DAY).max().orElse(1);
+        // The day is compressed so that its busiest hour runs at peakRate
+        double hourSeconds = peakRate > 0 ? sessions * busiest / total / peakRate : 0;
+
+        int doubles = (int) Math.round(sessions * DOUBLE_SUBMIT_SHARE);
+        long[][] ops = new long[sessions + doubles][]; // {arrival, session}
+        List<List<String>> rankings = new ArrayList<>(sessions);
+        for (int s = 0; s < sessions; s++) {
+            ops[s] = new long[] {hourAt(total, hourSeconds, random), s};
+            rankings.add(ranking(random));
+        }
+        for (int d = 0; d < doubles; d++) {
+            // Up to six (compressed) minutes after the first submission
+            int s = random.nextInt(sessions);
+            ops[sessions + d] = new long[] {ops[s][0] + (long) (random.nextDouble() * hourSeconds * 1e8), s};
+        }
+        Arrays.sort(ops, (a, b) -> Long.compare(a[0], b[0]));
+
+        int[] voter = new int[ops.length];
+        long[] arrival = new long[ops.length];
+        List<List<String>> ranking = new ArrayList<>(ops.length);
+        for (int i = 0; i < ops.length; i++) {
+            arrival[i] = ops[i][0];
+            voter[i] = (int) ops[i][1];
+            ranking.add(rankings.get(voter[i]));
+        }
+        return new VotingPlan(voter, arrival, ranking, doubles);
+    }
+
+    private static long hourAt(double total, double hourSeconds, SplittableRandom random) {
+        return (long) ((pollingHour(total, random) + random.nextDouble()) * hourSeconds * 1e9);
+    }
+
+    private static int pollingHour(double total, SplittableRandom random) {
+        double pick = random.nextDouble() * total;
+        for (int hour = 0; hour < POLLING_DAY.length - 1; hour++) {
+            pick -= POLLING_DAY[hour];
+            if (pick < 0) return hour;
+        }
+        return POLLING_DAY.length - 1;
+    }
+
+    private static List<String> ranking(SplittableRandom random) {
+        int length = random.nextDouble() < RANKED_SHARE ? 2 + random.nextInt(2) : 1;
+        List<String> ranking = new ArrayList<>(length);
+        while (ranking.size() < length) {
+            // Candidate c is chosen with weight 1 / (c + 1)
+            String id = SyntheticData.candidateId(popular(random));
+            if (!ranking.contains(id)) ranking.add(id);
+        }
+        return List.copyOf(ranking);
+    }
+
+    private static int popular(SplittableRandom random) {
+        double total = 0;
+        for (int c = 0; c < CANDIDATES; c++) total += 1.0 / (c + 1);
+        double pick = random.nextDouble() * total;
+        for (int c = 0; c < CANDIDATES - 1; c++) {
+            pick -= 1.0 / (c + 1);
+            if (pick < 0) return c;
+        }
+        return CANDIDATES - 1;
+    }
+
+    // The first count of positions in a seeded shuffle of 0 .. n - 1
+    private static int[] shuffledPrefix(int n, int count, SplittableRandom random) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(n - i);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return Arrays.copyOf(order, count);
+    }
+
+    // First preferences of one ballot per session; a double submission repeats its ballot
+    private static Map<String, Integer> expectedTally(VotingPlan plan) {
+        Map<String, Integer> tally = new LinkedHashMap<>();
+        for (int c = 0; c < CANDIDATES; c++) tally.put(candidateName(c), 0);
+        boolean[] counted = new boolean[plan.voter().length];
+        for (int i = 0; i < plan.voter().length; i++) {
+            int session = plan.voter()[i];
+            if (counted[session]) continue;
+            counted[session] = true;
+            int candidate = Integer.parseInt(plan.ranking().get(i).get(0).substring(2)) - 1;
+            tally.merge(candidateName(candidate), 1, Integer::sum);
+        }
+        return tally;
+    }
+
+    private static String candidateName(int c) { return "Candidate " + c; }
+
+    // --- Measurements ---
+
+    private static long dataBytes(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile).mapToLong(LoadSimulator::size).sum();
+        }
+    }
+
+    // Bytes per file name, summed over the precinct directories
+    private static void fileSizes(Path dir, Map<String, Long> files) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.filter(Files::isRegularFile).forEach(p -> files.merge(p.getFileName().toString(), size(p), Long::sum));
+        }
+    }
+
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0; // Replaced by a save while walking
+        }
+    }
+
+    private static void resetPeaks() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    // Live heap after a full collection
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // --- Report ---
+
+    private static String report(Config config, List<Phase> phases, Map<String, Long> files, boolean ok) {
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        out.printf("Load simulation: %,d voters, %d candidates, %d precincts, turnout %d%%, concurrency %d, seed %d%n",
+                config.voters(), CANDIDATES, PRECINCTS.size(), config.turnoutPercent(), config.concurrency(),
+                config.seed());
+        out.printf("  offered: registrations %s, votes %s; Java %s, %d core(s), max heap %,d MB%n",
+                rate(config.registrationRate()), config.voteRate() > 0 ? rate(config.voteRate()) + " at peak" : rate(0),
+                Runtime.version(), Runtime.getRuntime().availableProcessors(), Runtime.getRuntime().maxMemory() >> 20);
+        out.println();
+        out.printf("%-14s %9s %9s %8s %9s %10s %10s | %9s %9s %9s %9s %9s | %9s %9s | %7s %7s | %8s%n",
+                "phase", "ops", "ok", "rejected", "time ms", "offered/s", "achieved/s",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "svc p50", "svc p99",
+                "heap MB", "peak MB", "data KB");
+        for (Phase phase : phases) {
+            LatencyHistogram response = phase.response();
+            String[] percentiles = new String[PERCENTILES.length];
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                percentiles[i] = millis(response.getPercentileNanos(PERCENTILES[i]));
+            }
+            out.printf("%-14s %,9d %,9d %,8d %,9d %10s %,10.0f | %9s %9s %9s %9s %9s | %9s %9s | %,7d %,7d | %,8d%n",
+                    phase.name(), phase.ops(), phase.ok(), phase.rejected() + phase.errors(),
+                    phase.elapsedNanos() / 1_000_000, phase.offeredRate() > 0 ? String.format("%,.0f", phase.offeredRate()) : "-",
+                    phase.ops() * 1e9 / phase.elapsedNanos(),
+                    percentiles[0], percentiles[1], percentiles[2], percentiles[3], millis(response.getMaxNanos()),
+                    millis(phase.service().getPercentileNanos(50)), millis(phase.service().getPercentileNanos(99)),
+                    phase.heapAfter() >> 20, phase.heapPeak() >> 20, phase.dataBytes() >> 10);
+            if (!phase.notes().isEmpty()) out.println("    " + String.join(", ", phase.notes()));
+        }
+        out.println();
+        out.println("Response times run from each operation's intended start; svc is the time inside the call.");
+        out.println("The voting phase is offered its rate in the busiest hour only; its average is lower.");
+        out.println("Data files at the end (bytes, summed over precincts):");
+        for (Map.Entry<String, Long> file : files.entrySet()) {
+            out.printf("  %-24s %,14d%n", file.getKey(), file.getValue());
+        }
+        out.println(ok ? "PASS" : "FAIL");
+        out.flush();
+        return text.toString();
+    }
+
+    private static String rate(double perSecond) {
+        return perSecond > 0 ? String.format("%,.0f/s", perSecond) : "unthrottled";
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.3f", nanos / 1e6);
+    }
+}
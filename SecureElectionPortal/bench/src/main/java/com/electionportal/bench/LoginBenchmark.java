@@ -0,0 +1,69 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.*;
+import com.electionportal.services.AuthService;
+import com.electionportal.services.UserIndex;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures AuthService.login latency against a large electorate,
+ * next to the linear username scan it replaced.
+ *
+ * Usage: LoginBenchmark [voters]   (default 1,000,000)
+ */
+public class LoginBenchmark {
+
+    private static final int LOGINS = 20_000;
+    // The linear scan is slow enough that a few hundred samples are plenty
+    private static final int SCAN_LOGINS = 200;
+
+    public static void main(String[] args) {
+        int voters = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        String hash = User.simulateHash("password");
+
+        List<User> users = new ArrayList<>(voters);
+        for (int i = 0; i < voters; i++) {
+            users.add(new Voter(String.format("v-%03d", i + 1), "user" + i, "Voter " + i, hash, false));
+        }
+        UserIndex index = new UserIndex();
+        index.rebuild(users);
+        AuthService auth = new AuthService(index);
+
+        Random random = new Random(42);
+        long[] indexed = new long[LOGINS];
+        for (int i = 0; i < LOGINS; i++) {
+            String username = "USER" + random.nextInt(voters);
+            long start = System.nanoTime();
+            if (auth.login(username, "password") == null) throw new IllegalStateException("login failed");
+            indexed[i] = System.nanoTime() - start;
+        }
+
+        long[] scanned = new long[SCAN_LOGINS];
+        for (int i = 0; i < SCAN_LOGINS; i++) {
+            String username = "USER" + random.nextInt(voters);
+            long start = System.nanoTime();
+            User user = users.stream()
+                    .filter(u -> u.getUsername().equalsIgnoreCase(username))
+                    .findFirst()
+                    .orElse(null);
+            if (user == null || !user.validatePassword("password")) throw new IllegalStateException("login failed");
+            scanned[i] = System.nanoTime() - start;
+        }
+
+        System.out.printf("Registered voters: %,d%n", voters);
+        report("index lookup", indexed);
+        report("linear scan", scanned);
+    }
+
+    static void report(String label, long[] samplesNanos) {
+        long[] sorted = samplesNanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("  %-14s p50 %,10d ns   p99 %,12d ns   max %,12d ns%n", label,
+                sorted[sorted.length / 2],
+                sorted[(int) (sorted.length * 0.99)],
+                sorted[sorted.length - 1]);
+    }
+}
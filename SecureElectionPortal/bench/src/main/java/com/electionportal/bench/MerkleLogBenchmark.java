@@ -0,0 +1,173 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.ElectionState;
+import com.electionportal.models.Voter;
+import com.electionportal.services.BallotBox;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import com.electionportal.services.MerkleLog;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Builds the Merkle tree over millions of ballots the way saves do (a
+ * batch of new ballots at a time), then times inclusion proofs, their
+ * verification, and a full parallel rehash. Every proof must verify and
+ * every tampered one must fail; the incremental root must equal the
+ * rehashed one at many sizes. Then an election is closed through
+ * ElectionManager: each voter's proof must check against the published
+ * root, before and after a restart, and a tampered merkle-roots.csv must
+ * be caught.
+ *
+ * Usage: MerkleLogBenchmark [ballots] [batch]   (default 4,000,000, 100,000)
+ */
+public class MerkleLogBenchmark {
+
+    private static final int CANDIDATES = 5;
+    private static final int PROOFS = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        int ballots = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        int batch = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+        BallotBox box = new BallotBox();
+        MerkleLog log = new MerkleLog();
+        long heapBefore = usedHeap();
+        long buildNanos = 0;
+        long slowestBatch = 0;
+        for (int cast = 0; cast < ballots; ) {
+            int end = Math.min(ballots, cast + batch);
+            for (; cast < end; cast++) {
+                String ranking = cast % 10 == 0
+                        ? SyntheticData.candidateId(cast % CANDIDATES) + ">" + SyntheticData.candidateId((cast + 1) % CANDIDATES)
+                        : SyntheticData.candidateId(cast % CANDIDATES);
+                box.addBallot(SyntheticData.voterId(cast), ranking);
+            }
+            long start = System.nanoTime();
+            log.catchUp(box.view());
+            long took = System.nanoTime() - start;
+            buildNanos += took;
+            slowestBatch = Math.max(slowestBatch, took);
+        }
+        BallotBox.View view = box.view();
+        long treeHeap = usedHeap() - heapBefore;
+        System.out.printf("%,d ballots, %,d per save%n", ballots, batch);
+        System.out.printf("  build (incremental)  : %,7d ms total, %,6.0f ns/ballot, slowest save %,d ms%n",
+                buildNanos / 1_000_000, (double) buildNanos / ballots, slowestBatch / 1_000_000);
+        System.out.printf("  ballots + tree heap  : %,7d MB%n", treeHeap >> 20);
+
+        long start = System.nanoTime();
+        String rehashed = MerkleLog.rootOf(view, ballots);
+        long rehashMs = (System.nanoTime() - start) / 1_000_000;
+        boolean ok = rehashed.equals(log.root(ballots, view));
+        System.out.printf("  full rehash (%d core(s)): %,5d ms -> %s%n",
+                Runtime.getRuntime().availableProcessors(), rehashMs, ok ? "matches" : "MISMATCH");
+
+        // The incremental root at smaller sizes, including edges of stored blocks
+        SplittableRandom random = new SplittableRandom(23);
+        List<Integer> sizes = new ArrayList<>(List.of(0, 1, 2, 3, 15, 16, 17, 31, 32, 33, 1 << 16, (1 << 16) + 5));
+        for (int i = 0; i < 8; i++) sizes.add(random.nextInt(ballots) + 1);
+        for (int n : sizes) {
+            if (n <= ballots) ok &= log.root(n, view).equals(MerkleLog.rootOf(view, n));
+        }
+
+        int longest = 0;
+        long proveNanos = 0;
+        long verifyNanos = 0;
+        for (int i = 0; i < PROOFS; i++) {
+            long n = i % 2 == 0 ? ballots : 1 + random.nextInt(ballots);
+            long index = random.nextLong(n);
+            long t0 = System.nanoTime();
+            MerkleLog.Proof proof = log.proof(index, n, view);
+            long t1 = System.nanoTime();
+            boolean valid = proof.verify();
+            verifyNanos += System.nanoTime() - t1;
+            proveNanos += t1 - t0;
+            longest = Math.max(longest, proof.path().size());
+            ok &= valid && proof.leaf().equals(MerkleLog.leafHash(view.voteAt((int) index).getVoterId(),
+                    view.voteAt((int) index).getRankingField()));
+            ok &= !tampered(proof, random).verify();
+        }
+        System.out.printf("  proof                : %,7.1f us to build, %,5.1f us to verify, at most %d hashes%n",
+                proveNanos / 1e3 / PROOFS, verifyNanos / 1e3 / PROOFS, longest);
+        ok &= longest <= 64 - Long.numberOfLeadingZeros(ballots - 1);
+
+        ok &= closesAndProves();
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok) System.exit(1);
+    }
+
+    // A copy with one thing wrong: a path hash, the leaf, or the position
+    private static MerkleLog.Proof tampered(MerkleLog.Proof proof, SplittableRandom random) {
+        List<String> path = new ArrayList<>(proof.path());
+        return switch (random.nextInt(3)) {
+            case 0 -> {
+                if (path.isEmpty()) yield new MerkleLog.Proof(proof.index(), proof.size(), flip(proof.leaf()), path, proof.root());
+                int at = random.nextInt(path.size());
+                path.set(at, flip(path.get(at)));
+                yield new MerkleLog.Proof(proof.index(), proof.size(), proof.leaf(), path, proof.root());
+            }
+            case 1 -> new MerkleLog.Proof(proof.index(), proof.size(), flip(proof.leaf()), path, proof.root());
+            default -> new MerkleLog.Proof(proof.index() ^ 1, proof.size(), proof.leaf(), path,
+                    proof.size() == 1 ? flip(proof.root()) : proof.root());
+        };
+    }
+
+    private static String flip(String hex) {
+        char c = hex.charAt(0);
+        return (c == '0' ? '1' : '0') + hex.substring(1);
+    }
+
+    // Close an election, prove every ballot against the published root, restart, tamper
+    private static boolean closesAndProves() throws Exception {
+        Path dir = SyntheticData.create(3_000, CANDIDATES, ElectionState.VOTING);
+        try {
+            ElectionManager manager = new ElectionManager(new DataManager(dir));
+            manager.setCheckpointInterval(500);
+            List<Voter> voters = new ArrayList<>();
+            for (int i = 0; i < 2_000; i++) {
+                Voter voter = (Voter) manager.getUserIndex().find(SyntheticData.username(i));
+                manager.castVote(voter, SyntheticData.candidateId(i % CANDIDATES));
+                voters.add(voter);
+            }
+            manager.changeState(ElectionState.CLOSED);
+            String published = manager.getPublishedRoots().get(0).root();
+            boolean ok = manager.getPublishedRoots().get(0).size() == 2_000;
+            for (Voter voter : voters) {
+                MerkleLog.Proof proof = manager.proveBallot(voter);
+                ok &= proof != null && proof.verify() && proof.root().equals(published);
+            }
+            ok &= manager.proveBallot((Voter) manager.getUserIndex().find(SyntheticData.username(2_500))) == null;
+            ok &= manager.verifyVoteLog();
+            manager.close();
+
+            manager = new ElectionManager(new DataManager(dir));
+            MerkleLog.Proof proof = manager.proveBallot((Voter) manager.getUserIndex().find(SyntheticData.username(7)));
+            ok &= proof != null && proof.verify() && proof.root().equals(published) && manager.verifyVoteLog();
+            manager.close();
+
+            Path roots = dir.resolve("merkle-roots.csv");
+            Files.writeString(roots, Files.readString(roots).replace(published, flip(published)));
+            manager = new ElectionManager(new DataManager(dir));
+            boolean caught = !manager.verifyVoteLog();
+            manager.close();
+            System.out.printf("  close, prove 2,000 ballots, restart, tamper with the roots: %s%n",
+                    ok && caught ? "ok" : "MISMATCH");
+            return ok && caught;
+        } finally {
+            SyntheticData.deleteRecursively(dir);
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
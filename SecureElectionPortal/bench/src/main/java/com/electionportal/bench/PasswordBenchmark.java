@@ -0,0 +1,76 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.*;
+import com.electionportal.services.AuthService;
+import com.electionportal.services.AuthService.Credentials;
+import com.electionportal.services.UserIndex;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Login throughput: the old per-call MessageDigest.getInstance + Base64 string
+ * compare, the per-thread digest with byte comparison, and batched logins
+ * verified on the worker pool.
+ *
+ * Usage: PasswordBenchmark [logins]   (default 500,000)
+ */
+public class PasswordBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int logins = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        int voters = 100_000;
+        String hash = User.simulateHash(SyntheticData.PASSWORD);
+
+        List<User> users = new ArrayList<>(voters);
+        for (int i = 0; i < voters; i++) {
+            users.add(new Voter(SyntheticData.voterId(i), SyntheticData.username(i), "Voter " + i, hash, false));
+        }
+        UserIndex index = new UserIndex();
+        index.rebuild(users);
+        AuthService auth = new AuthService(index);
+
+        List<Credentials> attempts = new ArrayList<>(logins);
+        for (int i = 0; i < logins; i++) {
+            attempts.add(new Credentials(SyntheticData.username(i % voters), SyntheticData.PASSWORD));
+        }
+
+        for (int round = 0; round < 2; round++) { // first round is warm-up
+            long start = System.nanoTime();
+            int ok = 0;
+            for (Credentials c : attempts) {
+                User user = index.find(c.username());
+                if (user != null && user.getHashedPasswordForSave().equals(legacyHash(c.password()))) ok++;
+            }
+            long legacy = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (Credentials c : attempts) {
+                if (auth.login(c.username(), c.password()) != null) ok++;
+            }
+            long reused = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (User user : auth.loginAll(attempts)) {
+                if (user != null) ok++;
+            }
+            long batched = System.nanoTime() - start;
+
+            if (round == 1) {
+                System.out.printf("%,d logins, %d cores (%,d succeeded)%n", logins,
+                        Runtime.getRuntime().availableProcessors(), ok);
+                System.out.printf("  getInstance + Base64 compare  %,12.0f logins/s%n", logins * 1e9 / legacy);
+                System.out.printf("  per-thread digest + bytes     %,12.0f logins/s%n", logins * 1e9 / reused);
+                System.out.printf("  batched on worker pool        %,12.0f logins/s%n", logins * 1e9 / batched);
+            }
+        }
+    }
+
+    /** The hashing User.simulateHash used before PasswordHasher. */
+    private static String legacyHash(String password) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        return Base64.getEncoder().encodeToString(digest.digest(password.getBytes(StandardCharsets.UTF_8)));
+    }
+}
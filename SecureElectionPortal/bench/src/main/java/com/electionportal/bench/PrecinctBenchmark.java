@@ -0,0 +1,94 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.*;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Durable (group-committed) concurrent voting into one precinct versus the
+ * same voters spread over several precincts, each with its own journal.
+ * Each run checks that the merged tally equals the sum of the per-precinct
+ * results, and that a reload from disk gives the same tally.
+ *
+ * Usage: PrecinctBenchmark [voters] [precincts] [candidates]   (default 50,000 / 4 / 5)
+ */
+public class PrecinctBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int voters = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int precincts = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int candidates = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        run("warm-up", Math.min(voters, 10_000), precincts, candidates);
+        boolean ok = run("1 precinct", voters, 1, candidates);
+        ok &= run(precincts + " precincts", voters, precincts, candidates);
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok) System.exit(1);
+    }
+
+    private static boolean run(String label, int voterCount, int precinctCount, int candidateCount) throws IOException {
+        Path dir = SyntheticData.create(voterCount, candidateCount, ElectionState.REGISTRATION);
+        try {
+            DataManager dataManager = new DataManager(dir);
+            dataManager.enableGroupCommit(DataManager.GROUP_COMMIT_BATCH_SIZE, DataManager.GROUP_COMMIT_WAIT_MICROS);
+            ElectionManager manager = new ElectionManager(dataManager);
+            if (precinctCount > 1) {
+                List<String> ids = new ArrayList<>();
+                for (int i = 0; i < precinctCount; i++) {
+                    ids.add("p" + (i + 1));
+                }
+                manager.configurePrecincts(ids);
+            }
+            manager.changeState(ElectionState.VOTING);
+
+            List<Voter> voters = new ArrayList<>(voterCount);
+            for (User user : manager.getUsers()) {
+                if (user instanceof Voter v) voters.add(v);
+            }
+
+            long start = System.nanoTime();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < voters.size(); i++) {
+                    Voter voter = voters.get(i);
+                    String candidateId = SyntheticData.candidateId(i % candidateCount);
+                    executor.submit(() -> manager.castVote(voter, candidateId));
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+
+            manager.changeState(ElectionState.CLOSED);
+            Map<String, Integer> merged = manager.tallyVotes();
+            Map<String, Integer> summed = new HashMap<>();
+            for (Map<String, Integer> precinct : manager.tallyByPrecinct().values()) {
+                precinct.forEach((name, votes) -> summed.merge(name, votes, Integer::sum));
+            }
+            int tallied = merged.values().stream().mapToInt(Integer::intValue).sum();
+            boolean verified = manager.verifyTally() && manager.verifyStoredTally();
+            manager.close();
+
+            DataManager reloadedStore = new DataManager(dir);
+            ElectionManager reloaded = new ElectionManager(reloadedStore);
+            boolean ok = tallied == voterCount
+                    && summed.equals(merged)
+                    && verified
+                    && reloaded.getPrecincts().size() == precinctCount
+                    && merged.equals(reloaded.tallyVotes());
+            reloaded.close();
+
+            System.out.printf("%-12s %,d durable votes in %,d ms = %,.0f votes/s | tallied %,d -> %s%n",
+                    label, voterCount, elapsed / 1_000_000, voterCount * 1e9 / elapsed,
+                    tallied, ok ? "ok" : "MISMATCH");
+            return ok;
+        } finally {
+            SyntheticData.deleteRecursively(dir);
+        }
+    }
+}
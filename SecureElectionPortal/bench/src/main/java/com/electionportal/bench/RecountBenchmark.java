@@ -0,0 +1,70 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.Candidate;
+import com.electionportal.models.ElectionState;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import com.electionportal.services.VoteRecount;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares a recount by loading the whole election (every ballot in
+ * memory) and calling tallyVotes with the streaming VoteRecount over
+ * votes.csv, and checks the two results are identical. Peak heap is
+ * reported for each, measured from a collected baseline.
+ *
+ * Usage: RecountBenchmark [ballots] [candidates]   (default 2,000,000 / 8)
+ */
+public class RecountBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int ballots = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int candidates = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+
+        Path dir = SyntheticData.create(ballots, candidates, ElectionState.CLOSED, 1.0);
+        try {
+            System.out.printf("votes.csv: %,d ballots, %,d MB%n", ballots, Files.size(dir.resolve("votes.csv")) >> 20);
+            List<Candidate> slate = new DataManager(dir).loadCandidates();
+            VoteRecount.results(slate, VoteRecount.countCsv(dir.resolve("votes.csv"))); // warm-up
+
+            resetPeakHeap();
+            long start = System.nanoTime();
+            Map<String, Integer> streamed = VoteRecount.results(slate, VoteRecount.countCsv(dir.resolve("votes.csv")));
+            report("streaming recount", System.nanoTime() - start);
+
+            resetPeakHeap();
+            start = System.nanoTime();
+            Map<String, Integer> loaded = new ElectionManager(new DataManager(dir)).tallyVotes();
+            report("load + tallyVotes", System.nanoTime() - start);
+
+            boolean ok = streamed.equals(loaded) && List.copyOf(streamed.keySet()).equals(List.copyOf(loaded.keySet()));
+            System.out.println("results identical: " + ok);
+            System.out.println(ok ? "PASS" : "FAIL");
+            if (!ok) System.exit(1);
+        } finally {
+            SyntheticData.deleteRecursively(dir);
+        }
+    }
+
+    private static void resetPeakHeap() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+    }
+
+    private static void report(String label, long nanos) {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+        }
+        System.out.printf("%-18s %,6d ms | peak heap %,5d MB%n", label, nanos / 1_000_000, peak >> 20);
+    }
+}
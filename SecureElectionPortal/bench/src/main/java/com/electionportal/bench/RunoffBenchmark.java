@@ -0,0 +1,151 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.Candidate;
+import com.electionportal.models.Vote;
+import com.electionportal.services.BallotBox;
+import com.electionportal.services.InstantRunoff;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Instant-runoff count over millions of ranked ballots. Ballots go into a
+ * BallotBox as they would when cast; the count groups identical rankings
+ * and runs InstantRunoff. The baseline keeps every ballot as its own
+ * preference list and rescans all of them each round. Both must agree on
+ * every round and on the winner.
+ *
+ * Usage: RunoffBenchmark [ballots] [candidates] [maxRanked]   (default 2,000,000 / 24 / 6)
+ */
+public class RunoffBenchmark {
+
+    public static void main(String[] args) {
+        int ballots = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int candidateCount = args.length > 1 ? Integer.parseInt(args[1]) : 24;
+        int maxRanked = args.length > 2 ? Integer.parseInt(args[2]) : 6;
+
+        List<Candidate> candidates = new ArrayList<>();
+        BallotBox box = new BallotBox();
+        for (int c = 0; c < candidateCount; c++) {
+            candidates.add(new Candidate(SyntheticData.candidateId(c), "Candidate " + c, "Party " + (c % 3), ""));
+            box.addCandidate(SyntheticData.candidateId(c));
+        }
+
+        // Preferences are skewed (weight 1/(rank+1)), so popular rankings repeat
+        // but a long tail of distinct ones remains
+        SplittableRandom random = new SplittableRandom(42);
+        double[] weights = new double[candidateCount];
+        for (int c = 0; c < candidateCount; c++) weights[c] = 1.0 / (c + 1);
+        int[] offsets = new int[ballots + 1];
+        int[] preferences = new int[ballots * maxRanked];
+        List<String> ids = new ArrayList<>();
+        for (int b = 0; b < ballots; b++) {
+            int length = 1 + random.nextInt(maxRanked);
+            boolean[] taken = new boolean[candidateCount];
+            ids.clear();
+            for (int k = 0; k < length; k++) {
+                int c = pick(random, weights, taken);
+                taken[c] = true;
+                preferences[offsets[b] + k] = c;
+                ids.add(SyntheticData.candidateId(c));
+            }
+            offsets[b + 1] = offsets[b] + length;
+            box.addBallot(SyntheticData.voterId(b), new Vote(SyntheticData.voterId(b), ids).getRankingField());
+        }
+
+        for (int warmUp = 0; warmUp < 3; warmUp++) {
+            count(candidates, box);
+            naive(candidates, offsets, preferences);
+        }
+
+        long start = System.nanoTime();
+        InstantRunoff.Result result = count(candidates, box);
+        long counted = System.nanoTime();
+        List<Map<String, Long>> baseline = naive(candidates, offsets, preferences);
+        long rescanned = System.nanoTime();
+
+        boolean ok = result.rounds().size() == baseline.size();
+        for (int r = 0; ok && r < baseline.size(); r++) {
+            ok = result.rounds().get(r).votes().equals(baseline.get(r));
+        }
+
+        System.out.printf("%,d ballots, %d candidates, %d rounds, winner %s%n",
+                ballots, candidateCount, result.rounds().size(), result.winner());
+        System.out.printf("grouped IRV : %,d ms%n", (counted - start) / 1_000_000);
+        System.out.printf("rescan IRV  : %,d ms%n", (rescanned - counted) / 1_000_000);
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok) System.exit(1);
+    }
+
+    private static InstantRunoff.Result count(List<Candidate> candidates, BallotBox box) {
+        InstantRunoff runoff = new InstantRunoff(candidates);
+        box.addRankingsTo(runoff);
+        return runoff.run();
+    }
+
+    private static int pick(SplittableRandom random, double[] weights, boolean[] taken) {
+        double total = 0;
+        for (int c = 0; c < weights.length; c++) if (!taken[c]) total += weights[c];
+        double target = random.nextDouble() * total;
+        int last = -1;
+        for (int c = 0; c < weights.length; c++) {
+            if (taken[c]) continue;
+            last = c;
+            target -= weights[c];
+            if (target < 0) return c;
+        }
+        return last;
+    }
+
+    /**
+     * Textbook IRV: every round walks every ballot to its first continuing preference.
+     * Uses the same elimination and tie-break rules as InstantRunoff.
+     */
+    private static List<Map<String, Long>> naive(List<Candidate> candidates, int[] offsets, int[] preferences) {
+        int n = candidates.size();
+        boolean[] continuing = new boolean[n];
+        Arrays.fill(continuing, true);
+        List<long[]> history = new ArrayList<>();
+        List<Map<String, Long>> rounds = new ArrayList<>();
+        for (int remaining = n; ; remaining--) {
+            long[] tally = new long[n];
+            for (int b = 0; b + 1 < offsets.length; b++) {
+                for (int i = offsets[b]; i < offsets[b + 1]; i++) {
+                    if (continuing[preferences[i]]) {
+                        tally[preferences[i]]++;
+                        break;
+                    }
+                }
+            }
+            history.add(tally);
+            Map<String, Long> votes = new LinkedHashMap<>();
+            long active = 0;
+            int leader = -1;
+            for (int c = 0; c < n; c++) {
+                if (!continuing[c]) continue;
+                votes.put(candidates.get(c).getName(), tally[c]);
+                active += tally[c];
+                if (leader < 0 || tally[c] > tally[leader]) leader = c;
+            }
+            rounds.add(votes);
+            if (remaining == 1 || active == 0 || tally[leader] * 2 > active) return rounds;
+
+            int loser = -1;
+            for (int c = 0; c < n; c++) {
+                if (continuing[c] && (loser < 0 || !beats(c, loser, history))) loser = c;
+            }
+            continuing[loser] = false;
+        }
+    }
+
+    private static boolean beats(int a, int b, List<long[]> history) {
+        for (int r = history.size() - 1; r >= 0; r--) {
+            long[] round = history.get(r);
+            if (round[a] != round[b]) return round[a] > round[b];
+        }
+        return a < b;
+    }
+}
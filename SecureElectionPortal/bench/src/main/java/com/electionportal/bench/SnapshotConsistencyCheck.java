@@ -0,0 +1,128 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.*;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import com.electionportal.services.ElectionSnapshot;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks that snapshot readers never see a half-applied vote. Voters cast
+ * ballots concurrently across several precincts while reader threads take
+ * snapshots in a loop. Every snapshot must agree with itself:
+ *   - the candidate totals add up to the ballots cast;
+ *   - the per-precinct totals add up to the ballots cast;
+ *   - exactly that many voters show as having voted;
+ *   - the ballots cast never go down from one snapshot to the next.
+ * For contrast, a reader doing the same check against the live objects
+ * counts how often it catches a vote half-applied. Voting throughput is
+ * measured with and without the readers running.
+ *
+ * Usage: SnapshotConsistencyCheck [voters] [precincts] [readers]   (default 200,000 / 4 / 2)
+ */
+public class SnapshotConsistencyCheck {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int voters = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int precincts = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int readers = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+        run("warm-up", Math.min(voters, 20_000), precincts, readers);
+        boolean ok = run("no readers", voters, precincts, 0);
+        ok &= run(readers + " readers", voters, precincts, readers);
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok) System.exit(1);
+    }
+
+    private static boolean run(String label, int voterCount, int precinctCount, int readerCount)
+            throws IOException, InterruptedException {
+        Path dir = SyntheticData.create(voterCount, 5, ElectionState.REGISTRATION);
+        try {
+            ElectionManager manager = new ElectionManager(new DataManager(dir));
+            List<String> ids = new ArrayList<>();
+            for (int i = 0; i < precinctCount; i++) ids.add("p" + (i + 1));
+            manager.configurePrecincts(ids);
+            manager.changeState(ElectionState.VOTING);
+            List<Voter> voters = new ArrayList<>(voterCount);
+            for (User user : manager.getUsers()) {
+                if (user instanceof Voter v) voters.add(v);
+            }
+
+            AtomicBoolean voting = new AtomicBoolean(true);
+            AtomicLong snapshots = new AtomicLong();
+            AtomicLong violations = new AtomicLong();
+            AtomicLong liveChecks = new AtomicLong();
+            AtomicLong liveMismatches = new AtomicLong();
+            List<Thread> threads = new ArrayList<>();
+            for (int r = 0; r < readerCount; r++) {
+                threads.add(Thread.ofPlatform().name("snapshot-reader-" + r).start(() -> {
+                    long previous = 0;
+                    while (voting.get()) {
+                        ElectionSnapshot snapshot = manager.snapshot();
+                        long cast = snapshot.getBallotsCast();
+                        if (!consistent(snapshot) || cast < previous) violations.incrementAndGet();
+                        previous = cast;
+                        snapshots.incrementAndGet();
+                    }
+                }));
+            }
+            if (readerCount > 0) {
+                threads.add(Thread.ofPlatform().name("live-reader").start(() -> {
+                    while (voting.get()) {
+                        long cast = manager.getBallotsCast();
+                        long flagged = 0;
+                        for (Voter v : voters) {
+                            if (v.hasVoted()) flagged++;
+                        }
+                        if (flagged != cast) liveMismatches.incrementAndGet();
+                        liveChecks.incrementAndGet();
+                    }
+                }));
+            }
+
+            long start = System.nanoTime();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < voters.size(); i++) {
+                    Voter voter = voters.get(i);
+                    String candidateId = SyntheticData.candidateId(i % 5);
+                    executor.submit(() -> manager.castVote(voter, candidateId));
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            voting.set(false);
+            for (Thread thread : threads) thread.join();
+
+            ElectionSnapshot last = manager.snapshot();
+            boolean ok = violations.get() == 0 && consistent(last) && last.getBallotsCast() == voterCount;
+            System.out.printf("%-10s %,d votes in %,d ms = %,.0f votes/s | %,d snapshots, %d inconsistent"
+                            + " | live reads caught %,d of %,d half-applied -> %s%n",
+                    label, voterCount, elapsed / 1_000_000, voterCount * 1e9 / elapsed,
+                    snapshots.get(), violations.get(), liveMismatches.get(), liveChecks.get(),
+                    ok ? "ok" : "FAIL");
+            manager.close();
+            return ok;
+        } finally {
+            SyntheticData.deleteRecursively(dir);
+        }
+    }
+
+    private static boolean consistent(ElectionSnapshot snapshot) {
+        long cast = snapshot.getBallotsCast();
+        long byCandidate = 0;
+        for (long votes : snapshot.getResults().values()) byCandidate += votes;
+        long byPrecinct = 0;
+        for (String id : snapshot.getPrecinctIds()) byPrecinct += snapshot.getBallotsCast(id);
+        long flagged = 0;
+        for (User user : snapshot.getUsers()) {
+            if (user instanceof Voter v && snapshot.hasVoted(v)) flagged++;
+        }
+        return byCandidate == cast && byPrecinct == cast && flagged == cast;
+    }
+}
@@ -0,0 +1,81 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.*;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import com.electionportal.services.UserIndex;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Startup time: indexing users.csv (UserIndex.load, as startup does), and
+ * loading the files one after another against ElectionManager's concurrent
+ * loadAllData. Also checks the index holds every voter.
+ *
+ * Usage: StartupBenchmark [voters]   (default 2,000,000)
+ */
+public class StartupBenchmark {
+
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        int voters = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        Path dir = SyntheticData.create(voters, 10, ElectionState.VOTING);
+        try {
+            // Half the electorate has voted, so votes.csv is sizeable too
+            DataManager dataManager = new DataManager(dir);
+            List<Vote> votes = new ArrayList<>(voters / 2);
+            for (int i = 0; i < voters / 2; i++) {
+                votes.add(new Vote(SyntheticData.voterId(i), SyntheticData.candidateId(i % 10)));
+            }
+            dataManager.saveVotes(votes);
+            votes = null;
+
+            System.out.printf("%,d voters, users.csv %,d bytes, %d cores%n", voters,
+                    Files.size(dir.resolve("users.csv")), Runtime.getRuntime().availableProcessors());
+
+            long index = best(() -> loadIndex(dataManager).close());
+            System.out.printf("  users.csv index %,6d ms%n", index);
+
+            long oldStartup = best(() -> {
+                loadIndex(dataManager).close();
+                dataManager.loadCandidates();
+                dataManager.loadVotes();
+                dataManager.loadState();
+            });
+            long newStartup = best(() -> new ElectionManager(new DataManager(dir)));
+            System.out.printf("  full startup   sequential %,6d ms   concurrent %,6d ms%n", oldStartup, newStartup);
+
+            UserIndex users = loadIndex(dataManager);
+            boolean ok = users.getVoterCount() == voters && users.find(SyntheticData.username(voters - 1)) != null;
+            users.close();
+            System.out.println("  every voter indexed: " + ok);
+        } finally {
+            SyntheticData.deleteRecursively(dir);
+        }
+    }
+
+    private static UserIndex loadIndex(DataManager dataManager) {
+        UserIndex index = new UserIndex();
+        try {
+            index.load(dataManager.getUsersFile(), (voterId, hasVoted, precinctId) -> {}, voter -> {});
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return index;
+    }
+
+    private static long best(Runnable action) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            action.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best / 1_000_000;
+    }
+}
@@ -0,0 +1,79 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.*;
+import com.electionportal.services.DataManager;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes synthetic election data directories for the benchmarks.
+ * Writing the files directly avoids registerVoter's per-call save.
+ */
+public final class SyntheticData {
+
+    public static final String PASSWORD = "password";
+
+    private SyntheticData() {}
+
+    /**
+     * Creates a data directory with one admin, the given number of voters
+     * (none of whom have voted) and candidates, in the given state.
+     */
+    public static Path create(int voters, int candidates, ElectionState state) throws IOException {
+        return create(voters, candidates, state, 0.0);
+    }
+
+    /**
+     * Creates a data directory where the first votedFraction of the voters
+     * have already voted, with matching ballots in votes.csv. users.csv and
+     * votes.csv are streamed, so even 10M voters need no user objects in memory.
+     */
+    public static Path create(int voters, int candidates, ElectionState state, double votedFraction) throws IOException {
+        Path dir = Files.createTempDirectory("election-bench");
+        DataManager dataManager = new DataManager(dir);
+        String hash = User.simulateHash(PASSWORD);
+        int voted = (int) Math.round(voters * votedFraction);
+
+        // Same line formats DataManager.saveUsers / saveVotes write
+        try (BufferedWriter users = Files.newBufferedWriter(dir.resolve("users.csv"));
+             BufferedWriter votes = Files.newBufferedWriter(dir.resolve("votes.csv"))) {
+            users.write("ADMIN,a-001,admin,Default Admin," + hash);
+            users.newLine();
+            for (int i = 0; i < voters; i++) {
+                boolean hasVoted = i < voted;
+                users.write("VOTER," + voterId(i) + "," + username(i) + ",Voter " + i + "," + hash + "," + hasVoted);
+                users.newLine();
+                if (hasVoted) {
+                    votes.write(voterId(i) + "," + candidateId(i % candidates));
+                    votes.newLine();
+                }
+            }
+        }
+
+        List<Candidate> slate = new ArrayList<>(candidates);
+        for (int i = 0; i < candidates; i++) {
+            slate.add(new Candidate(candidateId(i), "Candidate " + i, "Party " + (i % 3), "Platform " + i));
+        }
+        dataManager.saveCandidates(slate);
+        dataManager.saveState(state);
+        return dir;
+    }
+
+    public static String voterId(int i) { return String.format("v-%03d", i + 1); }
+    public static String candidateId(int i) { return String.format("c-%03d", i + 1); }
+    public static String username(int i) { return "user" + i; }
+
+    public static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+}
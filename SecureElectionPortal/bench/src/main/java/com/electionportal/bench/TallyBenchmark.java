@@ -0,0 +1,61 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.*;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Casts ballots through ElectionManager, then compares the live tally
+ * against the full groupingBy recount it replaced and checks they agree.
+ *
+ * Usage: TallyBenchmark [voters] [candidates]   (default 1,000,000 / 10)
+ */
+public class TallyBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int voters = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int candidateCount = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        Path dir = SyntheticData.create(voters, candidateCount, ElectionState.VOTING);
+        try {
+            ElectionManager manager = new ElectionManager(new DataManager(dir));
+            List<User> users = manager.getUsers();
+            Random random = new Random(7);
+            for (User user : users) {
+                if (user instanceof Voter v) {
+                    manager.castVote(v, SyntheticData.candidateId(random.nextInt(candidateCount)));
+                }
+            }
+            System.out.printf("Live turnout: %,d of %,d%n", manager.getBallotsCast(), manager.getRegisteredVoterCount());
+
+            manager.changeState(ElectionState.CLOSED);
+            long start = System.nanoTime();
+            Map<String, Integer> live = manager.tallyVotes();
+            long liveNanos = System.nanoTime() - start;
+
+            // The previous implementation, reproduced from the loaded data
+            List<Vote> votes = new DataManager(dir).loadVotes();
+            List<Candidate> candidates = new DataManager(dir).loadCandidates();
+            start = System.nanoTime();
+            Map<String, Long> counts = votes.stream()
+                    .collect(Collectors.groupingBy(Vote::getCandidateId, Collectors.counting()));
+            Map<String, Integer> recount = candidates.stream()
+                    .collect(Collectors.toMap(Candidate::getName,
+                            c -> counts.getOrDefault(c.getCandidateId(), 0L).intValue()));
+            long recountNanos = System.nanoTime() - start;
+
+            System.out.printf("Live counters: %,12d ns%n", liveNanos);
+            System.out.printf("Full recount:  %,12d ns%n", recountNanos);
+            System.out.println("Results match recount: " + live.equals(recount));
+            System.out.println("verifyTally(): " + manager.verifyTally());
+        } finally {
+            SyntheticData.deleteRecursively(dir);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.electionportal.bench;
+
+import com.electionportal.models.Candidate;
+import com.electionportal.models.ElectionState;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import com.electionportal.services.LatencyHistogram;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Caller latency of the admin mutations with every change saved before
+ * returning (write-behind off) and with write-behind on. After the
+ * write-behind run, flush() is called and the files are reloaded to check
+ * that every registration and candidate reached disk.
+ *
+ * Usage: WriteBehindBenchmark [electorate] [operations]   (default 100,000 / 300)
+ */
+public class WriteBehindBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int electorate = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+
+        run("warm-up", Math.min(electorate, 10_000), Math.min(operations, 100), true);
+        run("warm-up", Math.min(electorate, 10_000), Math.min(operations, 100), false);
+        boolean ok = run("synchronous", electorate, operations, false);
+        ok &= run("write-behind", electorate, operations, true);
+        System.out.println(ok ? "PASS" : "FAIL");
+        if (!ok) System.exit(1);
+    }
+
+    private static boolean run(String label, int electorate, int operations, boolean writeBehind) throws IOException {
+        Path dir = SyntheticData.create(electorate, 3, ElectionState.REGISTRATION);
+        PrintStream out = System.out;
+        try {
+            ElectionManager manager = new ElectionManager(new DataManager(dir));
+            manager.setWriteBehind(writeBehind);
+            LatencyHistogram register = new LatencyHistogram();
+            LatencyHistogram candidate = new LatencyHistogram();
+
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            long start = System.nanoTime();
+            for (int i = 0; i < operations; i++) {
+                long call = System.nanoTime();
+                manager.registerVoter("new" + i, "New Voter " + i, SyntheticData.PASSWORD);
+                register.recordSince(call);
+                if (i % 10 == 0) {
+                    call = System.nanoTime();
+                    manager.addCandidate("Newcomer " + i, "Independent", "Platform " + i);
+                    candidate.recordSince(call);
+                }
+            }
+            long flushStart = System.nanoTime();
+            manager.flush();
+            long flushNanos = System.nanoTime() - flushStart;
+            long elapsed = System.nanoTime() - start;
+            manager.close();
+            System.setOut(out);
+
+            // Everything must be on disk once flush() has returned
+            ElectionManager reloaded = new ElectionManager(new DataManager(dir));
+            int voters = reloaded.getRegisteredVoterCount();
+            List<Candidate> candidates = reloaded.getCandidates();
+            reloaded.close();
+            int expectedCandidates = 3 + (operations + 9) / 10;
+            boolean ok = voters == electorate + operations && candidates.size() == expectedCandidates;
+
+            System.out.printf("%-12s registerVoter p50 %,8.1f us p99 %,8.1f us | addCandidate p50 %,8.1f us | "
+                            + "final flush %,d ms | total %,d ms | on disk %,d voters, %d candidates -> %s%n",
+                    label, register.getPercentileNanos(50) / 1e3, register.getPercentileNanos(99) / 1e3,
+                    candidate.getPercentileNanos(50) / 1e3, flushNanos / 1_000_000, elapsed / 1_000_000,
+                    voters, candidates.size(), ok ? "ok" : "MISMATCH");
+            return ok;
+        } finally {
+            System.setOut(out);
+            SyntheticData.deleteRecursively(dir);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.electionportal.bench.jmh;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. Takes the usual JMH command line, but
+ * writes machine-readable results to jmh-result.json unless -rf / -rff
+ * say otherwise.
+ *
+ *   java -jar bench/target/benchmarks.jar                      (everything)
+ *   java -jar bench/target/benchmarks.jar Login -p electorate=100000
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+                || options.shouldListProfilers() || options.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+        if (!options.getResultFormat().hasValue()) builder.resultFormat(ResultFormatType.JSON);
+        if (!options.getResult().hasValue()) builder.result("jmh-result.json");
+        new Runner(builder.build()).run();
+    }
+}
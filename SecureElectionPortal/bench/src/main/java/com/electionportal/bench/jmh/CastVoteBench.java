@@ -0,0 +1,62 @@
+package com.electionportal.bench.jmh;
+
+import com.electionportal.bench.SyntheticData;
+import com.electionportal.models.ElectionState;
+import com.electionportal.models.User;
+import com.electionportal.models.Voter;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * ElectionManager.castVote with the default journaled persistence.
+ * Voters are reused once everyone has voted; their flag is reset first,
+ * so every call is an accepted ballot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class CastVoteBench {
+
+    private static final int CANDIDATES = 10;
+
+    @Param({"1000", "100000", "10000000"})
+    public int electorate;
+
+    private Path dir;
+    private ElectionManager manager;
+    private Voter[] voters;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = SyntheticData.create(electorate, CANDIDATES, ElectionState.VOTING);
+        manager = new ElectionManager(new DataManager(dir));
+        List<Voter> list = new ArrayList<>(electorate);
+        for (User user : manager.getUsers()) {
+            if (user instanceof Voter v) list.add(v);
+        }
+        voters = list.toArray(new Voter[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public boolean castVote() {
+        Voter voter = voters[next];
+        next = (next + 1) % voters.length;
+        voter.setHasVoted(false);
+        return manager.castVote(voter, SyntheticData.candidateId(next % CANDIDATES));
+    }
+}
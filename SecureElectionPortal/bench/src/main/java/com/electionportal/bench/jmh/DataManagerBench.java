@@ -0,0 +1,58 @@
+package com.electionportal.bench.jmh;
+
+import com.electionportal.bench.SyntheticData;
+import com.electionportal.models.ElectionState;
+import com.electionportal.models.Vote;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.UserIndex;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Loading the users.csv index (UserIndex.load, as startup does) and
+ * DataManager.saveVotes over a full electorate.
+ * These are whole-file operations, so each call is timed on its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class DataManagerBench {
+
+    @Param({"1000", "100000", "10000000"})
+    public int electorate;
+
+    private Path dir;
+    private DataManager dataManager;
+    private List<Vote> votes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = SyntheticData.create(electorate, 10, ElectionState.CLOSED, 1.0);
+        dataManager = new DataManager(dir);
+        votes = dataManager.loadVotes();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public UserIndex loadUsers() throws IOException {
+        UserIndex index = new UserIndex();
+        index.load(dataManager.getUsersFile(), (voterId, hasVoted, precinctId) -> {}, voter -> {});
+        index.close();
+        return index;
+    }
+
+    @Benchmark
+    public void saveVotes() {
+        dataManager.saveVotes(votes);
+    }
+}
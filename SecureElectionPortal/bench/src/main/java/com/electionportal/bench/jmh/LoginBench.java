@@ -0,0 +1,50 @@
+package com.electionportal.bench.jmh;
+
+import com.electionportal.bench.SyntheticData;
+import com.electionportal.models.ElectionState;
+import com.electionportal.models.User;
+import com.electionportal.services.AuthService;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * AuthService.login for a random registered voter with the right password.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g") // a 10M electorate needs the heap
+public class LoginBench {
+
+    @Param({"1000", "100000", "10000000"})
+    public int electorate;
+
+    private Path dir;
+    private AuthService authService;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = SyntheticData.create(electorate, 10, ElectionState.VOTING);
+        ElectionManager manager = new ElectionManager(new DataManager(dir));
+        authService = new AuthService(manager.getUserIndex());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public User login() {
+        // Stride through the electorate so lookups do not all hit one cache line
+        next = (next + 7919) % electorate;
+        return authService.login(SyntheticData.username(next), SyntheticData.PASSWORD);
+    }
+}
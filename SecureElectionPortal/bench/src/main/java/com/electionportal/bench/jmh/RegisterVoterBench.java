@@ -0,0 +1,47 @@
+package com.electionportal.bench.jmh;
+
+import com.electionportal.bench.SyntheticData;
+import com.electionportal.models.ElectionState;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * ElectionManager.registerVoter on top of an existing electorate,
+ * including the save that follows each registration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class RegisterVoterBench {
+
+    @Param({"1000", "100000", "10000000"})
+    public int electorate;
+
+    private Path dir;
+    private ElectionManager manager;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = SyntheticData.create(electorate, 10, ElectionState.REGISTRATION);
+        manager = new ElectionManager(new DataManager(dir));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public boolean registerVoter() {
+        int n = next++;
+        return manager.registerVoter("bench" + n, "Bench Voter " + n, SyntheticData.PASSWORD);
+    }
+}
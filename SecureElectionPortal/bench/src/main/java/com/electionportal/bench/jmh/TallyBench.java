@@ -0,0 +1,54 @@
+package com.electionportal.bench.jmh;
+
+import com.electionportal.bench.SyntheticData;
+import com.electionportal.models.ElectionState;
+import com.electionportal.services.DataManager;
+import com.electionportal.services.ElectionManager;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * ElectionManager.tallyVotes on a CLOSED election where every voter voted,
+ * next to verifyTally, which recounts every ballot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class TallyBench {
+
+    @Param({"1000", "100000", "10000000"})
+    public int electorate;
+
+    @Param({"10"})
+    public int candidates;
+
+    private Path dir;
+    private ElectionManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = SyntheticData.create(electorate, candidates, ElectionState.CLOSED, 1.0);
+        manager = new ElectionManager(new DataManager(dir));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        SyntheticData.deleteRecursively(dir);
+    }
+
+    @Benchmark
+    public Map<String, Integer> tallyVotes() {
+        return manager.tallyVotes();
+    }
+
+    @Benchmark
+    public boolean fullRecount() {
+        return manager.verifyTally();
+    }
+}
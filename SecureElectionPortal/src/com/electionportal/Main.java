@@ -2,9 +2,17 @@ package com.electionportal;
 
 import com.electionportal.models.*;
 import com.electionportal.services.*;
+import com.electionportal.web.ElectionHttpServer;
 import java.io.Console;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
 
 /**
  * Main application entry point.
@@ -18,16 +26,38 @@ public class Main {
     private static User currentUser; // Holds the logged-in user
     private static Scanner scanner; // Global scanner to avoid resource issues
 
+    // Row errors printed after a voter import; the rest go to a file
+    private static final int IMPORT_ERRORS_SHOWN = 20;
+    // Rows per page in the user directory screens
+    private static final int USERS_PER_PAGE = 20;
+
     public static void main(String[] args) {
         
         System.out.println("Welcome to the Secure Election Portal (Java Edition)");
         System.out.println("---------------------------------------------------");
 
+        // "--elections [port]" serves every election under elections/ over HTTP; data/ is not used
+        if (args.length > 0 && "--elections".equals(args[0])) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+            runElectionHost(port);
+            return;
+        }
+
         // 1. Initialize the core services
-        electionManager = new ElectionManager();
-        authService = new AuthService(electionManager.getUsers());
+        DataManager dataManager = new DataManager();
+        // castVote returns only once the ballot is forced to disk
+        dataManager.enableGroupCommit(DataManager.GROUP_COMMIT_BATCH_SIZE, DataManager.GROUP_COMMIT_WAIT_MICROS);
+        electionManager = new ElectionManager(dataManager);
+        authService = new AuthService(electionManager.getUserIndex(), electionManager.getMetrics());
         scanner = new Scanner(System.in);
 
+        // "--server [port]" serves the HTTP API instead of the console UI
+        if (args.length > 0 && "--server".equals(args[0])) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+            runServer(port);
+            return;
+        }
+
         // 2. Main application loop
         try {
             while (true) {
@@ -50,6 +80,73 @@ public class Main {
         }
     }
 
+    /**
+     * Serves the HTTP API until the user presses Enter, then saves and exits.
+     */
+    private static void runServer(int port) {
+        try (ElectionHttpServer server = new ElectionHttpServer(electionManager, authService, port)) {
+            server.start();
+            System.out.println("HTTP API listening on port " + server.getPort() + ". Press Enter to stop.");
+            if (scanner.hasNextLine()) {
+                scanner.nextLine();
+            } else {
+                // No console attached: serve until the process is stopped (the journal keeps every ballot)
+                new CountDownLatch(1).await();
+            }
+        } catch (IOException e) {
+            System.err.println("Error starting HTTP server: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            electionManager.saveAllData();
+            scanner.close();
+        }
+    }
+
+    /**
+     * Serves many elections over HTTP (see ElectionRegistry), loading each on
+     * first use. Reads commands until an empty line, then saves and exits.
+     */
+    private static void runElectionHost(int port) {
+        scanner = new Scanner(System.in);
+        try (ElectionRegistry registry = new ElectionRegistry(Paths.get(ElectionRegistry.DEFAULT_ROOT));
+             ElectionHttpServer server = new ElectionHttpServer(registry, port)) {
+            server.start();
+            System.out.println("Serving " + registry.list().size() + " election(s) from "
+                    + registry.getRoot().toAbsolutePath() + " at http://localhost:" + server.getPort()
+                    + "/elections/<id>/api/...");
+            System.out.println("Commands: 'new <id>' creates an election, 'loaded' lists those in memory,"
+                    + " an empty line stops.");
+            if (!scanner.hasNextLine()) {
+                // No console attached: serve until the process is stopped
+                new CountDownLatch(1).await();
+            }
+            while (scanner.hasNextLine()) {
+                String command = scanner.nextLine().trim();
+                if (command.isEmpty()) break;
+                if (command.startsWith("new ")) {
+                    String id = command.substring(4).trim();
+                    if (registry.create(id)) System.out.println("Created election '" + id + "'.");
+                } else if (command.equals("loaded")) {
+                    for (ElectionRegistry.Status status : registry.loaded()) {
+                        System.out.printf("  %-20s %-12s ~%,d KB, idle %,d s, %d in use%n", status.id(), status.state(),
+                                status.footprint() >> 10, status.idleMillis() / 1000, status.leases());
+                    }
+                    System.out.printf("  %,d KB of %,d KB budget%n",
+                            registry.getLoadedBytes() >> 10, registry.getBudgetBytes() >> 10);
+                } else {
+                    System.out.println("Unknown command.");
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error starting HTTP server: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            scanner.close();
+        }
+    }
+
     /**
      * Handles the login UI flow.
      */
@@ -101,16 +198,34 @@ public class Main {
         }
 
         manager.displayCandidates();
-        System.out.print("Enter the ID of the candidate you wish to vote for: ");
-        String id = scanner.nextLine();
+        System.out.println("Enter the ID of the candidate you wish to vote for, or rank several");
+        System.out.print("in order of preference, separated by commas (e.g. c-002,c-001): ");
+        List<String> ranking = Arrays.stream(scanner.nextLine().split(",")).map(String::trim).toList();
 
-        if (manager.castVote(voter, id)) {
+        if (manager.castVote(voter, ranking)) {
             System.out.println("\n*** Your vote has been cast successfully! ***\n");
         } else {
             System.out.println("\nVote casting failed. Please check the ID and try again.\n");
         }
     }
 
+    public static void voterBallotReceipt(ElectionManager manager, Voter voter) {
+        MerkleLog.Proof proof = manager.proveBallot(voter);
+        if (proof == null) {
+            System.out.println("\nNo ballot recorded for you yet.\n");
+            return;
+        }
+        boolean published = manager.getCurrentState() == ElectionState.CLOSED && !manager.getPublishedRoots().isEmpty();
+        System.out.println("\n--- Ballot Receipt ---");
+        System.out.println("Ballot " + (proof.index() + 1) + " of " + proof.size() + " in your precinct");
+        System.out.println("Ballot hash: " + proof.leaf());
+        for (int i = 0; i < proof.path().size(); i++) {
+            System.out.println("  proof " + (i + 1) + ": " + proof.path().get(i));
+        }
+        System.out.println((published ? "Published root: " : "Current root:   ") + proof.root());
+        System.out.println("Proof checks out: " + (proof.verify() ? "yes" : "NO") + "\n");
+    }
+
     // --- Admin Methods ---
 
     public static void adminManageState(ElectionManager manager, Scanner scanner) {
@@ -132,6 +247,13 @@ public class Main {
 
         if (manager.changeState(newState)) {
             System.out.println("\n*** Election state changed to " + newState + " ***\n");
+            if (newState == ElectionState.CLOSED) {
+                System.out.println("Published Merkle roots (merkle-roots.csv):");
+                for (MerkleLog.PublishedRoot root : manager.getPublishedRoots()) {
+                    System.out.println("  " + root.precinctId() + ": " + root.size() + " ballot(s), " + root.root());
+                }
+                System.out.println();
+            }
         } else {
             System.out.println("\nState was not changed.\n");
         }
@@ -149,14 +271,114 @@ public class Main {
         String user = scanner.nextLine();
         System.out.print("Password: ");
         String pass = scanner.nextLine(); // Admin is setting password, fine to be visible
+        String precinct = null;
+        if (manager.isSharded()) {
+            System.out.print("Precinct (blank to assign automatically): ");
+            precinct = scanner.nextLine().trim();
+            if (precinct.isEmpty()) precinct = null;
+        }
 
-        if (manager.registerVoter(user, name, pass)) {
+        if (manager.registerVoter(user, name, pass, precinct)) {
             System.out.println("\n*** Voter '" + name + "' registered successfully. ***\n");
         } else {
             System.out.println("\nRegistration failed. Username may be taken.\n");
         }
     }
 
+    public static void adminImportVoters(ElectionManager manager, Scanner scanner) {
+        if (manager.getCurrentState() != ElectionState.REGISTRATION) {
+            System.out.println("\nCan only register voters during 'REGISTRATION' phase.\n");
+            return;
+        }
+        System.out.println("\n--- Import Voter Roll ---");
+        System.out.println("One voter per line: username,fullName,password");
+        System.out.print("Roll file path: ");
+        Path rollFile = Paths.get(scanner.nextLine().trim());
+
+        ImportReport report = manager.importVoters(rollFile);
+        if (!report.isSuccessful()) {
+            System.out.println("\nImport failed: " + report.getFailure() + "\n");
+            return;
+        }
+
+        List<ImportReport.RowError> errors = report.getErrors();
+        System.out.println("\n*** " + report.getImported() + " voter(s) registered, " + errors.size() + " row(s) rejected. ***");
+        for (int i = 0; i < Math.min(errors.size(), IMPORT_ERRORS_SHOWN); i++) {
+            System.out.println("  " + errors.get(i));
+        }
+        if (errors.size() > IMPORT_ERRORS_SHOWN) {
+            // Too many to read on screen; the full list goes next to the roll file
+            Path errorFile = Paths.get(rollFile + ".errors.txt");
+            try {
+                report.writeErrors(errorFile);
+                System.out.println("  ... full error report written to " + errorFile.toAbsolutePath());
+            } catch (IOException e) {
+                System.out.println("  ... " + (errors.size() - IMPORT_ERRORS_SHOWN) + " more (could not write report: " + e.getMessage() + ")");
+            }
+        }
+        System.out.println();
+    }
+
+    public static void adminBrowseUsers(ElectionManager manager, Scanner scanner) {
+        System.out.println("\n--- Registered Users (by username) ---");
+        pageUsers(manager, scanner, UserDirectory.Match.USERNAME, "");
+    }
+
+    public static void adminFindVoter(ElectionManager manager, Scanner scanner) {
+        System.out.println("\n--- Find Voter ---");
+        System.out.println("1. Username starts with");
+        System.out.println("2. Name starts with (any word)");
+        System.out.println("3. Username or name contains");
+        System.out.print("Search by: ");
+        UserDirectory.Match match = switch (scanner.nextLine().trim()) {
+            case "1" -> UserDirectory.Match.USERNAME;
+            case "2" -> UserDirectory.Match.NAME;
+            case "3" -> UserDirectory.Match.CONTAINS;
+            default -> null;
+        };
+        if (match == null) {
+            System.out.println("\nInvalid option.\n");
+            return;
+        }
+        System.out.print("Search text: ");
+        pageUsers(manager, scanner, match, scanner.nextLine());
+    }
+
+    private static void pageUsers(ElectionManager manager, Scanner scanner, UserDirectory.Match match, String query) {
+        // Cursors of the pages seen so far, so "previous" can go back
+        List<String> cursors = new ArrayList<>();
+        cursors.add(null);
+        while (true) {
+            int pageNumber = cursors.size();
+            UserDirectory.Page page = manager.findUsers(match, query, cursors.get(pageNumber - 1), USERS_PER_PAGE);
+            if (page.users().isEmpty() && pageNumber == 1) {
+                System.out.println("No matching users.\n");
+                return;
+            }
+            System.out.println("Page " + pageNumber + ":");
+            for (User user : page.users()) {
+                printUserRow(user);
+            }
+            System.out.print((page.hasMore() ? "[n]ext, " : "") + (pageNumber > 1 ? "[p]revious, " : "") + "[q]uit: ");
+            String choice = scanner.nextLine().trim().toLowerCase();
+            if (choice.equals("n") && page.hasMore()) {
+                cursors.add(page.next());
+            } else if (choice.equals("p") && pageNumber > 1) {
+                cursors.remove(pageNumber - 1);
+            } else if (choice.equals("q")) {
+                System.out.println();
+                return;
+            }
+        }
+    }
+
+    private static void printUserRow(User user) {
+        System.out.println("  ID: " + user.getUserId() + " | Type: " + user.getUserType() + " | Name: " + user.getFullName() + " | Username: " + user.getUsername());
+        if (user instanceof Voter v) {
+            System.out.println("     Has Voted: " + v.hasVoted() + (v.getPrecinctId() == null ? "" : " | Precinct: " + v.getPrecinctId()));
+        }
+    }
+
     public static void adminAddCandidate(ElectionManager manager, Scanner scanner) {
         if (manager.getCurrentState() != ElectionState.REGISTRATION) {
             System.out.println("\nCan only add candidates during 'REGISTRATION' phase.\n");
@@ -177,6 +399,85 @@ public class Main {
         }
     }
 
+    public static void adminLiveTurnout(ElectionManager manager, Scanner scanner) {
+        // One snapshot, so the totals and the per-precinct lines add up while voting continues
+        ElectionSnapshot snapshot = manager.snapshot();
+        long cast = snapshot.getBallotsCast();
+        int registered = snapshot.getRegisteredVoterCount();
+        double percent = registered == 0 ? 0 : 100.0 * cast / registered;
+
+        System.out.println("\n--- Live Turnout (" + snapshot.getState() + ") ---");
+        System.out.println("  Ballots cast: " + cast + " of " + registered + " registered voters");
+        System.out.printf("  Turnout: %.1f%%%n", percent);
+        if (manager.isSharded()) {
+            for (String precinctId : snapshot.getPrecinctIds()) {
+                System.out.println("  Precinct " + precinctId + ": " + snapshot.getBallotsCast(precinctId) + " ballot(s)");
+            }
+        }
+        System.out.println("------------------------------");
+
+        System.out.print("Export report to file (blank to skip): ");
+        String fileName = scanner.nextLine().trim();
+        if (fileName.isEmpty()) {
+            System.out.println();
+            return;
+        }
+        Path file = Paths.get(fileName);
+        try {
+            snapshot.writeTurnoutReport(file);
+            System.out.println("\n*** Turnout report written to " + file.toAbsolutePath() + " ***\n");
+        } catch (IOException e) {
+            System.out.println("\nCould not write report: " + e.getMessage() + "\n");
+        }
+    }
+
+    public static void adminConfigurePrecincts(ElectionManager manager, Scanner scanner) {
+        if (manager.getCurrentState() != ElectionState.REGISTRATION) {
+            System.out.println("\nCan only configure precincts during 'REGISTRATION' phase.\n");
+            return;
+        }
+        System.out.println("\n--- Configure Precincts ---");
+        System.out.print("Current: ");
+        for (Precinct precinct : manager.getPrecincts()) {
+            System.out.print(precinct.getId() + " ");
+        }
+        System.out.println();
+        System.out.print("Precinct IDs (comma-separated, blank to cancel): ");
+        String line = scanner.nextLine().trim();
+        if (line.isEmpty()) {
+            System.out.println("\nPrecincts were not changed.\n");
+            return;
+        }
+        List<String> ids = Arrays.stream(line.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+
+        if (manager.configurePrecincts(ids)) {
+            System.out.println("\n*** " + ids.size() + " precinct(s) configured; voters assigned. ***\n");
+        } else {
+            System.out.println("\nPrecincts were not changed.\n");
+        }
+    }
+
+    public static void adminShowMetrics(ElectionManager manager, Scanner scanner) {
+        Metrics metrics = manager.getMetrics();
+        System.out.println();
+        System.out.print(metrics.snapshotText());
+        System.out.println("------------------------------");
+
+        System.out.print("Export to file (.txt or .json, blank to skip): ");
+        String fileName = scanner.nextLine().trim();
+        if (fileName.isEmpty()) {
+            System.out.println();
+            return;
+        }
+        Path file = Paths.get(fileName);
+        try {
+            metrics.writeSnapshot(file);
+            System.out.println("\n*** Metrics written to " + file.toAbsolutePath() + " ***\n");
+        } catch (IOException e) {
+            System.out.println("\nCould not write metrics: " + e.getMessage() + "\n");
+        }
+    }
+
     public static void adminRunTally(ElectionManager manager) {
         System.out.println("\n--- Running Vote Tally ---");
         Map<String, Integer> results = manager.tallyVotes();
@@ -190,6 +491,46 @@ public class Main {
         for (Map.Entry<String, Integer> entry : results.entrySet()) {
             System.out.println("  " + entry.getKey() + ": " + entry.getValue() + " vote(s)");
         }
+        if (manager.hasRankedBallots()) {
+            printRunoff(manager.tallyRunoff());
+        }
+        if (manager.isSharded()) {
+            for (Map.Entry<String, Map<String, Integer>> precinct : manager.tallyByPrecinct().entrySet()) {
+                System.out.println("--- Precinct " + precinct.getKey() + " ---");
+                for (Map.Entry<String, Integer> entry : precinct.getValue().entrySet()) {
+                    System.out.println("  " + entry.getKey() + ": " + entry.getValue() + " vote(s)");
+                }
+            }
+        }
+        System.out.println("============================\n");
+    }
+
+    public static void adminIntegrityAudit(ElectionManager manager) {
+        System.out.println("\n--- Integrity Audit ---");
+        IntegrityAudit.Report report = manager.auditIntegrity();
+        if (report == null) {
+            System.out.println("Audit could not be run.\n");
+            return;
+        }
+        IntegrityAudit.print(report);
+        System.out.println("  Vote log Merkle roots: " + (manager.verifyVoteLog() ? "verified" : "MISMATCH"));
         System.out.println("============================\n");
     }
+
+    private static void printRunoff(InstantRunoff.Result result) {
+        System.out.println("--- Instant Runoff ---");
+        for (InstantRunoff.Round round : result.rounds()) {
+            System.out.println("Round " + round.number() + ":");
+            for (Map.Entry<String, Long> entry : round.votes().entrySet()) {
+                System.out.println("  " + entry.getKey() + ": " + entry.getValue() + " vote(s)");
+            }
+            if (round.exhausted() > 0) {
+                System.out.println("  (exhausted: " + round.exhausted() + ")");
+            }
+            if (round.eliminated() != null) {
+                System.out.println("  Eliminated: " + round.eliminated());
+            }
+        }
+        System.out.println("Runoff winner: " + (result.winner() == null ? "none" : result.winner()));
+    }
 }
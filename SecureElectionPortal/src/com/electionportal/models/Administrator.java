@@ -32,11 +32,17 @@ public class Administrator extends User {
         while (keepRunning) {
             System.out.println("1. Manage Election State");
             System.out.println("2. Register New Voter");
-            System.out.println("3. Add New Candidate");
-            System.out.println("4. View All Registered Users");
-            System.out.println("5. View All Candidates");
-            System.out.println("6. Run Vote Tally");
-            System.out.println("7. Logout");
+            System.out.println("3. Import Voter Roll (CSV)");
+            System.out.println("4. Add New Candidate");
+            System.out.println("5. View All Registered Users");
+            System.out.println("6. Find Voter");
+            System.out.println("7. View All Candidates");
+            System.out.println("8. Run Vote Tally");
+            System.out.println("9. View Live Turnout");
+            System.out.println("10. View Metrics");
+            System.out.println("11. Configure Precincts");
+            System.out.println("12. Integrity Audit");
+            System.out.println("13. Logout");
             System.out.print("Select an option: ");
 
             String choice = scanner.nextLine();
@@ -48,18 +54,36 @@ public class Administrator extends User {
                     Main.adminRegisterVoter(manager, scanner);
                     break;
                 case "3":
-                    Main.adminAddCandidate(manager, scanner);
+                    Main.adminImportVoters(manager, scanner);
                     break;
                 case "4":
-                    manager.displayUsers();
+                    Main.adminAddCandidate(manager, scanner);
                     break;
                 case "5":
-                    manager.displayCandidates();
+                    Main.adminBrowseUsers(manager, scanner);
                     break;
                 case "6":
-                    Main.adminRunTally(manager);
+                    Main.adminFindVoter(manager, scanner);
                     break;
                 case "7":
+                    manager.displayCandidates();
+                    break;
+                case "8":
+                    Main.adminRunTally(manager);
+                    break;
+                case "9":
+                    Main.adminLiveTurnout(manager, scanner);
+                    break;
+                case "10":
+                    Main.adminShowMetrics(manager, scanner);
+                    break;
+                case "11":
+                    Main.adminConfigurePrecincts(manager, scanner);
+                    break;
+                case "12":
+                    Main.adminIntegrityAudit(manager);
+                    break;
+                case "13":
                     keepRunning = false;
                     break;
                 default:
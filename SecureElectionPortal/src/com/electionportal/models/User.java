@@ -1,9 +1,7 @@
 package com.electionportal.models;
 
 import com.electionportal.services.ElectionManager;
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.util.Base64;
+import com.electionportal.services.PasswordHasher;
 import java.util.Scanner;
 
 /**
@@ -17,6 +15,8 @@ public abstract class User {
     private String username;
     private String fullName;
     private String hashedPassword;
+    // Raw bytes of hashedPassword, decoded on the first login and then reused
+    private volatile byte[] hashBytes;
 
     public User(String userId, String username, String fullName, String hashedPassword) {
         this.userId = userId;
@@ -51,10 +51,20 @@ public abstract class User {
     // --- Security Logic ---
 
     /**
-     * Simulates validating a password against a stored SHA-256 hash.
+     * Validates a password against the stored SHA-256 hash.
+     * Compares raw hash bytes in constant time, using a per-thread digest.
      */
     public boolean validatePassword(String password) {
-        return this.hashedPassword.equals(simulateHash(password));
+        byte[] expected = hashBytes;
+        if (expected == null) {
+            expected = PasswordHasher.decode(hashedPassword);
+            if (expected == null) {
+                // Not Base64 (e.g. written by the insecure fallback): compare the strings
+                return this.hashedPassword.equals(simulateHash(password));
+            }
+            hashBytes = expected;
+        }
+        return PasswordHasher.matches(password, expected);
     }
 
     /**
@@ -62,15 +72,13 @@ public abstract class User {
      * This is far more "impressive" and secure than using hashCode().
      */
     public static String simulateHash(String password) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(password.getBytes(StandardCharsets.UTF_8));
-            return Base64.getEncoder().encodeToString(hash);
-        } catch (java.security.NoSuchAlgorithmException e) {
+        String hash = PasswordHasher.hashToString(password);
+        if (hash == null) {
             // In a real app, this should be handled more gracefully
             // For the demo, we fall back to a simple (bad) hash.
             System.err.println("SHA-256 not available, using insecure hash!");
             return Integer.toString(password.hashCode());
         }
+        return hash;
     }
 }
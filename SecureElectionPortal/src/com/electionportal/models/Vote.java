@@ -1,20 +1,56 @@
 package com.electionportal.models;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
  * Represents a single vote, linking a voter to a candidate. (A POJO)
  * This object ensures anonymity; it doesn't store the voter's name.
+ * A ranked ballot lists candidates in order of preference; a plain vote
+ * is a ranking with one entry.
  */
 public class Vote {
 
+    // Separates preferences where a ranking is stored as one field
+    public static final String RANKING_SEPARATOR = ">";
+
     private String voterId;
-    private String candidateId;
+    private List<String> ranking;
 
     public Vote(String voterId, String candidateId) {
         this.voterId = voterId;
-        this.candidateId = candidateId;
+        this.ranking = List.of(candidateId);
+    }
+
+    /**
+     * @param ranking Candidate IDs, most preferred first
+     */
+    public Vote(String voterId, List<String> ranking) {
+        if (ranking.isEmpty()) throw new IllegalArgumentException("A ranking needs at least one candidate");
+        this.voterId = voterId;
+        this.ranking = List.copyOf(ranking);
+    }
+
+    /**
+     * Parses a ranking as stored in votes.csv and the journal, e.g. "c-002>c-001".
+     */
+    public static Vote fromRankingField(String voterId, String rankingField) {
+        if (!rankingField.contains(RANKING_SEPARATOR)) return new Vote(voterId, rankingField);
+        return new Vote(voterId, Arrays.asList(rankingField.split(RANKING_SEPARATOR)));
     }
 
     // --- Getters ---
     public String getVoterId() { return voterId; }
-    public String getCandidateId() { return candidateId; }
+    // The first preference, which is what a plurality count uses
+    public String getCandidateId() { return ranking.get(0); }
+    public List<String> getRanking() { return ranking; }
+    public boolean isRanked() { return ranking.size() > 1; }
+
+    /**
+     * The ranking as one field: the candidate ID for a plain vote, otherwise
+     * the IDs joined by RANKING_SEPARATOR.
+     */
+    public String getRankingField() {
+        return ranking.size() == 1 ? ranking.get(0) : String.join(RANKING_SEPARATOR, ranking);
+    }
 }
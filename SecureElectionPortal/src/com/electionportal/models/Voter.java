@@ -1,6 +1,7 @@
 package com.electionportal.models;
 
 import com.electionportal.Main;
+import com.electionportal.services.BallotBox;
 import com.electionportal.services.ElectionManager;
 import java.util.Scanner;
 
@@ -10,7 +11,14 @@ import java.util.Scanner;
  */
 public class Voter extends User {
 
+    // The flag as read from users.csv. Once the voter is bound to a BallotBox
+    // the box's bitset is the source of truth and this field is no longer used.
     private boolean hasVoted;
+    // Volatile, and written after voterIndex, so seeing the box means seeing the index
+    private volatile BallotBox ballotBox;
+    private int voterIndex = -1;
+    // Precinct this voter casts their ballot in; null until assigned (unsharded elections)
+    private volatile String precinctId;
 
     public Voter(String userId, String username, String fullName, String hashedPassword, boolean hasVoted) {
         // Call the base class constructor
@@ -18,13 +26,64 @@ public class Voter extends User {
         this.hasVoted = hasVoted;
     }
 
+    /**
+     * Moves this voter's "has voted" flag into the BallotBox bitset.
+     * Called by BallotBox.addVoter when the voter is loaded or registered.
+     */
+    public synchronized void bindTo(BallotBox ballotBox, int voterIndex) {
+        ballotBox.setVoted(voterIndex, hasVoted());
+        attachTo(ballotBox, voterIndex);
+    }
+
+    /**
+     * Points this voter at a flag the box already holds, leaving the flag as it is.
+     * Used when a voter is read back from users.csv after the box was set up by ID.
+     */
+    public synchronized void attachTo(BallotBox ballotBox, int voterIndex) {
+        this.voterIndex = voterIndex;
+        this.ballotBox = ballotBox;
+    }
+
+    public int getVoterIndex() { return ballotBox != null ? voterIndex : -1; }
+    // The box holding this voter's flag and ballot; null until bound
+    public BallotBox getBallotBox() { return ballotBox; }
+
     // --- Getters and Setters ---
+    public String getPrecinctId() { return precinctId; }
+    public void setPrecinctId(String precinctId) { this.precinctId = precinctId; }
+
     public boolean hasVoted() {
-        return hasVoted;
+        BallotBox box = ballotBox;
+        if (box != null) return box.hasVoted(voterIndex);
+        synchronized (this) {
+            return hasVoted;
+        }
     }
 
     public void setHasVoted(boolean hasVoted) {
-        this.hasVoted = hasVoted;
+        BallotBox box = ballotBox;
+        if (box != null) {
+            box.setVoted(voterIndex, hasVoted);
+        } else {
+            synchronized (this) {
+                this.hasVoted = hasVoted;
+            }
+        }
+    }
+
+    /**
+     * Atomically flips this voter from "not voted" to "voted".
+     * Once bound this is a lock-free compare-and-set on the voter's bit.
+     * @return true if this call made the change, false if the voter had already voted.
+     */
+    public boolean markVoted() {
+        BallotBox box = ballotBox;
+        if (box != null) return box.markVoted(voterIndex);
+        synchronized (this) {
+            if (hasVoted) return false;
+            hasVoted = true;
+            return true;
+        }
     }
 
     @Override
@@ -45,7 +104,8 @@ public class Voter extends User {
             System.out.println("1. View Candidates");
             System.out.println("2. Cast Vote");
             System.out.println("3. View My Status");
-            System.out.println("4. Logout");
+            System.out.println("4. View Ballot Receipt");
+            System.out.println("5. Logout");
             System.out.print("Select an option: ");
 
             String choice = scanner.nextLine();
@@ -58,9 +118,12 @@ public class Voter extends User {
                     Main.voterCastVote(manager, this, scanner);
                     break;
                 case "3":
-                    System.out.println("\nStatus for " + getFullName() + ": " + (hasVoted ? "You have already voted." : "You have NOT voted yet.") + "\n");
+                    System.out.println("\nStatus for " + getFullName() + ": " + (hasVoted() ? "You have already voted." : "You have NOT voted yet.") + "\n");
                     break;
                 case "4":
+                    Main.voterBallotReceipt(manager, this);
+                    break;
+                case "5":
                     keepRunning = false;
                     break;
                 default:
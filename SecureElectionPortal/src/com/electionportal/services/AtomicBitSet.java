@@ -0,0 +1,81 @@
+package com.electionportal.services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A growable bitset whose bits can be set with compare-and-set from many threads.
+ * Bits live in fixed-size segments. Growing only appends segments and never
+ * copies existing ones, so a CAS can never be lost to a concurrent resize.
+ */
+class AtomicBitSet {
+
+    private static final int SEGMENT_SHIFT = 16;
+    private static final int SEGMENT_BITS = 1 << SEGMENT_SHIFT; // 65,536 bits = 8 KB
+    private static final int SEGMENT_MASK = SEGMENT_BITS - 1;
+
+    private volatile AtomicLongArray[] segments = new AtomicLongArray[0];
+
+    /**
+     * Makes sure bits [0, bits) can be addressed.
+     */
+    synchronized void ensureCapacity(int bits) {
+        int needed = (bits + SEGMENT_BITS - 1) >>> SEGMENT_SHIFT;
+        AtomicLongArray[] current = segments;
+        if (needed <= current.length) return;
+        AtomicLongArray[] grown = java.util.Arrays.copyOf(current, needed);
+        for (int i = current.length; i < needed; i++) {
+            grown[i] = new AtomicLongArray(SEGMENT_BITS / Long.SIZE);
+        }
+        segments = grown;
+    }
+
+    /**
+     * @return How many bits can be addressed without ensureCapacity.
+     */
+    int capacity() {
+        return segments.length << SEGMENT_SHIFT;
+    }
+
+    boolean get(int bit) {
+        AtomicLongArray[] segs = segments;
+        int segment = bit >>> SEGMENT_SHIFT;
+        if (segment >= segs.length) return false;
+        return (segs[segment].get((bit & SEGMENT_MASK) >>> 6) & (1L << bit)) != 0;
+    }
+
+    /**
+     * Sets the bit if it is clear.
+     * @return true if this call set it, false if it was already set.
+     */
+    boolean setIfClear(int bit) {
+        AtomicLongArray words = segments[bit >>> SEGMENT_SHIFT];
+        int word = (bit & SEGMENT_MASK) >>> 6;
+        long mask = 1L << bit;
+        while (true) {
+            long current = words.get(word);
+            if ((current & mask) != 0) return false;
+            if (words.compareAndSet(word, current, current | mask)) return true;
+        }
+    }
+
+    void set(int bit, boolean value) {
+        AtomicLongArray words = segments[bit >>> SEGMENT_SHIFT];
+        int word = (bit & SEGMENT_MASK) >>> 6;
+        long mask = 1L << bit;
+        if (value) {
+            words.getAndAccumulate(word, mask, (w, m) -> w | m);
+        } else {
+            words.getAndAccumulate(word, mask, (w, m) -> w & ~m);
+        }
+    }
+
+    int cardinality() {
+        int count = 0;
+        for (AtomicLongArray words : segments) {
+            for (int i = 0; i < words.length(); i++) {
+                count += Long.bitCount(words.get(i));
+            }
+        }
+        return count;
+    }
+}
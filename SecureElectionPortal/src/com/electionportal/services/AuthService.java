@@ -1,7 +1,9 @@
 package com.electionportal.services;
 
 import com.electionportal.models.User;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Handles user authentication.
@@ -9,11 +11,34 @@ import java.util.List;
  */
 public class AuthService {
 
-    // This service OPERATES ON the list from ElectionManager
-    private final List<User> users;
+    /**
+     * One login attempt in a batch.
+     */
+    public record Credentials(String username, String password) {}
+
+    // This service READS the username index that ElectionManager keeps current
+    private final UserIndex userIndex;
+
+    // Bounded pool for batched logins, one worker per core
+    private final PasswordHasher hasher = new PasswordHasher(Runtime.getRuntime().availableProcessors());
+
+    // Login counters and timings (see Metrics)
+    private final LatencyHistogram loginTimer;
+    // Whole batches from loginAll, kept apart so LOGIN stays per attempt
+    private final LatencyHistogram loginBatchTimer;
+    private final LongAdder loginAttempts;
+    private final LongAdder loginFailures;
 
-    public AuthService(List<User> users) {
-        this.users = users;
+    public AuthService(UserIndex userIndex) {
+        this(userIndex, new Metrics());
+    }
+
+    public AuthService(UserIndex userIndex, Metrics metrics) {
+        this.userIndex = userIndex;
+        this.loginTimer = metrics.timer(Metrics.LOGIN);
+        this.loginBatchTimer = metrics.timer(Metrics.LOGIN_BATCH);
+        this.loginAttempts = metrics.counter(Metrics.LOGIN_ATTEMPTS);
+        this.loginFailures = metrics.counter(Metrics.LOGIN_FAILURES);
     }
 
     /**
@@ -22,12 +47,17 @@ public class AuthService {
      * @return The User object if successful, or null if not.
      */
     public User login(String username, String password) {
-        
-        // Find the user by username using modern Java Streams
-        User user = users.stream()
-                .filter(u -> u.getUsername().equalsIgnoreCase(username))
-                .findFirst()
-                .orElse(null);
+        long start = System.nanoTime();
+        User user = authenticate(username, password);
+        loginAttempts.increment();
+        if (user == null) loginFailures.increment();
+        loginTimer.recordSince(start);
+        return user;
+    }
+
+    private User authenticate(String username, String password) {
+        // Find the user by username with a single hash lookup
+        User user = userIndex.find(username);
 
         if (user == null) {
             return null; // User not found
@@ -40,4 +70,31 @@ public class AuthService {
 
         return null; // Invalid password
     }
+
+    /**
+     * Logs in a whole batch of users, e.g. when polls open and logins arrive
+     * in bursts. Password checks run in parallel on the hasher's worker pool.
+     *
+     * @return One entry per attempt, in order: the User if successful, or null if not.
+     */
+    public List<User> loginAll(List<Credentials> attempts) {
+        List<User> candidates = new ArrayList<>(attempts.size());
+        List<String> passwords = new ArrayList<>(attempts.size());
+        for (Credentials attempt : attempts) {
+            candidates.add(userIndex.find(attempt.username()));
+            passwords.add(attempt.password());
+        }
+
+        long start = System.nanoTime();
+        boolean[] valid = hasher.verifyAll(candidates, passwords);
+        List<User> results = new ArrayList<>(attempts.size());
+        for (int i = 0; i < valid.length; i++) {
+            results.add(valid[i] ? candidates.get(i) : null);
+            if (!valid[i]) loginFailures.increment();
+        }
+        loginAttempts.add(valid.length);
+        // Attempts are checked side by side, so only the batch has a duration of its own
+        loginBatchTimer.recordSince(start);
+        return results;
+    }
 }
@@ -0,0 +1,330 @@
+package com.electionportal.services;
+
+import com.electionportal.models.Vote;
+import com.electionportal.models.Voter;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Compact in-memory vote state behind ElectionManager.
+ *
+ * Voter and candidate IDs are dictionary-encoded to dense ints, ballots are
+ * two parallel int arrays in cast order (voter index, candidate index), and
+ * "has voted" is one bit per voter. A ballot costs 8 bytes and a voter flag
+ * one bit, instead of a Vote object with two Strings and a boolean field;
+ * each voter also has an int locating their ballot, for receipts.
+ * Vote objects are built on demand by votesView() for code that wants them.
+ * Ranked ballots also point at an entry in a table of distinct rankings,
+ * so a million copies of the same ranking store it once.
+ * Demonstrates: Primitive Arrays, Encapsulation
+ */
+public class BallotBox {
+
+    private final IdDictionary voterIds = new IdDictionary('v');
+    private final IdDictionary candidateIds = new IdDictionary('c');
+    // Bit i is set once the voter with index i has voted
+    private final AtomicBitSet voted = new AtomicBitSet();
+    // ballotOfVoter[i] is the position of voter i's first ballot, or -1 while they have none
+    private int[] ballotOfVoter = emptyBallotIndex(1024);
+
+    // Ballot i is (ballotVoters[i], ballotCandidates[i])
+    private int[] ballotVoters = new int[1024];
+    private int[] ballotCandidates = new int[1024];
+    private int ballotCount;
+
+    // Ranked ballots only: ballotRankings[i] indexes the distinct rankings,
+    // or is -1 for a plain ballot. Null until the first ranked ballot arrives.
+    private int[] ballotRankings;
+    private String[] rankingFields = new String[16];
+    // The same rankings as candidate indexes, most preferred first
+    private final List<int[]> rankings = new ArrayList<>();
+    private final Map<String, Integer> rankingIndex = new HashMap<>();
+
+    // --- Registration ---
+
+    /**
+     * Gives the voter an index and makes this box the home of their "has voted" flag.
+     * A voter whose ID is already here keeps the flag the box has for it.
+     */
+    public synchronized int addVoter(Voter voter) {
+        int index = voterIds.indexOf(voter.getUserId());
+        if (index >= 0) {
+            voter.attachTo(this, index);
+            return index;
+        }
+        index = addVoterId(voter.getUserId());
+        voter.bindTo(this, index);
+        return index;
+    }
+
+    /**
+     * Registers a voter ID with no Voter object, e.g. for a ballot whose
+     * voter is missing from users.csv, so it is still counted.
+     */
+    public synchronized int addVoterId(String voterId) {
+        int index = voterIds.add(voterId);
+        voted.ensureCapacity(voterIds.size());
+        if (index == ballotOfVoter.length) {
+            // Grown by copy, so a View keeps the array it captured
+            int[] grown = emptyBallotIndex(index + (index >> 1));
+            System.arraycopy(ballotOfVoter, 0, grown, 0, index);
+            ballotOfVoter = grown;
+        }
+        return index;
+    }
+
+    private static int[] emptyBallotIndex(int length) {
+        int[] index = new int[length];
+        Arrays.fill(index, -1);
+        return index;
+    }
+
+    public synchronized int addCandidate(String candidateId) {
+        return candidateIds.add(candidateId);
+    }
+
+    public synchronized int indexOfVoter(String voterId) { return voterIds.indexOf(voterId); }
+
+    /**
+     * Calls the action with every voter ID in this box and its flag, in index order.
+     */
+    public synchronized void forEachVoter(BiConsumer<String, Boolean> action) {
+        for (int i = 0; i < voterIds.size(); i++) {
+            action.accept(voterIds.get(i), voted.get(i));
+        }
+    }
+
+    // --- Voted flags (lock-free) ---
+
+    public boolean hasVoted(int voterIndex) { return voted.get(voterIndex); }
+
+    /**
+     * Atomically marks the voter as voted.
+     * @return true if this call made the change, false if they had already voted.
+     */
+    public boolean markVoted(int voterIndex) { return voted.setIfClear(voterIndex); }
+
+    public void setVoted(int voterIndex, boolean hasVoted) { voted.set(voterIndex, hasVoted); }
+
+    public int countVoted() { return voted.cardinality(); }
+
+    /**
+     * Sets the flag of every voter with a ballot in the box. Recovery calls
+     * this, so flags follow the saved ballots whatever users.csv says.
+     */
+    public synchronized void markBallotsVoted() {
+        for (int i = 0; i < ballotCount; i++) {
+            voted.set(ballotVoters[i], true);
+        }
+    }
+
+    // --- Ballots ---
+
+    /**
+     * Appends a ballot. Unknown IDs are added to the dictionaries so every
+     * ballot in a data file is kept, exactly as the old List<Vote> did.
+     * @param rankingField A candidate ID, or a ranking (see Vote.getRankingField)
+     */
+    public synchronized void addBallot(String voterId, String rankingField) {
+        int voter = voterIds.indexOf(voterId);
+        if (voter < 0) voter = addVoterId(voterId);
+        int separator = rankingField.indexOf(Vote.RANKING_SEPARATOR);
+        int candidate = candidateIds.add(separator < 0 ? rankingField : rankingField.substring(0, separator));
+
+        if (ballotCount == ballotVoters.length) {
+            int grown = ballotCount + (ballotCount >> 1);
+            ballotVoters = Arrays.copyOf(ballotVoters, grown);
+            ballotCandidates = Arrays.copyOf(ballotCandidates, grown);
+            if (ballotRankings != null) ballotRankings = grownRankings(grown);
+        }
+        if (separator >= 0 && ballotRankings == null) {
+            ballotRankings = grownRankings(ballotVoters.length);
+        }
+        ballotVoters[ballotCount] = voter;
+        ballotCandidates[ballotCount] = candidate;
+        if (ballotOfVoter[voter] < 0) ballotOfVoter[voter] = ballotCount;
+        if (ballotRankings != null) {
+            ballotRankings[ballotCount] = separator < 0 ? -1 : rankingIndex.computeIfAbsent(rankingField, this::addRanking);
+        }
+        ballotCount++;
+    }
+
+    private int addRanking(String rankingField) {
+        String[] ids = rankingField.split(Vote.RANKING_SEPARATOR);
+        int[] ranking = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            ranking[i] = candidateIds.add(ids[i]);
+        }
+        int index = rankings.size();
+        if (index == rankingFields.length) rankingFields = Arrays.copyOf(rankingFields, index * 2);
+        rankingFields[index] = rankingField;
+        rankings.add(ranking);
+        return index;
+    }
+
+    // Copies (or creates) the ranking column; new slots are plain ballots
+    private int[] grownRankings(int length) {
+        int[] grown = new int[length];
+        Arrays.fill(grown, -1);
+        if (ballotRankings != null) System.arraycopy(ballotRankings, 0, grown, 0, ballotRankings.length);
+        return grown;
+    }
+
+    public synchronized boolean hasRankedBallots() { return ballotRankings != null; }
+
+    public synchronized int size() { return ballotCount; }
+
+    /**
+     * Builds the Vote for ballot i.
+     */
+    public synchronized Vote voteAt(int i) {
+        if (i >= ballotCount) throw new IndexOutOfBoundsException(i);
+        String voterId = voterIds.get(ballotVoters[i]);
+        if (ballotRankings != null && ballotRankings[i] >= 0) {
+            return Vote.fromRankingField(voterId, rankingFields[ballotRankings[i]]);
+        }
+        return new Vote(voterId, candidateIds.get(ballotCandidates[i]));
+    }
+
+    /**
+     * Captures the ballots in the box right now, in O(1). Every array here is
+     * append-only (growth copies it), so the captured prefix never changes and
+     * the view is read without this box's lock while ballots keep arriving.
+     */
+    public synchronized View view() {
+        return new View(voterIds.idsView(), candidateIds.idsView(), ballotVoters, ballotCandidates,
+                ballotRankings, rankingFields, ballotOfVoter, ballotCount);
+    }
+
+    /**
+     * The ballots of a BallotBox at one instant (see view()).
+     */
+    public static final class View {
+        private final IdDictionary.View voterIds;
+        private final IdDictionary.View candidateIds;
+        private final int[] ballotVoters;
+        private final int[] ballotCandidates;
+        private final int[] ballotRankings;
+        private final String[] rankingFields;
+        // Shared with the box, which fills in later ballots; positions at or past size are not in this view
+        private final int[] ballotOfVoter;
+        private final int size;
+
+        private View(IdDictionary.View voterIds, IdDictionary.View candidateIds, int[] ballotVoters, int[] ballotCandidates,
+                     int[] ballotRankings, String[] rankingFields, int[] ballotOfVoter, int size) {
+            this.voterIds = voterIds;
+            this.candidateIds = candidateIds;
+            this.ballotVoters = ballotVoters;
+            this.ballotCandidates = ballotCandidates;
+            this.ballotRankings = ballotRankings;
+            this.rankingFields = rankingFields;
+            this.ballotOfVoter = ballotOfVoter;
+            this.size = size;
+        }
+
+        public int size() { return size; }
+
+        public Vote voteAt(int i) {
+            if (i >= size) throw new IndexOutOfBoundsException(i);
+            String voterId = voterIds.get(ballotVoters[i]);
+            if (ballotRankings != null && ballotRankings[i] >= 0) {
+                return Vote.fromRankingField(voterId, rankingFields[ballotRankings[i]]);
+            }
+            return new Vote(voterId, candidateIds.get(ballotCandidates[i]));
+        }
+
+        // Ballot i as stored, without building a Vote (see VoteCheckpoint)
+        String voterIdAt(int i) { return voterIds.get(ballotVoters[i]); }
+
+        String rankingFieldAt(int i) {
+            if (ballotRankings != null && ballotRankings[i] >= 0) return rankingFields[ballotRankings[i]];
+            return candidateIds.get(ballotCandidates[i]);
+        }
+
+        /**
+         * @return The position of the voter's ballot in this view, or -1 if they have none.
+         */
+        int ballotOf(int voterIndex) {
+            if (voterIndex < 0 || voterIndex >= ballotOfVoter.length) return -1;
+            int ballot = ballotOfVoter[voterIndex];
+            return ballot < size ? ballot : -1;
+        }
+
+        /**
+         * A read-only List<Vote> over this view, built as it is read.
+         */
+        public List<Vote> votes() {
+            return new AbstractList<>() {
+                @Override public Vote get(int index) { return voteAt(index); }
+                @Override public int size() { return size; }
+            };
+        }
+
+        /**
+         * @return True if this view holds a ballot from the voter with this index.
+         */
+        public boolean hasVoted(int voterIndex) {
+            return ballotOf(voterIndex) >= 0;
+        }
+    }
+
+    /**
+     * A read-only List<Vote> whose elements are created as they are read.
+     */
+    public List<Vote> votesView() {
+        return new AbstractList<>() {
+            @Override public Vote get(int index) { return voteAt(index); }
+            @Override public int size() { return BallotBox.this.size(); }
+        };
+    }
+
+    /**
+     * Counts every ballot per candidate over the int arrays.
+     * @return candidate ID -> number of votes
+     */
+    public synchronized Map<String, Long> countByCandidate() {
+        long[] counts = new long[candidateIds.size()];
+        for (int i = 0; i < ballotCount; i++) {
+            counts[ballotCandidates[i]]++;
+        }
+        Map<String, Long> result = new HashMap<>();
+        for (int c = 0; c < counts.length; c++) {
+            if (counts[c] > 0) result.put(candidateIds.get(c), counts[c]);
+        }
+        return result;
+    }
+
+    /**
+     * Groups the ballots by ranking and adds each distinct ranking to the
+     * count once, with the number of ballots that cast it. Plain ballots
+     * are one-candidate rankings.
+     */
+    public synchronized void addRankingsTo(InstantRunoff runoff) {
+        String[] ids = new String[candidateIds.size()];
+        for (int c = 0; c < ids.length; c++) {
+            ids[c] = candidateIds.get(c);
+        }
+        int[] slateIndexes = runoff.slateIndexes(ids);
+
+        long[] plain = new long[ids.length];
+        long[] ranked = new long[rankings.size()];
+        for (int i = 0; i < ballotCount; i++) {
+            if (ballotRankings != null && ballotRankings[i] >= 0) {
+                ranked[ballotRankings[i]]++;
+            } else {
+                plain[ballotCandidates[i]]++;
+            }
+        }
+        for (int c = 0; c < plain.length; c++) {
+            if (plain[c] > 0) runoff.addGroup(new int[] {c}, slateIndexes, plain[c]);
+        }
+        for (int r = 0; r < ranked.length; r++) {
+            if (ranked[r] > 0) runoff.addGroup(rankings.get(r), slateIndexes, ranked[r]);
+        }
+    }
+}
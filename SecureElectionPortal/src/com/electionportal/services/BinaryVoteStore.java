@@ -0,0 +1,221 @@
+package com.electionportal.services;
+
+import com.electionportal.models.Vote;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact fixed-width binary vote file, read through a memory-mapped FileChannel.
+ *
+ * Layout (big-endian):
+ *   header  : magic "EPVB" (4 bytes) | version (int) | record count (long)
+ *   records : voter number (int) | candidate number (int)
+ *
+ * IDs are stored as the number after the prefix, so "v-042" is 42 and "c-003" is 3.
+ * That is the format ElectionManager assigns to every voter and candidate.
+ * Ranked ballots do not fit a fixed-width record; DataManager saves those to votes.csv.
+ * Demonstrates: java.nio (FileChannel, MappedByteBuffer), Functional Interfaces
+ */
+public final class BinaryVoteStore {
+
+    public static final int MAGIC = 0x45505642; // "EPVB"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 8;
+
+    // Map at most this many bytes at once; a multiple of RECORD_SIZE
+    private static final long MAP_WINDOW = 256L * 1024 * 1024;
+    private static final int WRITE_BUFFER = 64 * 1024;
+
+    /**
+     * Receives one ballot at a time as raw numbers, without building a Vote.
+     */
+    @FunctionalInterface
+    public interface RecordVisitor {
+        void visit(int voterNumber, int candidateNumber);
+    }
+
+    private BinaryVoteStore() {}
+
+    // --- Writing ---
+
+    public static void write(Path file, List<Vote> votes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER);
+            putHeader(buffer, votes.size());
+            for (Vote vote : votes) {
+                if (vote.isRanked()) throw new IllegalArgumentException("Ranked ballots cannot be stored in votes.bin");
+                if (buffer.remaining() < RECORD_SIZE) drain(channel, buffer);
+                buffer.putInt(idNumber(vote.getVoterId(), 'v'));
+                buffer.putInt(idNumber(vote.getCandidateId(), 'c'));
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    /**
+     * Streams a votes.csv file into the binary format.
+     * @return The number of ballots imported.
+     */
+    public static long importCsv(Path csvFile, Path binFile) throws IOException {
+        long count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(csvFile);
+             FileChannel channel = FileChannel.open(binFile, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER);
+            putHeader(buffer, 0); // Count is patched in once known
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length != 2) continue;
+                if (buffer.remaining() < RECORD_SIZE) drain(channel, buffer);
+                buffer.putInt(idNumber(parts[0], 'v'));
+                buffer.putInt(idNumber(parts[1], 'c'));
+                count++;
+            }
+            drain(channel, buffer);
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, count), 8);
+        }
+        return count;
+    }
+
+    /**
+     * Writes the binary file back out as votes.csv lines.
+     * @return The number of ballots exported.
+     */
+    public static long exportCsv(Path binFile, Path csvFile) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(csvFile))) {
+            return scan(binFile, (voter, candidate) ->
+                    writer.println(voterId(voter) + "," + candidateId(candidate)));
+        }
+    }
+
+    // --- Reading ---
+
+    /**
+     * Visits every ballot in file order through a read-only memory mapping.
+     * No Vote or String objects are created.
+     * @return The number of records visited.
+     */
+    public static long scan(Path file, RecordVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long count = readRecordCount(channel);
+            long position = HEADER_SIZE;
+            long end = HEADER_SIZE + count * RECORD_SIZE;
+            while (position < end) {
+                long length = Math.min(MAP_WINDOW, end - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                while (window.remaining() >= RECORD_SIZE) {
+                    visitor.visit(window.getInt(), window.getInt());
+                }
+                position += length;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Loads every ballot as a Vote. Only needed where the model objects are required.
+     */
+    public static List<Vote> readAll(Path file) throws IOException {
+        List<Vote> votes = new ArrayList<>();
+        scan(file, (voter, candidate) -> votes.add(new Vote(voterId(voter), candidateId(candidate))));
+        return votes;
+    }
+
+    /**
+     * Counts ballots per candidate straight from the mapped file.
+     * @return candidate ID -> number of votes
+     */
+    public static Map<String, Long> countByCandidate(Path file) throws IOException {
+        Map<Integer, long[]> counts = new HashMap<>();
+        scan(file, (voter, candidate) -> counts.computeIfAbsent(candidate, c -> new long[1])[0]++);
+
+        Map<String, Long> result = new HashMap<>();
+        counts.forEach((candidate, count) -> result.put(candidateId(candidate), count[0]));
+        return result;
+    }
+
+    // --- ID encoding ---
+
+    public static String voterId(int number) { return formatId('v', number); }
+    public static String candidateId(int number) { return formatId('c', number); }
+
+    /**
+     * Same output as String.format("%c-%03d", ...), without the format parsing
+     * that would otherwise dominate a full load.
+     */
+    private static String formatId(char prefix, int number) {
+        String digits = Integer.toString(number);
+        if (digits.length() >= 3) return prefix + "-" + digits;
+        return prefix + (digits.length() == 1 ? "-00" : "-0") + digits;
+    }
+
+    /**
+     * Parses the number out of an ID such as "v-042".
+     */
+    public static int idNumber(String id, char prefix) {
+        if (id.length() < 3 || id.charAt(0) != prefix || id.charAt(1) != '-') {
+            throw new IllegalArgumentException("Unsupported ID for binary vote store: " + id);
+        }
+        return Integer.parseInt(id, 2, id.length(), 10);
+    }
+
+    // --- Helpers ---
+
+    private static void putHeader(ByteBuffer buffer, long count) {
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(count);
+    }
+
+    private static long readRecordCount(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header) >= 0) { }
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+            throw new IOException("Not a binary vote file");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary vote file version: " + version);
+        }
+        long count = header.getLong();
+        // Never trust the header past the end of the file (e.g. a truncated copy)
+        long available = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+        return Math.min(count, available);
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Command-line conversion between votes.csv and the binary format:
+     *   import <votes.csv> <votes.bin>
+     *   export <votes.bin> <votes.csv>
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && "import".equals(args[0])) {
+            System.out.println("Imported " + importCsv(Path.of(args[1]), Path.of(args[2])) + " vote(s).");
+        } else if (args.length == 3 && "export".equals(args[0])) {
+            System.out.println("Exported " + exportCsv(Path.of(args[1]), Path.of(args[2])) + " vote(s).");
+        } else {
+            System.out.println("Usage: BinaryVoteStore import <votes.csv> <votes.bin> | export <votes.bin> <votes.csv>");
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.electionportal.services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Reads a text file in parallel, line by line, as raw bytes. The file is
+ * split into chunks at line boundaries; each chunk is read through a small
+ * fixed buffer and its lines go to a visitor of its own, so no per-line
+ * Strings are created and memory stays bounded however large the file is.
+ * Used by the offline tools (VoteRecount, IntegrityAudit) and to index
+ * users.csv at startup (UserIndex.load).
+ * Demonstrates: Parallel Streams, java.nio positional reads
+ */
+final class ChunkedLines {
+
+    // Chunks are handed to the fork/join pool; each one is read READ_BUFFER bytes at a time
+    private static final int TARGET_CHUNK_BYTES = 4 * 1024 * 1024;
+    private static final int READ_BUFFER = 64 * 1024;
+
+    interface Visitor {
+        /**
+         * One line, spanning [from, to) of bytes, without its line ending.
+         * @param index The line's position within its chunk, from 0
+         * @param offset Where the line starts in the file
+         */
+        void line(byte[] bytes, int from, int to, long index, long offset);
+    }
+
+    /**
+     * A chunk's visitor, and how many lines it was given.
+     */
+    record Chunk<V>(V visitor, long lines) {}
+
+    private ChunkedLines() {}
+
+    /**
+     * Reads every line of the file. Each visitor sees one chunk's lines in order.
+     * @return The chunks in file order; see firstLines for absolute line numbers
+     */
+    static <V extends Visitor> List<Chunk<V>> scan(Path file, Supplier<V> visitors) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int chunks = (int) Math.max(1, Math.min(Integer.MAX_VALUE - 1, size / TARGET_CHUNK_BYTES));
+            try {
+                // Chunk i covers the lines that *start* in [size*i/chunks, size*(i+1)/chunks),
+                // so neighbouring chunks agree on every boundary without a pre-pass
+                return IntStream.range(0, chunks)
+                        .parallel()
+                        .mapToObj(i -> scanChunk(channel, size * i / chunks, size * (i + 1) / chunks, size, visitors.get()))
+                        .toList(); // Keeps encounter (file) order
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * @return The file's line number (from 1) of each chunk's first line.
+     */
+    static long[] firstLines(List<? extends Chunk<?>> chunks) {
+        long[] first = new long[chunks.size()];
+        long line = 1;
+        for (int i = 0; i < first.length; i++) {
+            first[i] = line;
+            line += chunks.get(i).lines();
+        }
+        return first;
+    }
+
+    private static <V extends Visitor> Chunk<V> scanChunk(FileChannel channel, long start, long end, long size,
+                                                          V visitor) {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER);
+        byte[] bytes = buffer.array();
+        long lines = 0;
+        try {
+            long position = start;
+            // Unless the chunk starts the file, its first (partial) line belongs to the previous chunk
+            boolean skipping = start > 0 && !endsLine(channel, start - 1);
+            int carried = 0;
+            while (position < size) {
+                buffer.clear().position(carried);
+                int read = channel.read(buffer, position);
+                if (read <= 0) break;
+                int filled = carried + read;
+                long bufferStart = position - carried;
+                position += read;
+
+                int lineStart = 0;
+                for (int i = carried; i < filled; i++) {
+                    if (bytes[i] != '\n') continue;
+                    if (skipping) {
+                        skipping = false;
+                    } else {
+                        visit(visitor, bytes, lineStart, i, lines++, bufferStart + lineStart);
+                    }
+                    lineStart = i + 1;
+                    if (bufferStart + lineStart >= end) return new Chunk<>(visitor, lines);
+                }
+                // Move the unfinished line to the front; grow only for a line longer than the buffer
+                carried = filled - lineStart;
+                if (carried == bytes.length) {
+                    buffer = ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length * 2));
+                    bytes = buffer.array();
+                } else {
+                    System.arraycopy(bytes, lineStart, bytes, 0, carried);
+                }
+            }
+            if (carried > 0 && !skipping) {
+                // Last line without a trailing newline
+                visit(visitor, bytes, 0, carried, lines++, position - carried);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Chunk<>(visitor, lines);
+    }
+
+    private static void visit(Visitor visitor, byte[] bytes, int from, int to, long index, long offset) {
+        visitor.line(bytes, from, contentEnd(bytes, from, to), index, offset);
+    }
+
+    /**
+     * @return Where the line [from, to) ends without its '\r', if it was
+     *         written on Windows with "\r\n" endings.
+     */
+    static int contentEnd(byte[] bytes, int from, int to) {
+        return to > from && bytes[to - 1] == '\r' ? to - 1 : to;
+    }
+
+    private static boolean endsLine(FileChannel channel, long position) throws IOException {
+        ByteBuffer one = ByteBuffer.allocate(1);
+        channel.read(one, position);
+        return one.get(0) == '\n';
+    }
+}
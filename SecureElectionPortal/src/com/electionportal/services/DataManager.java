@@ -2,9 +2,18 @@ package com.electionportal.services;
 
 import com.electionportal.models.*;
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
 
 /**
  * Handles all File I/O operations.
@@ -12,152 +21,862 @@ import java.util.List;
  */
 public class DataManager {
 
+    // Group commit as the portal runs it: a ballot waits at most this long to share a force
+    public static final int GROUP_COMMIT_BATCH_SIZE = 256;
+    public static final long GROUP_COMMIT_WAIT_MICROS = 200;
+
     private static final String DATA_DIR = "data";
-    private static final Path USERS_FILE = Paths.get(DATA_DIR, "users.csv");
-    private static final Path CANDIDATES_FILE = Paths.get(DATA_DIR, "candidates.csv");
-    private static final Path VOTES_FILE = Paths.get(DATA_DIR, "votes.csv");
-    private static final Path STATE_FILE = Paths.get(DATA_DIR, "state.txt");
+    private static final String JOURNAL_VOTE = "VOTE";
+    // checkpoint-<n>.bin adds the ballots of journal segment n (journal-<n>.log) to the
+    // checkpoint before it, or, if it starts at ballot 0, holds those of segments 1..n
+    private static final String CHECKPOINT_PREFIX = "checkpoint-";
+    private static final String CHECKPOINT_SUFFIX = ".bin";
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    // Timer names, one per load/save call (see Metrics)
+    static final String LOAD_USERS = "data.loadUsers";
+    static final String SAVE_USERS = "data.saveUsers";
+    static final String LOAD_CANDIDATES = "data.loadCandidates";
+    static final String SAVE_CANDIDATES = "data.saveCandidates";
+    static final String LOAD_VOTES = "data.loadVotes";
+    static final String SAVE_VOTES = "data.saveVotes";
+    static final String COUNT_VOTES = "data.countStoredVotes";
+    static final String LOAD_STATE = "data.loadState";
+    static final String SAVE_STATE = "data.saveState";
+    static final String APPEND_VOTE = "data.appendVote";
+    static final String LOAD_JOURNAL = "data.loadJournal";
+    static final String CLEAR_JOURNAL = "data.clearJournal";
+    static final String WRITE_CHECKPOINT = "data.writeCheckpoint";
+
+    private final Path dataDir;
+    private final Path usersFile;
+    private final Path candidatesFile;
+    private final Path votesFile;
+    private final Path binaryVotesFile;
+    private final Path stateFile;
+    // Append-only log of ballots accepted since the last checkpoint
+    private final Path journalFile;
+    // Precinct IDs, one per line; absent for an unsharded election
+    private final Path precinctsFile;
+    // The Merkle roots published when the election closed: precinctId,ballots,root
+    private final Path rootsFile;
+
+    // Kept open between appends so a vote costs one write, not one file open
+    private BufferedWriter journalWriter;
+    // When set, journal appends are batched and forced to disk (see enableGroupCommit)
+    private volatile GroupCommitter groupCommitter;
+    // The settings groupCommitter was started with, passed on to precinct stores
+    private int groupCommitBatchSize;
+    private long groupCommitWaitMicros;
+    // When true, the vote snapshot is kept in votes.bin (see BinaryVoteStore)
+    private volatile boolean binaryVotes;
+    // Highest checkpoint or journal segment number used so far (guarded by this)
+    private long lastSequence;
+    // The checkpoint forEachStoredVote loaded, or 0; loadJournal replays what follows it
+    private volatile long recoveredSequence;
+    // The ballots that checkpoint and those it builds on hold, or -1
+    private volatile long recoveredBallots = -1;
+
+    private volatile Metrics metrics = new Metrics();
+    // Looked up once, since appendVote runs on every ballot
+    private volatile LatencyHistogram appendTimer = metrics.timer(APPEND_VOTE);
 
     public DataManager() {
+        this(Paths.get(DATA_DIR));
+    }
+
+    /**
+     * Creates a DataManager that reads and writes inside the given directory.
+     * Lets benchmarks and tools work on a scratch copy instead of the live data.
+     */
+    public DataManager(Path dataDir) {
+        this.dataDir = dataDir;
+        usersFile = dataDir.resolve("users.csv");
+        candidatesFile = dataDir.resolve("candidates.csv");
+        votesFile = dataDir.resolve("votes.csv");
+        binaryVotesFile = dataDir.resolve("votes.bin");
+        stateFile = dataDir.resolve("state.txt");
+        journalFile = dataDir.resolve("journal.log");
+        precinctsFile = dataDir.resolve("precincts.txt");
+        rootsFile = dataDir.resolve("merkle-roots.csv");
         try {
             // Ensure the data directory exists
-            Files.createDirectories(Paths.get(DATA_DIR));
+            Files.createDirectories(dataDir);
         } catch (IOException e) {
             System.err.println("Error creating data directory: " + e.getMessage());
         }
+        lastSequence = Math.max(newest(sequences(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX)),
+                newest(sequences(SEGMENT_PREFIX, SEGMENT_SUFFIX)));
     }
 
+    /**
+     * Records load/save timings into the given registry instead of this
+     * DataManager's own (ElectionManager shares its registry this way).
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics;
+        this.appendTimer = metrics.timer(APPEND_VOTE);
+    }
+
+    public Metrics getMetrics() { return metrics; }
+    public Path getDataDir() { return dataDir; }
+    public Path getUsersFile() { return usersFile; }
+
     // --- User Management ---
-    public List<User> loadUsers() {
-        List<User> users = new ArrayList<>();
-        if (!Files.exists(USERS_FILE)) return users;
+    // users.csv is read and written by UserIndex; these convert one line
 
-        // Use try-with-resources for automatic file closing
-        try (BufferedReader reader = Files.newBufferedReader(USERS_FILE)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length < 5) continue;
-
-                String userType = parts[0];
-                String id = parts[1];
-                String username = parts[2];
-                String fullName = parts[3];
-                String hash = parts[4];
-
-                if ("VOTER".equals(userType) && parts.length == 6) {
-                    boolean hasVoted = Boolean.parseBoolean(parts[5]);
-                    users.add(new Voter(id, username, fullName, hash, hasVoted));
-                } else if ("ADMIN".equals(userType)) {
-                    users.add(new Administrator(id, username, fullName, hash));
+    /**
+     * Parses one users.csv line.
+     * @return The Voter or Administrator, or null if the line is malformed.
+     */
+    static User parseUser(String line) {
+        String[] parts = line.split(",");
+        if (parts.length < 5) return null;
+
+        String userType = parts[0];
+        String id = parts[1];
+        String username = parts[2];
+        String fullName = parts[3];
+        String hash = parts[4];
+
+        if ("VOTER".equals(userType) && (parts.length == 6 || parts.length == 7)) {
+            boolean hasVoted = Boolean.parseBoolean(parts[5]);
+            Voter voter = new Voter(id, username, fullName, hash, hasVoted);
+            // Sharded elections add the voter's precinct as a 7th column
+            if (parts.length == 7) voter.setPrecinctId(parts[6]);
+            return voter;
+        } else if ("ADMIN".equals(userType)) {
+            return new Administrator(id, username, fullName, hash);
+        }
+        return null;
+    }
+
+    /**
+     * Formats one users.csv line (the inverse of parseUser).
+     */
+    static String formatUser(User user) {
+        String line = String.join(",",
+                user.getUserType(),
+                user.getUserId(),
+                user.getUsername(),
+                user.getFullName(),
+                user.getHashedPasswordForSave()
+        );
+
+        // Use Java 16+ Pattern Matching for instanceof
+        if (user instanceof Voter v) {
+            line += "," + v.hasVoted();
+            if (v.getPrecinctId() != null) line += "," + v.getPrecinctId();
+        }
+        return line;
+    }
+
+    // --- Candidate Management ---
+    public List<Candidate> loadCandidates() {
+        long start = System.nanoTime();
+        try {
+            List<Candidate> candidates = new ArrayList<>();
+            if (!Files.exists(candidatesFile)) return candidates;
+
+            try (BufferedReader reader = Files.newBufferedReader(candidatesFile)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    // Use "|" separator for platforms that might have commas
+                    String[] parts = line.split("\\|");
+                    if (parts.length == 4) {
+                        candidates.add(new Candidate(parts[0], parts[1], parts[2], parts[3]));
+                    }
                 }
+            } catch (IOException e) {
+                System.err.println("Error loading candidates: " + e.getMessage());
             }
+            return candidates;
+        } finally {
+            metrics.timer(LOAD_CANDIDATES).recordSince(start);
+        }
+    }
+
+    public void saveCandidates(List<Candidate> candidates) {
+        long start = System.nanoTime();
+        try {
+            replaceAtomically(candidatesFile, temp -> {
+                try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(temp))) {
+                    for (Candidate c : candidates) {
+                        // Use "|" separator
+                        String line = String.join("|", c.getCandidateId(), c.getName(), c.getParty(), c.getPlatform());
+                        writer.println(line);
+                    }
+                    checkWritten(writer);
+                }
+            });
         } catch (IOException e) {
-            System.err.println("Error loading users: " + e.getMessage());
+            System.err.println("Error saving candidates: " + e.getMessage());
+        } finally {
+            metrics.timer(SAVE_CANDIDATES).recordSince(start);
         }
-        return users;
     }
 
-    public void saveUsers(List<User> users) {
-        // Use try-with-resources with a PrintWriter for easy line writing
-        try (PrintWriter writer = new PrintWriter(new FileWriter(USERS_FILE.toFile()))) {
-            for (User user : users) {
-                String line = String.join(",",
-                        user.getUserType(),
-                        user.getUserId(),
-                        user.getUsername(),
-                        user.getFullName(),
-                        user.getHashedPasswordForSave()
-                );
-                
-                // Use Java 16+ Pattern Matching for instanceof
-                if (user instanceof Voter v) {
-                    line += "," + v.hasVoted();
+    // --- Vote Management ---
+
+    /**
+     * Chooses the vote snapshot format. Switching to binary keeps reading
+     * votes.csv until the first save writes votes.bin.
+     */
+    public void setBinaryVotes(boolean binaryVotes) { this.binaryVotes = binaryVotes; }
+    public boolean isBinaryVotes() { return binaryVotes; }
+
+    public List<Vote> loadVotes() {
+        List<Vote> votes = new ArrayList<>();
+        forEachStoredVote((voterId, rankingField) -> votes.add(Vote.fromRankingField(voterId, rankingField)));
+        return votes;
+    }
+
+    /**
+     * Streams every saved ballot, in order, as (voterId, rankingField),
+     * without keeping any Vote objects around. The ranking field is the
+     * candidate ID for a plain ballot (see Vote.getRankingField).
+     * The newest checkpoint whose checksum, and that of each checkpoint it
+     * builds on, matches is read; without one, the last full save (votes.csv
+     * or votes.bin).
+     */
+    public void forEachStoredVote(BiConsumer<String, String> visitor) {
+        long start = System.nanoTime();
+        try {
+            List<Long> checkpoints = sequences(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX);
+            TreeMap<Long, VoteCheckpoint.Header> headers = checkpointHeaders();
+            Map<Long, Boolean> intact = new HashMap<>();
+            for (long sequence : checkpoints) {
+                List<Long> chain = chain(sequence, headers);
+                if (chain == null) {
+                    System.err.println("Checkpoint " + checkpointFile(sequence)
+                            + " is damaged or follows a missing one; trying an older one.");
+                    continue;
+                }
+                if (!chain.stream().allMatch(link -> intact.computeIfAbsent(link, this::verifyCheckpoint))) continue;
+                for (long link : chain) {
+                    try {
+                        VoteCheckpoint.read(checkpointFile(link), link, visitor);
+                    } catch (IOException e) {
+                        System.err.println("Error loading checkpoint: " + e.getMessage());
+                    }
+                }
+                recoveredSequence = sequence;
+                recoveredBallots = headers.get(sequence).end();
+                return;
+            }
+            recoveredSequence = 0;
+            recoveredBallots = -1;
+            if (!checkpoints.isEmpty()) {
+                System.err.println("No valid checkpoint in " + dataDir + "; loading the last full save instead.");
+            }
+
+            if (binaryVotes && Files.exists(binaryVotesFile)) {
+                try {
+                    BinaryVoteStore.scan(binaryVotesFile, (voter, candidate) ->
+                            visitor.accept(BinaryVoteStore.voterId(voter), BinaryVoteStore.candidateId(candidate)));
+                } catch (IOException e) {
+                    System.err.println("Error loading binary votes: " + e.getMessage());
                 }
-                writer.println(line);
+                return;
             }
+
+            if (!Files.exists(votesFile)) return;
+
+            try (BufferedReader reader = Files.newBufferedReader(votesFile)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    String[] parts = line.split(",");
+                    if (parts.length == 2) {
+                        visitor.accept(parts[0], parts[1]);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Error loading votes: " + e.getMessage());
+            }
+        } finally {
+            metrics.timer(LOAD_VOTES).recordSince(start);
+        }
+    }
+
+    public void saveVotes(List<Vote> votes) {
+        long start = System.nanoTime();
+        try {
+            if (binaryVotes) {
+                try {
+                    replaceAtomically(binaryVotesFile, temp -> BinaryVoteStore.write(temp, votes));
+                    return;
+                } catch (IOException e) {
+                    System.err.println("Error saving binary votes: " + e.getMessage());
+                    return;
+                } catch (IllegalArgumentException e) {
+                    // Ranked ballots and irregular IDs do not fit; keep every ballot in votes.csv instead
+                    System.err.println("Saving votes.csv instead of votes.bin: " + e.getMessage());
+                }
+            }
+
+            try {
+                replaceAtomically(votesFile, temp -> {
+                    try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(temp))) {
+                        for (Vote v : votes) {
+                            writer.println(v.getVoterId() + "," + v.getRankingField());
+                        }
+                        checkWritten(writer);
+                    }
+                });
+                if (binaryVotes) {
+                    // A leftover votes.bin would be read in preference to the new votes.csv
+                    Files.deleteIfExists(binaryVotesFile);
+                }
+            } catch (IOException e) {
+                System.err.println("Error saving votes: " + e.getMessage());
+            }
+        } finally {
+            metrics.timer(SAVE_VOTES).recordSince(start);
+        }
+    }
+
+    /**
+     * Counts the saved ballots per candidate straight from the snapshot file,
+     * without building Vote objects. Used for audits against the live tally.
+     * @return candidate ID -> number of votes
+     */
+    public Map<String, Long> countStoredVotes() {
+        long start = System.nanoTime();
+        try {
+            if (binaryVotes && Files.exists(binaryVotesFile)) {
+                try {
+                    return BinaryVoteStore.countByCandidate(binaryVotesFile);
+                } catch (IOException e) {
+                    System.err.println("Error scanning binary votes: " + e.getMessage());
+                    return new HashMap<>();
+                }
+            }
+
+            // Parallel chunks with bounded memory; accepts the same lines loadVotes does
+            try {
+                return VoteRecount.countCsv(votesFile);
+            } catch (IOException e) {
+                System.err.println("Error scanning votes: " + e.getMessage());
+                return new HashMap<>();
+            }
+        } finally {
+            metrics.timer(COUNT_VOTES).recordSince(start);
+        }
+    }
+
+    // --- State Management ---
+    public ElectionState loadState() {
+        long start = System.nanoTime();
+        try {
+            if (!Files.exists(stateFile)) return ElectionState.REGISTRATION;
+            try {
+                String stateStr = Files.readString(stateFile).trim();
+                return ElectionState.valueOf(stateStr);
+            } catch (Exception e) {
+                return ElectionState.REGISTRATION;
+            }
+        } finally {
+            metrics.timer(LOAD_STATE).recordSince(start);
+        }
+    }
+
+    public void saveState(ElectionState state) {
+        long start = System.nanoTime();
+        try {
+            try {
+                replaceAtomically(stateFile, temp -> Files.writeString(temp, state.toString()));
+            } catch (IOException e) {
+                System.err.println("Error saving state: " + e.getMessage());
+            }
+        } finally {
+            metrics.timer(SAVE_STATE).recordSince(start);
+        }
+    }
+
+    // --- Checkpoints ---
+
+    /**
+     * Seals the journal as segment n (journal-n.log) and starts an empty one.
+     * Call while no appendVote is in progress; Precinct holds its write lock.
+     * @return n, the number of the checkpoint that will cover the sealed segment
+     */
+    synchronized long rotateJournal() throws IOException {
+        long sequence = ++lastSequence;
+        Path sealed = segmentFile(sequence);
+        if (groupCommitter != null) {
+            groupCommitter.rotate(sealed);
+        } else {
+            if (journalWriter != null) {
+                journalWriter.close();
+                journalWriter = null;
+            }
+            if (Files.exists(journalFile)) {
+                Files.move(journalFile, sealed, StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Writes checkpoint n: ballots first onwards of those captured when
+     * journal segment n was sealed. Then compacts the log: the two newest
+     * checkpoints that can be restored are kept, with the older ones they
+     * build on, so a damaged one has a fallback; the segments both cover are deleted.
+     * @param first 0 for a checkpoint of every ballot, else where the checkpoint before it ends
+     * @return False if the checkpoint could not be written; nothing is deleted then.
+     */
+    boolean writeCheckpoint(long sequence, long first, BallotBox.View ballots) {
+        long start = System.nanoTime();
+        try {
+            replaceAtomically(checkpointFile(sequence), temp -> VoteCheckpoint.write(temp, sequence, first, ballots));
         } catch (IOException e) {
-            System.err.println("Error saving users: " + e.getMessage());
+            System.err.println("Error writing checkpoint: " + e.getMessage());
+            return false;
+        } finally {
+            metrics.timer(WRITE_CHECKPOINT).recordSince(start);
         }
+        compactJournal();
+        return true;
     }
 
-    // --- Candidate Management ---
-    public List<Candidate> loadCandidates() {
-        List<Candidate> candidates = new ArrayList<>();
-        if (!Files.exists(CANDIDATES_FILE)) return candidates;
+    private synchronized void compactJournal() {
+        TreeMap<Long, VoteCheckpoint.Header> headers = checkpointHeaders();
+        List<Long> restorable = new ArrayList<>(2);
+        Set<Long> kept = new HashSet<>();
+        for (long sequence : headers.descendingKeySet()) {
+            List<Long> chain = chain(sequence, headers);
+            if (chain == null) continue; // Follows one still being written, or one that failed
+            restorable.add(sequence);
+            kept.addAll(chain);
+            if (restorable.size() == 2) break;
+        }
+        if (restorable.size() < 2) return;
+        long newest = restorable.get(0);
+        long fallback = restorable.get(1);
+        try {
+            for (long sequence : sequences(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX)) {
+                if (sequence < newest && !kept.contains(sequence)) Files.deleteIfExists(checkpointFile(sequence));
+            }
+            for (long sequence : sequences(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+                if (sequence <= fallback) Files.deleteIfExists(segmentFile(sequence));
+            }
+            // Left behind by a process killed while writing a checkpoint
+            for (long sequence : sequences(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX + ".tmp")) {
+                if (sequence < fallback) Files.deleteIfExists(dataDir.resolve(CHECKPOINT_PREFIX + sequence + CHECKPOINT_SUFFIX + ".tmp"));
+            }
+        } catch (IOException e) {
+            System.err.println("Error compacting vote journal: " + e.getMessage());
+        }
+    }
 
-        try (BufferedReader reader = Files.newBufferedReader(CANDIDATES_FILE)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                // Use "|" separator for platforms that might have commas
-                String[] parts = line.split("\\|");
-                if (parts.length == 4) {
-                    candidates.add(new Candidate(parts[0], parts[1], parts[2], parts[3]));
+    /**
+     * @return True if this store has been checkpointed (see forEachStoredVote).
+     */
+    public boolean hasCheckpoint() {
+        return !sequences(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX).isEmpty();
+    }
+
+    /**
+     * Ballots up to the end of the newest checkpoint, as its header gives them.
+     * @return The count, or -1 if there is no checkpoint or it cannot be read
+     */
+    long checkpointedBallots() {
+        List<Long> checkpoints = sequences(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX);
+        if (checkpoints.isEmpty()) return -1;
+        try {
+            return VoteCheckpoint.header(checkpointFile(checkpoints.get(0))).end();
+        } catch (IOException e) {
+            System.err.println("Error reading checkpoint: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * @return Ballots in the checkpoints forEachStoredVote loaded, or -1 if it loaded none.
+     */
+    long getRecoveredBallots() { return recoveredBallots; }
+
+    // The header of each checkpoint that has a readable one, by sequence
+    private TreeMap<Long, VoteCheckpoint.Header> checkpointHeaders() {
+        TreeMap<Long, VoteCheckpoint.Header> headers = new TreeMap<>();
+        for (long sequence : sequences(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX)) {
+            try {
+                headers.put(sequence, VoteCheckpoint.header(checkpointFile(sequence)));
+            } catch (IOException e) {
+                // No chain goes through it
+            }
+        }
+        return headers;
+    }
+
+    /**
+     * The checkpoints holding ballots 0 to the end of this one, oldest first:
+     * each starts where the newest earlier one ending there ends, back to one
+     * that starts at 0. Reads headers only; see verifyCheckpoint.
+     * @return null if a link is missing
+     */
+    private static List<Long> chain(long sequence, TreeMap<Long, VoteCheckpoint.Header> headers) {
+        List<Long> chain = new ArrayList<>();
+        VoteCheckpoint.Header header = headers.get(sequence);
+        while (header != null) {
+            chain.add(0, sequence);
+            if (header.first() == 0) return chain;
+            long first = header.first();
+            Map.Entry<Long, VoteCheckpoint.Header> previous = headers.headMap(sequence, false).descendingMap()
+                    .entrySet().stream().filter(e -> e.getValue().end() == first).findFirst().orElse(null);
+            if (previous == null) return null;
+            sequence = previous.getKey();
+            header = previous.getValue();
+        }
+        return null;
+    }
+
+    private boolean verifyCheckpoint(long sequence) {
+        Path file = checkpointFile(sequence);
+        try {
+            if (VoteCheckpoint.verify(file)) return true;
+            System.err.println("Checkpoint " + file + " is damaged; trying an older one.");
+        } catch (IOException e) {
+            System.err.println("Error checking " + file + ": " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * @return True if ballots were journaled after the newest checkpoint,
+     *         so they are in no snapshot file yet.
+     */
+    boolean hasJournalTail() {
+        try {
+            if (Files.exists(journalFile) && Files.size(journalFile) > 0) return true;
+        } catch (IOException e) {
+            return true;
+        }
+        return newest(sequences(SEGMENT_PREFIX, SEGMENT_SUFFIX)) > newest(sequences(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX));
+    }
+
+    private Path checkpointFile(long sequence) {
+        return dataDir.resolve(CHECKPOINT_PREFIX + sequence + CHECKPOINT_SUFFIX);
+    }
+
+    private Path segmentFile(long sequence) {
+        return dataDir.resolve(SEGMENT_PREFIX + sequence + SEGMENT_SUFFIX);
+    }
+
+    // The numbers of the files named prefix<n>suffix in the data directory, newest first
+    private List<Long> sequences(String prefix, String suffix) {
+        List<Long> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dataDir, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    found.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of ours
                 }
             }
         } catch (IOException e) {
-            System.err.println("Error loading candidates: " + e.getMessage());
+            System.err.println("Error listing " + dataDir + ": " + e.getMessage());
         }
-        return candidates;
+        found.sort(Comparator.reverseOrder());
+        return found;
     }
 
-    public void saveCandidates(List<Candidate> candidates) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(CANDIDATES_FILE.toFile()))) {
-            for (Candidate c : candidates) {
-                // Use "|" separator
-                String line = String.join("|", c.getCandidateId(), c.getName(), c.getParty(), c.getPlatform());
-                writer.println(line);
+    private static long newest(List<Long> sequences) {
+        return sequences.isEmpty() ? 0 : sequences.get(0);
+    }
+
+    // --- Precincts ---
+
+    /**
+     * @return The configured precinct IDs, or an empty list for an unsharded election.
+     */
+    public List<String> loadPrecincts() {
+        List<String> precincts = new ArrayList<>();
+        if (!Files.exists(precinctsFile)) return precincts;
+        try (BufferedReader reader = Files.newBufferedReader(precinctsFile)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) precincts.add(line.trim());
             }
         } catch (IOException e) {
-            System.err.println("Error saving candidates: " + e.getMessage());
+            System.err.println("Error loading precincts: " + e.getMessage());
         }
+        return precincts;
     }
 
-    // --- Vote Management ---
-    public List<Vote> loadVotes() {
-        List<Vote> votes = new ArrayList<>();
-        if (!Files.exists(VOTES_FILE)) return votes;
+    public void savePrecincts(List<String> precinctIds) {
+        try {
+            replaceAtomically(precinctsFile, temp -> Files.write(temp, precinctIds));
+        } catch (IOException e) {
+            System.err.println("Error saving precincts: " + e.getMessage());
+        }
+    }
 
-        try (BufferedReader reader = Files.newBufferedReader(VOTES_FILE)) {
+    // --- Published Merkle roots ---
+
+    public List<MerkleLog.PublishedRoot> loadPublishedRoots() {
+        List<MerkleLog.PublishedRoot> roots = new ArrayList<>();
+        if (!Files.exists(rootsFile)) return roots;
+        try (BufferedReader reader = Files.newBufferedReader(rootsFile)) {
             String line;
             while ((line = reader.readLine()) != null) {
                 String[] parts = line.split(",");
-                if (parts.length == 2) {
-                    votes.add(new Vote(parts[0], parts[1]));
+                if (parts.length == 3) {
+                    roots.add(new MerkleLog.PublishedRoot(parts[0], Long.parseLong(parts[1]), parts[2]));
                 }
             }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Error loading published roots: " + e.getMessage());
+        }
+        return roots;
+    }
+
+    public void savePublishedRoots(List<MerkleLog.PublishedRoot> roots) {
+        try {
+            replaceAtomically(rootsFile, temp -> {
+                try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(temp))) {
+                    for (MerkleLog.PublishedRoot root : roots) {
+                        writer.println(root.precinctId() + "," + root.size() + "," + root.root());
+                    }
+                    checkWritten(writer);
+                }
+            });
         } catch (IOException e) {
-            System.err.println("Error loading votes: " + e.getMessage());
+            System.err.println("Error saving published roots: " + e.getMessage());
         }
-        return votes;
     }
 
-    public void saveVotes(List<Vote> votes) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(VOTES_FILE.toFile()))) {
-            for (Vote v : votes) {
-                writer.println(v.getVoterId() + "," + v.getCandidateId());
+    /**
+     * Creates the DataManager holding one precinct's ballots, in
+     * precincts/&lt;id&gt;/ under this data directory. It shares this
+     * manager's metrics, vote format and (if already enabled) group commit.
+     */
+    public DataManager precinctStore(String precinctId) {
+        DataManager store = new DataManager(dataDir.resolve("precincts").resolve(precinctId));
+        store.setMetrics(metrics);
+        store.setBinaryVotes(binaryVotes);
+        synchronized (this) {
+            if (groupCommitter != null) {
+                store.enableGroupCommit(groupCommitBatchSize, groupCommitWaitMicros);
             }
+        }
+        return store;
+    }
+
+    // --- Atomic File Replacement ---
+
+    /**
+     * Produces the full contents of a snapshot file at the given (temporary) path.
+     */
+    interface FileContents {
+        void writeTo(Path file) throws IOException;
+    }
+
+    /**
+     * Writes a snapshot to a temp file next to the target, forces it to disk and
+     * renames it over the target. A crash mid-save leaves the old file or the
+     * new one, never a truncated mix of both.
+     */
+    static void replaceAtomically(Path target, FileContents contents) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            contents.writeTo(temp);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * PrintWriter swallows I/O errors; surface them so a failed write is never renamed into place.
+     */
+    private static void checkWritten(PrintWriter writer) throws IOException {
+        if (writer.checkError()) {
+            throw new IOException("write failed");
+        }
+    }
+
+    // --- Vote Journal ---
+
+    /**
+     * Switches the journal to durable group commit: each appendVote call
+     * returns only once its record has been forced to disk, and concurrent
+     * calls share one write and one force per batch.
+     * @param maxBatchSize Most ballots made durable by one force
+     * @param maxWaitMicros Longest a batch waits to fill before it is written
+     */
+    public synchronized void enableGroupCommit(int maxBatchSize, long maxWaitMicros) {
+        try {
+            disableGroupCommit();
+            if (journalWriter != null) {
+                journalWriter.close();
+                journalWriter = null;
+            }
+            groupCommitter = new GroupCommitter(journalFile, maxBatchSize, maxWaitMicros);
+            groupCommitBatchSize = maxBatchSize;
+            groupCommitWaitMicros = maxWaitMicros;
         } catch (IOException e) {
-            System.err.println("Error saving votes: " + e.getMessage());
+            System.err.println("Error starting group commit: " + e.getMessage());
         }
     }
 
-    // --- State Management ---
-    public ElectionState loadState() {
-        if (!Files.exists(STATE_FILE)) return ElectionState.REGISTRATION;
+    /**
+     * Writes any queued records and goes back to plain buffered appends.
+     */
+    public synchronized void disableGroupCommit() {
+        if (groupCommitter == null) return;
         try {
-            String stateStr = Files.readString(STATE_FILE).trim();
-            return ElectionState.valueOf(stateStr);
-        } catch (Exception e) {
-            return ElectionState.REGISTRATION;
+            groupCommitter.close();
+        } catch (IOException e) {
+            System.err.println("Error stopping group commit: " + e.getMessage());
         }
+        groupCommitter = null;
     }
 
-    public void saveState(ElectionState state) {
+    public boolean isGroupCommitEnabled() { return groupCommitter != null; }
+
+    /**
+     * Closes the journal file, writing any queued records first. A later
+     * appendVote reopens it, with plain buffered appends.
+     */
+    public synchronized void close() {
+        disableGroupCommit();
+        if (journalWriter == null) return;
+        try {
+            journalWriter.close();
+        } catch (IOException e) {
+            System.err.println("Error closing vote journal: " + e.getMessage());
+        }
+        journalWriter = null;
+    }
+
+    /**
+     * Appends one accepted ballot to the journal.
+     * A single record covers both the new Vote and the voter's hasVoted change,
+     * so the cost per vote does not grow with the number of voters or votes.
+     * With group commit enabled this blocks until the record is durable.
+     * @return False if the record could not be written (or forced), so the
+     *         ballot must not be accepted.
+     */
+    public boolean appendVote(Vote vote) {
+        long start = System.nanoTime();
+        String record = JOURNAL_VOTE + "," + vote.getVoterId() + "," + vote.getRankingField();
+        GroupCommitter committer = groupCommitter;
+        boolean written;
+        if (committer != null) {
+            // Wait outside any lock so other voters can join the same batch
+            try {
+                committer.submit(record).join();
+                written = true;
+            } catch (CompletionException e) {
+                System.err.println("Error appending to vote journal: " + e.getCause().getMessage());
+                written = false;
+            }
+        } else {
+            written = appendBuffered(record);
+        }
+        appendTimer.recordSince(start);
+        return written;
+    }
+
+    private synchronized boolean appendBuffered(String record) {
         try {
-            Files.writeString(STATE_FILE, state.toString());
+            if (journalWriter == null) {
+                journalWriter = Files.newBufferedWriter(journalFile,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            journalWriter.write(record);
+            journalWriter.newLine();
+            journalWriter.flush();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error appending to vote journal: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Reads the ballots recorded after the checkpoint forEachStoredVote
+     * loaded (every journal segment if it loaded none), in the order they
+     * were cast. A torn last line (from a crash mid-write) is ignored.
+     */
+    public List<Vote> loadJournal() {
+        long start = System.nanoTime();
+        try {
+            List<Vote> journaled = new ArrayList<>();
+            List<Long> segments = sequences(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            for (int i = segments.size() - 1; i >= 0; i--) {
+                if (segments.get(i) > recoveredSequence) readJournal(segmentFile(segments.get(i)), journaled);
+            }
+            readJournal(journalFile, journaled);
+            return journaled;
+        } finally {
+            metrics.timer(LOAD_JOURNAL).recordSince(start);
+        }
+    }
+
+    private static void readJournal(Path file, List<Vote> journaled) {
+        if (!Files.exists(file)) return;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            // A record is complete once its line ends; "VOTE,v-001,c-00" from a
+            // crash mid-append would otherwise pass for a ballot
+            boolean torn = !endsWithNewline(file);
+            String line = reader.readLine();
+            while (line != null) {
+                String next = reader.readLine();
+                if (next == null && torn) break;
+                String[] parts = line.split(",");
+                if (parts.length == 3 && JOURNAL_VOTE.equals(parts[0])) {
+                    journaled.add(Vote.fromRankingField(parts[1], parts[2]));
+                }
+                line = next;
+            }
         } catch (IOException e) {
-            System.err.println("Error saving state: " + e.getMessage());
+            System.err.println("Error loading vote journal: " + e.getMessage());
+        }
+    }
+
+    private static boolean endsWithNewline(Path file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+            if (in.length() == 0) return true;
+            in.seek(in.length() - 1);
+            return in.read() == '\n';
+        }
+    }
+
+    /**
+     * Discards the journal. Only call this right after a full save,
+     * once every journaled ballot is part of the snapshot files
+     * and no appendVote call is still waiting on group commit.
+     */
+    public synchronized void clearJournal() {
+        long start = System.nanoTime();
+        try {
+            try {
+                if (groupCommitter != null) {
+                    // Keep the committer's channel open; just empty the file
+                    groupCommitter.truncate();
+                    return;
+                }
+                if (journalWriter != null) {
+                    journalWriter.close();
+                    journalWriter = null;
+                }
+                Files.deleteIfExists(journalFile);
+            } catch (IOException e) {
+                System.err.println("Error clearing vote journal: " + e.getMessage());
+            }
+        } finally {
+            metrics.timer(CLEAR_JOURNAL).recordSince(start);
         }
     }
 }
@@ -1,95 +1,718 @@
 package com.electionportal.services;
 
 import com.electionportal.models.*;
+import com.electionportal.services.WriteBehindPersister.Part;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
 
 /**
  * The core logic engine of the application.
  * Manages all collections and business rules.
  * Demonstrates: Collections (List, Map), Encapsulation, Java Streams
+ *
+ * castVote is safe to call from many threads at once. Admin operations
+ * (registration, candidates, state changes) are synchronized on the manager.
+ * Registrations and new candidates are saved in the background (see
+ * WriteBehindPersister); call flush() where a change must be on disk.
+ * Ballots are sharded by precinct (see Precinct and configurePrecincts);
+ * an election without precincts is one precinct in the main data directory.
+ * Each precinct is checkpointed in the background every checkpointInterval
+ * ballots, so a restart replays at most that many journaled ballots.
  */
 public class ElectionManager {
 
+    // How long write-behind collects changes before saving them
+    private static final long WRITE_BEHIND_DELAY_MS = 50;
+
+    // Passwords hashed together in one parallel pass during a bulk import
+    private static final int IMPORT_BATCH_SIZE = 16_384;
+
+    // The only precinct of an unsharded election
+    public static final String DEFAULT_PRECINCT = "main";
+
+    // Journaled ballots per precinct between background checkpoints
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 100_000;
+
+    // For estimateFootprint: retained heap measured on loaded elections of 1k to 400k voters
+    private static final long FOOTPRINT_BASE_BYTES = 64 * 1024;
+    private static final long FOOTPRINT_BYTES_PER_USER = 40 + 4; // + BallotBox's ballot index
+    private static final long FOOTPRINT_BYTES_PER_LOADED_USER = 400;
+    private static final long FOOTPRINT_BYTES_PER_BALLOT = 16;
+
     private DataManager dataManager;
 
     // COLLECTIONS: These lists hold the application's state.
-    private List<User> users;
+    // Users are not held here: userIndex reads them from users.csv on demand
     private List<Candidate> candidates;
-    private List<Vote> votes;
+    // Each precinct holds its voters' ballots, flags and live counters
+    private volatile List<Precinct> precincts = List.of();
+    private volatile Map<String, Precinct> precinctsById = Map.of();
+    // True once precincts are configured (precincts.txt exists)
+    private volatile boolean sharded;
+
+    // Username lookup for login, duplicate checks and voter ID assignment;
+    // builds users from users.csv as they are needed
+    private final UserIndex userIndex = new UserIndex();
+
+    private volatile ElectionState currentState;
+    // Each precinct's Merkle root as of the last close (merkle-roots.csv)
+    private volatile List<MerkleLog.PublishedRoot> publishedRoots = List.of();
 
-    private ElectionState currentState;
+    // Serializes saves. Ballots are guarded by each precinct's own lock instead;
+    // a save that includes votes checkpoints each precinct under its write lock.
+    private final ReadWriteLock persistLock = new ReentrantReadWriteLock();
+
+    // Counters and latency histograms, shared with DataManager and AuthService
+    private final Metrics metrics = new Metrics();
+    // Resolved once; castVote runs on every ballot
+    private final LatencyHistogram castVoteTimer = metrics.timer(Metrics.CAST_VOTE);
+    private final LongAdder votesAccepted = metrics.counter(Metrics.VOTES_ACCEPTED);
+    private final LongAdder votesRejected = metrics.counter(Metrics.VOTES_REJECTED);
+
+    // When true, castVote appends to the vote journal instead of rewriting every file
+    private volatile boolean journalMode = true;
+
+    // Saves routine changes in the background; see changed() and flush().
+    // Made on first use (persister()), so the constructor does not hand out this::flush
+    private volatile WriteBehindPersister persister;
+    // When false, every change rewrites all files before returning, as it used to
+    private volatile boolean writeBehind = true;
+
+    // 0 turns background checkpoints off; the journal then grows until a full save
+    private volatile int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+    // Writes background checkpoints, one at a time
+    private final ThreadPoolExecutor checkpointer = new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), task -> {
+                Thread thread = new Thread(task, "checkpointer");
+                thread.setDaemon(true);
+                return thread;
+            });
 
     public ElectionManager() {
-        this.dataManager = new DataManager();
+        this(new DataManager());
+    }
+
+    public ElectionManager(DataManager dataManager) {
+        this.dataManager = dataManager;
+        // Checkpoints are far apart; the thread exits between them
+        checkpointer.allowCoreThreadTimeOut(true);
+        dataManager.setMetrics(metrics);
         loadAllData();
     }
     
     // --- Public Getters ---
     public ElectionState getCurrentState() { return currentState; }
-    public List<User> getUsers() { return users; }
+    /**
+     * Every registered user, built from users.csv (see UserIndex.getUsers).
+     * For tools and reports; the portal itself only looks users up by name.
+     */
+    public List<User> getUsers() { return userIndex.getUsers(userIndex.size()); }
+    public List<Candidate> getCandidates() { return candidates; }
+    public UserIndex getUserIndex() { return userIndex; }
+    public List<Precinct> getPrecincts() { return precincts; }
+    public boolean isSharded() { return sharded; }
+    public Metrics getMetrics() { return metrics; }
+
+    public boolean isJournalMode() { return journalMode; }
+    public void setJournalMode(boolean journalMode) { this.journalMode = journalMode; }
+
+    public boolean isWriteBehind() { return writeBehind; }
+    public void setWriteBehind(boolean writeBehind) { this.writeBehind = writeBehind; }
+
+    public int getCheckpointInterval() { return checkpointInterval; }
+    public void setCheckpointInterval(int checkpointInterval) { this.checkpointInterval = checkpointInterval; }
 
     
     // --- Data Load/Save ---
     public void loadAllData() {
-        users = dataManager.loadUsers();
-        candidates = dataManager.loadCandidates();
-        votes = dataManager.loadVotes();
-        currentState = dataManager.loadState();
+        long start = System.nanoTime();
+        // Candidates and state are independent of the users, so read them at the same time
+        CompletableFuture<List<Candidate>> loadingCandidates = CompletableFuture.supplyAsync(dataManager::loadCandidates);
+        CompletableFuture<ElectionState> loadingState = CompletableFuture.supplyAsync(dataManager::loadState);
+
+        usePrecincts(dataManager.loadPrecincts());
+        // Only the username index is built; no User objects. Voters get their
+        // dense indexes (by ID) first, so IDs keep their sequential slots.
+        long usersStart = System.nanoTime();
+        try {
+            userIndex.load(dataManager.getUsersFile(), this::addVoterId, this::bindLoaded);
+        } catch (IOException e) {
+            System.err.println("Error loading users: " + e.getMessage());
+        }
+        metrics.timer(DataManager.LOAD_USERS).recordSince(usersStart);
+        // Candidates are read on every ballot and change only during REGISTRATION
+        candidates = new CopyOnWriteArrayList<>(loadingCandidates.join());
+        addCandidatesTo(precincts);
+        // Every precinct has its own vote file, so they load side by side
+        precincts.parallelStream().forEach(Precinct::loadBallots);
+        currentState = loadingState.join();
+        publishedRoots = dataManager.loadPublishedRoots();
+        replayJournals();
+        for (Precinct precinct : precincts) {
+            precinct.resetCounters(candidates);
+        }
 
         // Create a default admin if no users exist
-        if (users.isEmpty()) {
+        if (userIndex.size() == 0) {
             System.out.println("No users found. Creating default admin...");
             System.out.println("Username: admin, Password: password");
             String adminHash = User.simulateHash("password");
-            users.add(new Administrator("a-001", "admin", "Default Admin", adminHash));
+            Administrator admin = new Administrator("a-001", "admin", "Default Admin", adminHash);
+            userIndex.add(admin);
             saveAllData();
         }
+        metrics.timer(Metrics.LOAD_ALL).recordSince(start);
     }
 
+    /**
+     * Rewrites every file now, on the caller's thread, whatever is dirty.
+     */
     public void saveAllData() {
-        dataManager.saveUsers(users);
-        dataManager.saveCandidates(candidates);
-        dataManager.saveVotes(votes);
-        dataManager.saveState(currentState);
+        long start = System.nanoTime();
+        persistLock.writeLock().lock();
+        try {
+            persister().takeDirty(); // All of it is written below
+            writeParts(EnumSet.allOf(Part.class));
+        } finally {
+            persistLock.writeLock().unlock();
+            metrics.timer(Metrics.SAVE_ALL).recordSince(start);
+        }
+    }
+
+    /**
+     * Durability point: returns once every change made before the call is
+     * on disk. Only the files that changed are rewritten. The write-behind
+     * thread calls this too, so a background save already in progress is
+     * waited for rather than overtaken.
+     */
+    public void flush() {
+        long start = System.nanoTime();
+        persistLock.writeLock().lock();
+        try {
+            writeParts(persister().takeDirty());
+        } finally {
+            persistLock.writeLock().unlock();
+            metrics.timer(Metrics.FLUSH).recordSince(start);
+        }
+    }
+
+    /**
+     * Stops the write-behind thread, saves anything still pending and
+     * closes the election's files. The manager must not be used afterwards.
+     */
+    public void close() {
+        // A checkpoint already running is finished, not abandoned
+        checkpointer.shutdown();
+        try {
+            checkpointer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        WriteBehindPersister started = persister;
+        if (started != null) started.close();
+        flush();
+        for (Precinct precinct : precincts) {
+            precinct.getStore().close();
+        }
+        dataManager.close();
+        userIndex.close();
+    }
+
+    private WriteBehindPersister persister() {
+        WriteBehindPersister current = persister;
+        if (current == null) {
+            synchronized (this) {
+                current = persister;
+                if (current == null) {
+                    persister = current = new WriteBehindPersister(this::flush, WRITE_BEHIND_DELAY_MS);
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Records that some collections changed: queued for the write-behind
+     * thread, or (with write-behind off) every file rewritten before returning.
+     */
+    private void changed(Part... parts) {
+        if (writeBehind) {
+            persister().markDirty(parts);
+        } else {
+            saveAllData();
+        }
+    }
+
+    // Call only while holding the persistLock write lock
+    private void writeParts(Set<Part> parts) {
+        if (parts.isEmpty()) return;
+        if (parts.contains(Part.USERS)) {
+            saveUsers();
+        }
+        if (parts.contains(Part.CANDIDATES)) {
+            dataManager.saveCandidates(candidates);
+        }
+        if (parts.contains(Part.VOTES)) {
+            // A full checkpoint per precinct, which lets the chain of smaller ones
+            // before it be deleted, plus votes.csv (or votes.bin) from the same
+            // ballots for VoteRecount and people. Voters' flags are
+            // restored from the ballots, so users.csv need not be rewritten.
+            // Sealed on this thread, since the caller may hold the precinct
+            // locks (verifyStoredTally); then written side by side.
+            List<Precinct> all = precincts;
+            List<Precinct.Seal> seals = new ArrayList<>(all.size());
+            for (Precinct precinct : all) seals.add(precinct.seal(true));
+            IntStream.range(0, all.size()).parallel().forEach(i -> {
+                if (seals.get(i) == null) return;
+                BallotBox.View saved = all.get(i).save(seals.get(i));
+                if (saved != null) all.get(i).getStore().saveVotes(saved.votes());
+            });
+        }
+        if (parts.contains(Part.STATE)) {
+            dataManager.saveState(currentState);
+        }
+    }
+
+    /**
+     * Checkpoints one precinct on the checkpointer thread, if it is due.
+     */
+    private void checkpointIfDue(Precinct precinct) {
+        if (!precinct.checkpointDue(checkpointInterval)) return;
+        try {
+            checkpointer.execute(() -> {
+                try {
+                    precinct.checkpoint();
+                } finally {
+                    precinct.checkpointDone();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            precinct.checkpointDone(); // Closing; the ballots stay in the journal
+        }
+    }
+
+    /**
+     * Rewrites users.csv with every voter's current flag and precinct, which
+     * come from the ballot boxes rather than from User objects.
+     */
+    private void saveUsers() {
+        long start = System.nanoTime();
+        try {
+            userIndex.save(this::savedState);
+        } catch (IOException e) {
+            System.err.println("Error saving users: " + e.getMessage());
+        } finally {
+            metrics.timer(DataManager.SAVE_USERS).recordSince(start);
+        }
+    }
+
+    private UserIndex.VoterState savedState(String voterId) {
+        Precinct precinct = precinctHolding(voterId);
+        if (precinct == null) return null;
+        BallotBox box = precinct.getBallotBox();
+        return new UserIndex.VoterState(box.hasVoted(box.indexOfVoter(voterId)), sharded ? precinct.getId() : null);
+    }
+
+    /**
+     * Applies ballots from each precinct's vote journal on top of the checkpoint
+     * it loaded: only the segments sealed after it, and the open journal.
+     * Voters who are already marked as voted are skipped, so replaying a journal
+     * that was saved but not yet cleared does not count any ballot twice.
+     */
+    private void replayJournals() {
+        for (Precinct precinct : precincts) {
+            for (Vote vote : precinct.getStore().loadJournal()) {
+                // Flags are checked by ID in the ballot boxes; no Voter objects are needed
+                Precinct home = precinctHolding(vote.getVoterId());
+                if (home == null) continue;
+                BallotBox box = home.getBallotBox();
+                if (!box.markVoted(box.indexOfVoter(vote.getVoterId()))) continue;
+                precinct.getBallotBox().addBallot(vote.getVoterId(), vote.getRankingField());
+            }
+        }
+    }
+
+    // --- Precinct Logic ---
+
+    /**
+     * Splits the election into the given precincts, each with its own vote
+     * file and journal under precincts/&lt;id&gt;/ in the data directory.
+     * Voters keep a precinct they are already assigned to if it is still in
+     * the list; everyone else is spread over the precincts by voter ID.
+     * Only during REGISTRATION, before any ballot has been cast.
+     */
+    public synchronized boolean configurePrecincts(List<String> precinctIds) {
+        if (currentState != ElectionState.REGISTRATION) {
+            System.out.println("Error: Can only configure precincts during 'REGISTRATION' phase.");
+            return false;
+        }
+        if (getBallotsCast() > 0) {
+            System.out.println("Error: Precincts cannot change once ballots exist.");
+            return false;
+        }
+        if (precinctIds.isEmpty()) {
+            System.out.println("Error: At least one precinct is required.");
+            return false;
+        }
+        Set<String> unique = new HashSet<>();
+        for (String id : precinctIds) {
+            // IDs become directory names and a users.csv column
+            if (!id.matches("[A-Za-z0-9_-]+") || !unique.add(id)) {
+                System.out.println("Error: Invalid or duplicate precinct ID '" + id + "'.");
+                return false;
+            }
+        }
+
+        persistLock.writeLock().lock();
+        try {
+            List<Precinct> previous = precincts;
+            boolean wasSharded = sharded;
+            dataManager.savePrecincts(precinctIds);
+            usePrecincts(precinctIds);
+            addCandidatesTo(precincts);
+            // Voters move by ID, flag and all; most of them are not in memory as objects
+            for (Precinct from : previous) {
+                String assigned = wasSharded ? from.getId() : null;
+                from.getBallotBox().forEachVoter((voterId, hasVoted) -> {
+                    BallotBox box = precinctOf(voterId, assigned).getBallotBox();
+                    box.setVoted(box.addVoterId(voterId), hasVoted);
+                });
+            }
+            // Then the Voter objects that are, so none points at a replaced box
+            userIndex.forEachLoaded(user -> {
+                if (user instanceof Voter v) bindLoaded(v);
+            });
+        } finally {
+            persistLock.writeLock().unlock();
+        }
+        changed(Part.USERS);
+        return true;
+    }
+
+    private void usePrecincts(List<String> precinctIds) {
+        List<Precinct> built = new ArrayList<>();
+        if (precinctIds.isEmpty()) {
+            // Unsharded: the one precinct keeps its ballots in the main data directory
+            built.add(new Precinct(DEFAULT_PRECINCT, dataManager));
+        } else {
+            for (String id : precinctIds) {
+                built.add(new Precinct(id, dataManager.precinctStore(id)));
+            }
+        }
+        Map<String, Precinct> byId = new HashMap<>();
+        for (Precinct precinct : built) {
+            byId.put(precinct.getId(), precinct);
+        }
+        precinctsById = byId;
+        precincts = List.copyOf(built);
+        sharded = !precinctIds.isEmpty();
+    }
+
+    private void addCandidatesTo(List<Precinct> targets) {
+        for (Precinct precinct : targets) {
+            for (Candidate c : candidates) {
+                precinct.addCandidate(c.getCandidateId());
+            }
+        }
+    }
+
+    /**
+     * The precinct a voter's ballot goes to: the one they are assigned to,
+     * or, if none (or it no longer exists), one picked from their voter ID.
+     */
+    private Precinct precinctOf(Voter voter) {
+        return precinctOf(voter.getUserId(), voter.getPrecinctId());
+    }
+
+    private Precinct precinctOf(String voterId, String assigned) {
+        List<Precinct> all = precincts;
+        if (all.size() == 1) return all.get(0);
+        Precinct precinct = assigned == null ? null : precinctsById.get(assigned);
+        return precinct != null ? precinct : all.get(Math.floorMod(voterId.hashCode(), all.size()));
+    }
+
+    /**
+     * @return The precinct whose ballot box has this voter ID, or null if none does.
+     */
+    private Precinct precinctHolding(String voterId) {
+        for (Precinct precinct : precincts) {
+            if (precinct.getBallotBox().indexOfVoter(voterId) >= 0) return precinct;
+        }
+        return null;
+    }
+
+    /**
+     * Registers a voter from users.csv in their precinct's ballot box by ID
+     * (see UserIndex.load); the Voter object is bound later, if ever needed.
+     */
+    private void addVoterId(String voterId, boolean hasVoted, String precinctId) {
+        BallotBox box = precinctOf(voterId, precinctId).getBallotBox();
+        box.setVoted(box.addVoterId(voterId), hasVoted);
+    }
+
+    /**
+     * Binds a Voter read from users.csv to the ballot box that already has
+     * their ID. The box, not the file, says which precinct they are in, since
+     * precincts may have been reassigned since the file was last saved.
+     */
+    private void bindLoaded(Voter voter) {
+        Precinct precinct = precinctHolding(voter.getUserId());
+        if (precinct == null) {
+            assignPrecinct(voter);
+            return;
+        }
+        voter.setPrecinctId(sharded ? precinct.getId() : null);
+        precinct.getBallotBox().addVoter(voter);
+    }
+
+    /**
+     * Binds a voter to their precinct's ballot box and, in a sharded
+     * election, records the assignment so it is saved in users.csv.
+     */
+    private void assignPrecinct(Voter voter) {
+        Precinct precinct = precinctOf(voter);
+        if (sharded) voter.setPrecinctId(precinct.getId());
+        precinct.getBallotBox().addVoter(voter);
+    }
+
+    // Always in list order, so two threads locking every precinct cannot deadlock
+    private void lockPrecincts() {
+        for (Precinct precinct : precincts) {
+            precinct.getLock().writeLock().lock();
+        }
+    }
+
+    private void unlockPrecincts() {
+        for (Precinct precinct : precincts) {
+            precinct.getLock().writeLock().unlock();
+        }
     }
 
     // --- State Logic ---
-    public boolean changeState(ElectionState newState) {
+    public synchronized boolean changeState(ElectionState newState) {
         if (newState == currentState) return false;
-        currentState = newState;
+        // Ballots being added finish first; later ones see the new state
+        // (Precinct.accept), so none lands after the save or the published roots
+        lockPrecincts();
+        try {
+            currentState = newState;
+        } finally {
+            unlockPrecincts();
+        }
         saveAllData();
+        if (newState == ElectionState.CLOSED) publishRoots();
+        return true;
+    }
+
+    // --- Merkle Log ---
+
+    /**
+     * Publishes every precinct's Merkle root to merkle-roots.csv, all taken
+     * at the same instant. Voters' inclusion proofs are against these.
+     */
+    private void publishRoots() {
+        List<MerkleLog.PublishedRoot> roots = new ArrayList<>();
+        lockPrecincts();
+        try {
+            for (Precinct precinct : precincts) roots.add(precinct.merkleRoot());
+        } finally {
+            unlockPrecincts();
+        }
+        dataManager.savePublishedRoots(roots);
+        publishedRoots = List.copyOf(roots);
+    }
+
+    /**
+     * @return The roots published when the election last closed; empty before that.
+     */
+    public List<MerkleLog.PublishedRoot> getPublishedRoots() { return publishedRoots; }
+
+    /**
+     * Proves the voter's ballot is in their precinct's tree: the published
+     * one once the election has closed, else the tree of every ballot so far.
+     * @return The proof, or null if the voter has no ballot in that tree.
+     */
+    public MerkleLog.Proof proveBallot(Voter voter) {
+        Precinct precinct = precinctOf(voter);
+        MerkleLog.PublishedRoot published = currentState == ElectionState.CLOSED ? publishedRoot(precinct) : null;
+        return precinct.prove(voter.getUserId(), published == null ? -1 : published.size());
+    }
+
+    /**
+     * Full check of the vote log: rehashes every precinct's ballots in
+     * parallel and compares the roots with the incremental trees and the
+     * published roots.
+     */
+    public boolean verifyVoteLog() {
+        for (Precinct precinct : precincts) {
+            if (!precinct.verifyMerkleLog(publishedRoot(precinct))) return false;
+        }
         return true;
     }
 
+    private MerkleLog.PublishedRoot publishedRoot(Precinct precinct) {
+        for (MerkleLog.PublishedRoot root : publishedRoots) {
+            if (root.precinctId().equals(precinct.getId())) return root;
+        }
+        return null;
+    }
+
     // --- Voter Logic ---
     public boolean registerVoter(String username, String fullName, String password) {
+        return registerVoter(username, fullName, password, null);
+    }
+
+    /**
+     * @param precinctId The voter's precinct, or null to assign one automatically
+     */
+    public synchronized boolean registerVoter(String username, String fullName, String password, String precinctId) {
+        long start = System.nanoTime();
+        boolean registered = addVoter(username, fullName, password, precinctId);
+        metrics.increment(registered ? Metrics.REGISTRATIONS : Metrics.REGISTRATION_FAILURES);
+        metrics.timer(Metrics.REGISTER_VOTER).recordSince(start);
+        return registered;
+    }
+
+    private boolean addVoter(String username, String fullName, String password, String precinctId) {
         if (currentState != ElectionState.REGISTRATION) {
             System.out.println("Error: Can only register voters during 'REGISTRATION' phase.");
             return false;
         }
+        if (precinctId != null && (!sharded || !precinctsById.containsKey(precinctId))) {
+            System.out.println("Error: Unknown precinct '" + precinctId + "'.");
+            return false;
+        }
         
-        // Use Java Streams to check if user exists
-        boolean userExists = users.stream()
-                .anyMatch(u -> u.getUsername().equalsIgnoreCase(username));
-
-        if (userExists) {
+        // The index answers both questions without scanning the user list
+        if (userIndex.contains(username)) {
             System.out.println("Error: Username already exists.");
             return false;
         }
 
-        // Use Java Streams to get count for new ID
-        long voterCount = users.stream().filter(u -> u instanceof Voter).count();
-        String newId = String.format("v-%03d", voterCount + 1);
+        String newId = userIndex.nextVoterId();
         String hash = User.simulateHash(password);
-        users.add(new Voter(newId, username, fullName, hash, false));
-        saveAllData();
+        Voter voter = new Voter(newId, username, fullName, hash, false);
+        voter.setPrecinctId(precinctId);
+        userIndex.add(voter);
+        assignPrecinct(voter);
+        changed(Part.USERS);
         return true;
     }
 
+    /**
+     * Registers every voter in a roll file at once. Each line is
+     * "username,fullName,password"; a "username,..." header line is skipped.
+     * The file is streamed and passwords are hashed in parallel batches.
+     * Malformed rows and duplicate usernames (within the file or against
+     * existing users) are skipped and listed in the report. Accepted voters
+     * get consecutive IDs and everything is saved once, at the end.
+     * If the file cannot be read, nobody is registered.
+     */
+    public synchronized ImportReport importVoters(Path rollFile) {
+        long start = System.nanoTime();
+        ImportReport report = new ImportReport();
+        if (currentState != ElectionState.REGISTRATION) {
+            report.fail("Can only register voters during 'REGISTRATION' phase.");
+            return report;
+        }
+
+        List<String> usernames = new ArrayList<>();
+        List<String> fullNames = new ArrayList<>();
+        List<String> hashes = new ArrayList<>();
+        List<String> pendingPasswords = new ArrayList<>(IMPORT_BATCH_SIZE);
+        Set<String> seen = new HashSet<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(rollFile)) {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) continue;
+                if (lineNumber == 1 && line.toLowerCase(Locale.ROOT).startsWith("username,")) continue;
+
+                // The password is the last field, so it may itself contain commas
+                String[] parts = line.split(",", 3);
+                String username = parts[0].trim();
+                if (parts.length < 3) {
+                    report.addError(lineNumber, username, "Expected username,fullName,password.");
+                    continue;
+                }
+                String fullName = parts[1].trim();
+                String password = parts[2];
+                if (username.isEmpty() || fullName.isEmpty() || password.isEmpty()) {
+                    report.addError(lineNumber, username, "Username, full name and password are all required.");
+                } else if (userIndex.contains(username)) {
+                    report.addError(lineNumber, username, "Username already exists.");
+                } else if (!seen.add(UserIndex.key(username))) {
+                    report.addError(lineNumber, username, "Username appears more than once in the file.");
+                } else {
+                    usernames.add(username);
+                    fullNames.add(fullName);
+                    pendingPasswords.add(password);
+                    if (pendingPasswords.size() == IMPORT_BATCH_SIZE) {
+                        hashBatch(pendingPasswords, hashes);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            report.fail("Could not read roll file: " + e.getMessage());
+            return report;
+        }
+        hashBatch(pendingPasswords, hashes);
+
+        // One ID sequence for the whole file, continuing from the existing voters
+        for (int i = 0; i < usernames.size(); i++) {
+            Voter voter = new Voter(userIndex.nextVoterId(), usernames.get(i), fullNames.get(i), hashes.get(i), false);
+            userIndex.add(voter);
+            assignPrecinct(voter);
+        }
+        report.setImported(usernames.size());
+        if (!usernames.isEmpty()) {
+            // A whole roll is worth waiting for: save it before reporting success
+            persister().markDirty(Part.USERS);
+            flush();
+        }
+
+        metrics.counter(Metrics.REGISTRATIONS).add(usernames.size());
+        metrics.counter(Metrics.REGISTRATION_FAILURES).add(report.getErrors().size());
+        metrics.timer(Metrics.IMPORT_VOTERS).recordSince(start);
+        return report;
+    }
+
+    /**
+     * Hashes the pending passwords on all cores, appends the results and clears the batch.
+     */
+    private static void hashBatch(List<String> passwords, List<String> hashes) {
+        String[] batch = new String[passwords.size()];
+        Arrays.parallelSetAll(batch, i -> User.simulateHash(passwords.get(i)));
+        hashes.addAll(Arrays.asList(batch));
+        passwords.clear();
+    }
+
     // --- Candidate Logic ---
-    public boolean addCandidate(String name, String party, String platform) {
+    public synchronized boolean addCandidate(String name, String party, String platform) {
         if (currentState != ElectionState.REGISTRATION) {
             System.out.println("Error: Can only add candidates during 'REGISTRATION' phase.");
             return false;
@@ -105,12 +728,32 @@ public class ElectionManager {
 
         String newId = String.format("c-%03d", candidates.size() + 1);
         candidates.add(new Candidate(newId, name, party, platform));
-        saveAllData();
+        for (Precinct precinct : precincts) {
+            precinct.addCandidate(newId);
+        }
+        changed(Part.CANDIDATES);
         return true;
     }
 
     // --- Voting Logic ---
     public boolean castVote(Voter voter, String candidateId) {
+        return castVote(voter, List.of(candidateId));
+    }
+
+    /**
+     * Casts a ranked ballot for an instant-runoff count (see tallyRunoff).
+     * The plurality tally counts it for its first preference.
+     * @param ranking Candidate IDs, most preferred first; no repeats
+     */
+    public boolean castVote(Voter voter, List<String> ranking) {
+        long start = System.nanoTime();
+        boolean accepted = recordVote(voter, ranking);
+        (accepted ? votesAccepted : votesRejected).increment();
+        castVoteTimer.recordSince(start);
+        return accepted;
+    }
+
+    private boolean recordVote(Voter voter, List<String> ranking) {
         if (currentState != ElectionState.VOTING) {
             System.out.println("Error: Voting is not currently open.");
             return false;
@@ -120,23 +763,65 @@ public class ElectionManager {
             return false;
         }
         
-        Candidate candidate = candidates.stream()
-                .filter(c -> c.getCandidateId().equals(candidateId))
-                .findFirst()
-                .orElse(null);
+        String rankingError = rankingError(ranking);
+        if (rankingError != null) {
+            System.out.println("Error: " + rankingError);
+            return false;
+        }
+
+        // A Voter object held across configurePrecincts (e.g. by a session) may
+        // still point at a ballot box that was replaced; move it to the current one
+        Precinct precinct = precinctOf(voter);
+        if (voter.getBallotBox() != precinct.getBallotBox()) {
+            bindLoaded(voter);
+            precinct = precinctOf(voter);
+        }
 
-        if (candidate == null) {
-            System.out.println("Error: Invalid Candidate ID.");
+        // Mark voter as having voted. This compare-and-set on the voter's own flag
+        // is the double-vote guard: of any concurrent attempts by the same voter
+        // exactly one wins, and different voters never contend with each other.
+        if (!voter.markVoted()) {
+            System.out.println("Error: You have already cast your vote.");
             return false;
         }
 
         // Cast the vote
-        votes.add(new Vote(voter.getUserId(), candidate.getCandidateId()));
-        voter.setHasVoted(true); // Mark voter as having voted
-        saveAllData(); // Save votes and updated user status
+        // Only the voter's own precinct is touched: its lock, counters and journal
+        Vote vote = new Vote(voter.getUserId(), ranking);
+        boolean journal = journalMode;
+        if (!precinct.accept(vote, journal, () -> currentState == ElectionState.VOTING)) {
+            // Closed meanwhile, or the journal could not be written: the ballot was not counted
+            voter.setHasVoted(false);
+            System.out.println(currentState != ElectionState.VOTING ? "Error: Voting is not currently open."
+                    : "Error: Your vote could not be recorded. Please try again.");
+            return false;
+        }
+        if (journal) {
+            checkpointIfDue(precinct);
+        } else {
+            changed(Part.USERS, Part.VOTES); // Save votes and updated user status; flush() to wait for it
+        }
         return true;
     }
 
+    /**
+     * @return Whether castVote would take this ranking: known candidate IDs, none repeated.
+     */
+    public boolean isValidRanking(List<String> ranking) {
+        return rankingError(ranking) == null;
+    }
+
+    private String rankingError(List<String> ranking) {
+        if (ranking.isEmpty() || new HashSet<>(ranking).size() != ranking.size()) {
+            return "A ranking must list each candidate at most once.";
+        }
+        for (String candidateId : ranking) {
+            boolean known = candidates.stream().anyMatch(c -> c.getCandidateId().equals(candidateId));
+            if (!known) return "Invalid Candidate ID.";
+        }
+        return null;
+    }
+
     // --- Tally Logic ---
     public Map<String, Integer> tallyVotes() {
         if (currentState != ElectionState.CLOSED) {
@@ -144,21 +829,191 @@ public class ElectionManager {
             return null;
         }
 
-        // This is an "impressive" and modern Java 8+ way to tally votes.
-        
-        // 1. Group all votes by candidateId and count them.
-        Map<String, Long> voteCounts = votes.stream()
-                .collect(Collectors.groupingBy(
-                        Vote::getCandidateId, 
-                        Collectors.counting()
-                ));
+        // The counters are already up to date, so this is O(candidates x precincts), not O(votes).
+        // Candidates with 0 votes are included.
+        long start = System.nanoTime();
+        List<Candidate> slate = List.copyOf(candidates);
+        long[] totals = precincts.parallelStream()
+                .map(precinct -> precinct.countsFor(slate))
+                .reduce(ElectionManager::sumCounts)
+                .orElseGet(() -> new long[slate.size()]);
+        Map<String, Integer> results = new LinkedHashMap<>();
+        for (int i = 0; i < slate.size(); i++) {
+            results.put(slate.get(i).getName(), (int) totals[i]);
+        }
+        metrics.timer(Metrics.TALLY).recordSince(start);
+        return results;
+    }
+
+    private static long[] sumCounts(long[] a, long[] b) {
+        long[] sum = new long[a.length];
+        for (int i = 0; i < sum.length; i++) {
+            sum[i] = a[i] + b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Instant-runoff count over every precinct's ballots. Each precinct groups
+     * its identical rankings first, so the rounds work on distinct rankings
+     * rather than individual ballots. Plain ballots take part as
+     * one-candidate rankings.
+     * @return The rounds and winner, or null if the election is not CLOSED.
+     */
+    public InstantRunoff.Result tallyRunoff() {
+        if (currentState != ElectionState.CLOSED) {
+            System.out.println("Error: Cannot tally votes until the election is 'CLOSED'.");
+            return null;
+        }
+        long start = System.nanoTime();
+        InstantRunoff runoff = new InstantRunoff(candidates);
+        for (Precinct precinct : precincts) {
+            precinct.getBallotBox().addRankingsTo(runoff);
+        }
+        InstantRunoff.Result result = runoff.run();
+        metrics.timer(Metrics.TALLY_RUNOFF).recordSince(start);
+        return result;
+    }
 
-        // 2. Map candidate IDs to candidate Names, including those with 0 votes.
-        return candidates.stream()
-                .collect(Collectors.toMap(
-                        Candidate::getName, // Key is the candidate's name
-                        c -> voteCounts.getOrDefault(c.getCandidateId(), 0L).intValue() // Value is their vote count
-                ));
+    /**
+     * @return True if any ballot ranks more than one candidate.
+     */
+    public boolean hasRankedBallots() {
+        for (Precinct precinct : precincts) {
+            if (precinct.getBallotBox().hasRankedBallots()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Results per precinct, in precinct order.
+     * @return precinct ID -> (candidate name -> votes), or null if the election is not CLOSED.
+     */
+    public Map<String, Map<String, Integer>> tallyByPrecinct() {
+        if (currentState != ElectionState.CLOSED) {
+            System.out.println("Error: Cannot tally votes until the election is 'CLOSED'.");
+            return null;
+        }
+        Map<String, Map<String, Integer>> results = new LinkedHashMap<>();
+        for (Precinct precinct : precincts) {
+            results.put(precinct.getId(), precinct.results(candidates));
+        }
+        return results;
+    }
+
+    /**
+     * Live turnout while voting is open. Reads the counters only, no scan.
+     * @return Ballots cast so far.
+     */
+    public long getBallotsCast() {
+        long total = 0;
+        for (Precinct precinct : precincts) {
+            total += precinct.getBallotsCast();
+        }
+        return total;
+    }
+
+    public int getRegisteredVoterCount() { return userIndex.getVoterCount(); }
+
+    /**
+     * Rough heap held by this election, worked out from its counts: the
+     * username index and ballot columns grow with the users and ballots,
+     * plus the User objects in memory. Used by ElectionRegistry to keep many
+     * elections under one budget; an estimate, not a measurement.
+     */
+    public long estimateFootprint() {
+        return FOOTPRINT_BASE_BYTES
+                + (long) userIndex.size() * FOOTPRINT_BYTES_PER_USER
+                + (long) userIndex.loadedCount() * FOOTPRINT_BYTES_PER_LOADED_USER
+                + getBallotsCast() * FOOTPRINT_BYTES_PER_BALLOT;
+    }
+
+    /**
+     * One page of the user directory (see UserDirectory.find).
+     */
+    public UserDirectory.Page findUsers(UserDirectory.Match match, String query, String after, int limit) {
+        return userIndex.getDirectory().find(match, query, after, limit);
+    }
+
+    /**
+     * A consistent, point-in-time view for reports (see ElectionSnapshot).
+     * Voting pauses only while the counters are copied: every precinct's
+     * ballot box monitor is held, in precinct order, for O(candidates).
+     */
+    public ElectionSnapshot snapshot() {
+        List<Precinct> current = precincts;
+        List<Candidate> slate = List.copyOf(candidates);
+        ElectionSnapshot.PrecinctView[] views = new ElectionSnapshot.PrecinctView[current.size()];
+        captureAll(current, 0, slate, views);
+        return new ElectionSnapshot(currentState, slate, List.of(views), userIndex, userIndex.size(),
+                getRegisteredVoterCount());
+    }
+
+    // Nests the monitors so every precinct is captured at the same instant
+    private static void captureAll(List<Precinct> all, int i, List<Candidate> slate,
+                                   ElectionSnapshot.PrecinctView[] views) {
+        if (i == all.size()) return;
+        Precinct precinct = all.get(i);
+        synchronized (precinct.getBallotBox()) {
+            views[i] = precinct.capture(slate);
+            captureAll(all, i + 1, slate, views);
+        }
+    }
+
+    /**
+     * Audit: saves a fresh snapshot and recounts the saved vote file
+     * (without building Vote objects), then compares it with the live counters.
+     */
+    public boolean verifyStoredTally() {
+        persistLock.writeLock().lock();
+        lockPrecincts();
+        try {
+            saveAllData();
+            return precincts.parallelStream().allMatch(Precinct::countersMatchStore);
+        } finally {
+            unlockPrecincts();
+            persistLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Audit: saves a fresh snapshot, then checks users.csv against the saved
+     * ballots (see IntegrityAudit). Voting pauses only for the save; saves
+     * wait until the audit has read the files.
+     * @return The report, or null if the files could not be read.
+     */
+    public IntegrityAudit.Report auditIntegrity() {
+        persistLock.writeLock().lock();
+        try {
+            // Flags and ballots are saved at the same instant
+            lockPrecincts();
+            try {
+                saveAllData();
+            } finally {
+                unlockPrecincts();
+            }
+            return IntegrityAudit.run(dataManager.getDataDir(), false);
+        } catch (IOException e) {
+            System.err.println("Error auditing data: " + e.getMessage());
+            return null;
+        } finally {
+            persistLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Consistency check: compares the live counters against a full recount of every vote.
+     */
+    public boolean verifyTally() {
+        // Hold off new ballots so the counters and the vote list describe the same moment
+        long start = System.nanoTime();
+        lockPrecincts();
+        try {
+            return precincts.parallelStream().allMatch(Precinct::countersMatchBallots);
+        } finally {
+            unlockPrecincts();
+            metrics.timer(Metrics.VERIFY_TALLY).recordSince(start);
+        }
     }
 
     // --- Display Helpers ---
@@ -172,15 +1027,4 @@ public class ElectionManager {
         }
         System.out.println("---------------------------\n");
     }
-
-    public void displayUsers() {
-        System.out.println("\n--- Registered Users ---");
-        for (User user : users) {
-            System.out.println("  ID: " + user.getUserId() + " | Type: " + user.getUserType() + " | Name: " + user.getFullName() + " | Username: " + user.getUsername());
-            if (user instanceof Voter v) {
-                System.out.println("     Has Voted: " + v.hasVoted());
-            }
-        }
-        System.out.println("------------------------\n");
-    }
 }
@@ -0,0 +1,361 @@
+package com.electionportal.services;
+
+import com.electionportal.models.ElectionState;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Hosts many elections in one process. Each election is a directory under
+ * the root (elections/&lt;id&gt;/, laid out like data/) with its own
+ * ElectionManager and AuthService, loaded on first access.
+ *
+ * Loaded elections are kept in least-recently-used order. One unused for
+ * longer than the idle timeout is unloaded; and while their estimated
+ * footprint (ElectionManager.estimateFootprint) is over the memory budget,
+ * the least recently used are unloaded, CLOSED ones first. One in active
+ * use (within ACTIVE_MILLIS) is only unloaded for the budget if CLOSED:
+ * going over budget is cheaper than reloading a busy election per request.
+ * Unloading saves and closes the election; the next access loads it again.
+ * An election is never unloaded while someone holds a lease on it.
+ * A daemon thread sweeps for idle elections, so they are unloaded even when
+ * no more requests come. A loaded election's own threads (checkpoints,
+ * saves, password hashing) exit when unused, so an idle one holds none.
+ * Demonstrates: Lazy Loading, LRU Caching (LinkedHashMap), Concurrency
+ */
+public final class ElectionRegistry implements AutoCloseable {
+
+    public static final String DEFAULT_ROOT = "elections";
+    public static final long DEFAULT_IDLE_MILLIS = 10 * 60_000;
+    // An election not yet CLOSED, used this recently, is not unloaded to make room
+    public static final long ACTIVE_MILLIS = 1_000;
+
+    /**
+     * Access to one loaded election. It stays loaded until the lease is
+     * closed, so close it as soon as the request is done.
+     */
+    public final class Lease implements AutoCloseable {
+        private final Entry entry;
+        private final ElectionManager manager;
+        private final AuthService auth;
+        private final long generation;
+        private boolean closed;
+
+        private Lease(Entry entry) {
+            this.entry = entry;
+            this.manager = entry.manager;
+            this.auth = entry.auth;
+            this.generation = entry.generation;
+        }
+
+        public String id() { return entry.id; }
+        public ElectionManager manager() { return manager; }
+        public AuthService auth() { return auth; }
+
+        /**
+         * @return A number that changes each time the election is loaded again,
+         *         so state tied to a previous load (e.g. a session) can be told apart.
+         */
+        public long generation() { return generation; }
+
+        @Override
+        public void close() {
+            synchronized (ElectionRegistry.this) {
+                if (closed) return;
+                closed = true;
+            }
+            release(entry, manager);
+        }
+    }
+
+    /**
+     * One loaded election, as reported by loaded().
+     */
+    public record Status(String id, ElectionState state, long footprint, long idleMillis, int leases) {}
+
+    private static final class Entry {
+        final String id;
+        final Path dir;
+        // Written under the registry lock, while also holding this entry's lock to load or unload
+        ElectionManager manager;
+        AuthService auth;
+        long generation;
+        long footprint;
+        // Guarded by the registry lock
+        int leases;
+        long lastUsed;
+        boolean unloading;
+
+        Entry(String id, Path dir) {
+            this.id = id;
+            this.dir = dir;
+        }
+    }
+
+    private final Path root;
+    private final long budgetBytes;
+    private final long idleMillis;
+
+    // Every election touched so far, least recently used first; unloaded ones have no manager
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Sum of the footprints of the loaded elections
+    private long loadedBytes;
+    private long generations;
+    // Unloads idle elections between requests
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("election-sweeper").daemon().factory());
+
+    public ElectionRegistry(Path root) {
+        this(root, Runtime.getRuntime().maxMemory() / 2, DEFAULT_IDLE_MILLIS);
+    }
+
+    /**
+     * @param budgetBytes Estimated heap the loaded elections may use together
+     * @param idleMillis  How long an election may go unused before it is unloaded
+     */
+    public ElectionRegistry(Path root, long budgetBytes, long idleMillis) {
+        this.root = root;
+        this.budgetBytes = budgetBytes;
+        this.idleMillis = idleMillis;
+        long sweepMillis = Math.max(ACTIVE_MILLIS, idleMillis / 4);
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void sweep() {
+        try {
+            unloadSurplus(null);
+        } catch (RuntimeException e) {
+            // An exception would cancel the schedule; report it and sweep again next time
+            System.err.println("Error unloading idle elections: " + e.getMessage());
+        }
+    }
+
+    public Path getRoot() { return root; }
+
+    /**
+     * @return True if id can name an election: letters, digits, '-' and '_'.
+     */
+    public static boolean isValidId(String id) {
+        return id != null && id.matches("[A-Za-z0-9_-]+");
+    }
+
+    /**
+     * @return The IDs of every election under the root, loaded or not, sorted.
+     */
+    public List<String> list() {
+        if (!Files.isDirectory(root)) return List.of();
+        try (Stream<Path> dirs = Files.list(root)) {
+            return dirs.filter(Files::isDirectory)
+                    .map(dir -> dir.getFileName().toString())
+                    .filter(ElectionRegistry::isValidId)
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            System.err.println("Error listing elections: " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Creates the directory of a new election. It is set up (with the
+     * default admin) when first acquired.
+     * @return False if the ID is invalid or taken, or the directory could not be made.
+     */
+    public boolean create(String id) {
+        if (!isValidId(id)) {
+            System.out.println("Error: Invalid election ID '" + id + "'.");
+            return false;
+        }
+        try {
+            Files.createDirectories(root);
+            Files.createDirectory(root.resolve(id));
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error: Could not create election '" + id + "': " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Loads the election if needed and leases it.
+     * @return The lease, or null if there is no such election.
+     */
+    public Lease acquire(String id) {
+        if (!isValidId(id) || !Files.isDirectory(root.resolve(id))) return null;
+        Entry entry;
+        synchronized (this) {
+            entry = entries.computeIfAbsent(id, key -> new Entry(key, root.resolve(key)));
+            entry.leases++;
+        }
+        // Loading and unloading one election never holds up the others
+        Lease lease;
+        synchronized (entry) {
+            if (entry.manager == null) {
+                try {
+                    load(entry);
+                } catch (RuntimeException e) {
+                    synchronized (this) {
+                        entry.leases--;
+                    }
+                    throw e;
+                }
+            }
+            synchronized (this) {
+                lease = new Lease(entry);
+            }
+        }
+        unloadSurplus(entry);
+        return lease;
+    }
+
+    // Call holding the entry's lock
+    private void load(Entry entry) {
+        DataManager dataManager = new DataManager(entry.dir);
+        dataManager.enableGroupCommit(DataManager.GROUP_COMMIT_BATCH_SIZE, DataManager.GROUP_COMMIT_WAIT_MICROS);
+        ElectionManager manager = new ElectionManager(dataManager);
+        AuthService auth = new AuthService(manager.getUserIndex(), manager.getMetrics());
+        long footprint = manager.estimateFootprint();
+        synchronized (this) {
+            entry.manager = manager;
+            entry.auth = auth;
+            entry.generation = ++generations;
+            entry.footprint = footprint;
+            loadedBytes += footprint;
+        }
+    }
+
+    private void release(Entry entry, ElectionManager manager) {
+        long footprint = manager.estimateFootprint();
+        synchronized (this) {
+            entry.leases--;
+            entry.lastUsed = System.currentTimeMillis();
+            entries.get(entry.id); // Most recently used
+            if (entry.manager == manager) {
+                loadedBytes += footprint - entry.footprint;
+                entry.footprint = footprint;
+            }
+        }
+        unloadSurplus(entry);
+    }
+
+    /**
+     * Unloads the elections idle for too long, then, while over budget, the
+     * least recently used: CLOSED ones first, then any not in active use.
+     * The one just used (keep; null from the sweep) is kept, so an election
+     * bigger than the whole budget still works.
+     */
+    private void unloadSurplus(Entry keep) {
+        List<Entry> victims = new ArrayList<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            long projected = loadedBytes;
+            for (Entry entry : entries.values()) {
+                if (!unloadable(entry, keep)) continue;
+                if (now - entry.lastUsed < idleMillis) break; // Access order: the rest are more recent
+                projected = choose(entry, projected, victims);
+            }
+            for (int pass = 0; pass < 2 && projected > budgetBytes; pass++) {
+                Iterator<Entry> lru = entries.values().iterator();
+                while (projected > budgetBytes && lru.hasNext()) {
+                    Entry entry = lru.next();
+                    if (!unloadable(entry, keep)) continue;
+                    boolean closed = entry.manager.getCurrentState() == ElectionState.CLOSED;
+                    if (pass == 0 ? !closed : now - entry.lastUsed < ACTIVE_MILLIS) continue;
+                    projected = choose(entry, projected, victims);
+                }
+            }
+        }
+        for (Entry victim : victims) {
+            unload(victim);
+        }
+    }
+
+    // Call holding the registry lock
+    private boolean unloadable(Entry entry, Entry keep) {
+        return entry != keep && entry.manager != null && entry.leases == 0 && !entry.unloading;
+    }
+
+    private static long choose(Entry entry, long projected, List<Entry> victims) {
+        entry.unloading = true;
+        victims.add(entry);
+        return projected - entry.footprint;
+    }
+
+    /**
+     * Saves and closes one election, unless it was leased again meanwhile.
+     */
+    private void unload(Entry entry) {
+        synchronized (entry) {
+            ElectionManager manager;
+            synchronized (this) {
+                entry.unloading = false;
+                if (entry.leases > 0 || entry.manager == null) return;
+                manager = entry.manager;
+                entry.manager = null;
+                entry.auth = null;
+                loadedBytes -= entry.footprint;
+                entry.footprint = 0;
+            }
+            manager.close();
+        }
+    }
+
+    /**
+     * @return The loaded elections, least recently used first.
+     */
+    public synchronized List<Status> loaded() {
+        long now = System.currentTimeMillis();
+        List<Status> loaded = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.manager == null) continue;
+            loaded.add(new Status(entry.id, entry.manager.getCurrentState(), entry.footprint,
+                    entry.leases > 0 ? 0 : now - entry.lastUsed, entry.leases));
+        }
+        return loaded;
+    }
+
+    /**
+     * @return The estimated heap of the loaded elections together.
+     */
+    public synchronized long getLoadedBytes() { return loadedBytes; }
+
+    public long getBudgetBytes() { return budgetBytes; }
+
+    /**
+     * @return How many times an election has been loaded, reloads included.
+     */
+    public synchronized long getLoads() { return generations; }
+
+    /**
+     * Saves and closes every loaded election, leased or not.
+     */
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        List<Entry> all;
+        synchronized (this) {
+            all = new ArrayList<>(entries.values());
+        }
+        for (Entry entry : all) {
+            synchronized (entry) {
+                ElectionManager manager;
+                synchronized (this) {
+                    manager = entry.manager;
+                    entry.manager = null;
+                    entry.auth = null;
+                    loadedBytes -= entry.footprint;
+                    entry.footprint = 0;
+                }
+                if (manager != null) manager.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.electionportal.services;
+
+import com.electionportal.models.Candidate;
+import com.electionportal.models.ElectionState;
+import com.electionportal.models.User;
+import com.electionportal.models.Voter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only, point-in-time view of an election, from ElectionManager.snapshot().
+ *
+ * Every ballot is either fully in a snapshot (ballot, candidate count and the
+ * voter's "has voted") or not in it at all, and all precincts are captured at
+ * the same instant. Taking one costs O(precincts x candidates): ballots and
+ * users are append-only, so the snapshot keeps how many there were rather
+ * than copying them. Reports can then take as long as they like while
+ * ballots keep arriving.
+ * Demonstrates: Immutability, Snapshot Isolation
+ */
+public class ElectionSnapshot {
+
+    /**
+     * One precinct's ballots and counters, captured together.
+     */
+    record PrecinctView(String id, BallotBox box, BallotBox.View ballots, long[] counts) {
+        long total() {
+            long sum = 0;
+            for (long count : counts) sum += count;
+            return sum;
+        }
+    }
+
+    private final Instant takenAt = Instant.now();
+    private final ElectionState state;
+    private final List<Candidate> candidates;
+    private final List<PrecinctView> precincts;
+    private final int registeredVoters;
+    // Users are only ever added, so the first userCount are the users as of the snapshot
+    private final UserIndex liveUsers;
+    private final int userCount;
+    private List<User> users;
+
+    ElectionSnapshot(ElectionState state, List<Candidate> candidates, List<PrecinctView> precincts,
+                     UserIndex liveUsers, int userCount, int registeredVoters) {
+        this.state = state;
+        this.candidates = candidates;
+        this.precincts = precincts;
+        this.liveUsers = liveUsers;
+        this.userCount = userCount;
+        this.registeredVoters = registeredVoters;
+    }
+
+    public Instant getTakenAt() { return takenAt; }
+    public ElectionState getState() { return state; }
+    public List<Candidate> getCandidates() { return candidates; }
+    public int getRegisteredVoterCount() { return registeredVoters; }
+
+    /**
+     * The users registered as of the snapshot, read from users.csv on first use.
+     */
+    public synchronized List<User> getUsers() {
+        if (users == null) {
+            users = List.copyOf(liveUsers.getUsers(userCount));
+        }
+        return users;
+    }
+
+    /**
+     * @return True if the snapshot holds a ballot from this voter.
+     */
+    public boolean hasVoted(Voter voter) {
+        BallotBox box = voter.getBallotBox();
+        for (PrecinctView precinct : precincts) {
+            if (precinct.box() == box) return precinct.ballots().hasVoted(voter.getVoterIndex());
+        }
+        return false;
+    }
+
+    public long getBallotsCast() {
+        long total = 0;
+        for (PrecinctView precinct : precincts) total += precinct.total();
+        return total;
+    }
+
+    public List<String> getPrecinctIds() {
+        List<String> ids = new ArrayList<>();
+        for (PrecinctView precinct : precincts) ids.add(precinct.id());
+        return ids;
+    }
+
+    /**
+     * @return Ballots in the precinct, or 0 for an unknown precinct.
+     */
+    public long getBallotsCast(String precinctId) {
+        for (PrecinctView precinct : precincts) {
+            if (precinct.id().equals(precinctId)) return precinct.total();
+        }
+        return 0;
+    }
+
+    /**
+     * @return candidate name -> votes (first preferences), in candidate order.
+     */
+    public Map<String, Long> getResults() {
+        long[] totals = new long[candidates.size()];
+        for (PrecinctView precinct : precincts) {
+            for (int i = 0; i < totals.length; i++) totals[i] += precinct.counts()[i];
+        }
+        return named(totals);
+    }
+
+    /**
+     * @return precinct ID -> (candidate name -> votes), in precinct order.
+     */
+    public Map<String, Map<String, Long>> getResultsByPrecinct() {
+        Map<String, Map<String, Long>> results = new LinkedHashMap<>();
+        for (PrecinctView precinct : precincts) {
+            results.put(precinct.id(), named(precinct.counts()));
+        }
+        return results;
+    }
+
+    /**
+     * Writes the turnout report shown on the admin dashboard to a file.
+     */
+    public void writeTurnoutReport(Path file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+            writer.println("Turnout at " + takenAt + " (" + state + ")");
+            writer.println("Ballots cast: " + getBallotsCast() + " of " + registeredVoters + " registered voters");
+            for (PrecinctView precinct : precincts) {
+                writer.println("Precinct " + precinct.id() + ": " + precinct.total() + " ballot(s)");
+            }
+            if (writer.checkError()) throw new IOException("write failed");
+        }
+    }
+
+    private Map<String, Long> named(long[] counts) {
+        Map<String, Long> results = new LinkedHashMap<>();
+        for (int i = 0; i < counts.length; i++) {
+            results.put(candidates.get(i).getName(), counts[i]);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,182 @@
+package com.electionportal.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Batches journal records from many callers into one write and one force().
+ * A single background thread drains the queue: it takes up to maxBatchSize
+ * records, waiting at most maxWait for the batch to fill, writes them,
+ * forces the file to disk and only then completes every caller's future.
+ * Demonstrates: Producer/Consumer, java.nio FileChannel
+ */
+public class GroupCommitter implements AutoCloseable {
+
+    private record PendingWrite(byte[] bytes, CompletableFuture<Void> done) {}
+
+    private final Path file;
+    // Replaced by rotate(); only touched while holding ioLock
+    private FileChannel channel;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    // Held while writing a batch, so truncate() and rotate() never interleave with a write
+    private final ReentrantLock ioLock = new ReentrantLock();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    /**
+     * @param file The journal file to append to (created if missing)
+     * @param maxBatchSize Most records written by one force()
+     * @param maxWaitMicros Longest the writer waits for a batch to fill once it has one record
+     */
+    public GroupCommitter(Path file, int maxBatchSize, long maxWaitMicros) throws IOException {
+        if (maxBatchSize < 1) throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        this.file = file;
+        this.channel = open(file);
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.writerThread = new Thread(this::runWriter, "group-commit-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queues one line for the next batch.
+     * @return A future that completes once the line is durable on disk.
+     */
+    public CompletableFuture<Void> submit(String line) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (!running) {
+            done.completeExceptionally(new IOException("Group committer is closed"));
+            return done;
+        }
+        queue.add(new PendingWrite((line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8), done));
+        return done;
+    }
+
+    /**
+     * Empties the file. Callers must make sure nothing is still queued.
+     */
+    public void truncate() throws IOException {
+        ioLock.lock();
+        try {
+            channel.truncate(0);
+            channel.force(true);
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    /**
+     * Renames everything written so far to the given file and carries on in
+     * a new, empty file at the original path. Callers must make sure nothing
+     * is still queued.
+     */
+    public void rotate(Path sealed) throws IOException {
+        ioLock.lock();
+        try {
+            channel.force(true);
+            channel.close();
+            try {
+                Files.move(file, sealed, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                channel = open(file); // Appends go on even if the rename failed
+            }
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingWrite next = remaining > 0
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingWrite> batch) {
+        int size = 0;
+        for (PendingWrite write : batch) size += write.bytes().length;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (PendingWrite write : batch) buffer.put(write.bytes());
+        buffer.flip();
+
+        ioLock.lock();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false); // One sync for the whole batch
+            for (PendingWrite write : batch) write.done().complete(null);
+        } catch (IOException e) {
+            for (PendingWrite write : batch) write.done().completeExceptionally(e);
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    /**
+     * Writes everything already queued, then stops the writer thread and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        // No interrupt(): an interrupted FileChannel write closes the channel.
+        // The writer notices within one poll timeout.
+        running = false;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Anything submitted while we were stopping missed the last batch
+        PendingWrite late;
+        while ((late = queue.poll()) != null) {
+            late.done().completeExceptionally(new IOException("Group committer is closed"));
+        }
+        ioLock.lock();
+        try {
+            channel.close();
+        } finally {
+            ioLock.unlock();
+        }
+    }
+}
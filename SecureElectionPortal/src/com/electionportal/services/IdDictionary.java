@@ -0,0 +1,112 @@
+package com.electionportal.services;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps string IDs such as "v-001" or "c-003" to dense ints (0, 1, 2, ...) and back.
+ *
+ * ElectionManager hands out IDs in sequence, so the ID at index i is normally
+ * prefix + "-" + (i + 1) and can be found by parsing it, with no hash entry.
+ * Only IDs that break that pattern are kept in a side map. An ID in exactly
+ * the form ElectionManager writes ("v-007", "v-1234") is not stored at all:
+ * its slot stays null and get() rebuilds the string, so a million voters
+ * cost a million null slots rather than a million Strings.
+ * Not thread-safe; BallotBox guards it.
+ */
+class IdDictionary {
+
+    /**
+     * The first entries of a dictionary, readable without its lock (see idsView()).
+     */
+    record View(char prefix, String[] ids) {
+        String get(int index) {
+            String id = ids[index];
+            return id != null ? id : canonical(prefix, index + 1);
+        }
+    }
+
+    private final char prefix;
+    private String[] ids = new String[16];
+    private int size;
+    private final Map<String, Integer> irregular = new HashMap<>();
+
+    IdDictionary(char prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * @return The index of the ID, adding it if it is new.
+     */
+    int add(String id) {
+        int existing = indexOf(id);
+        if (existing >= 0) return existing;
+
+        if (size == ids.length) ids = Arrays.copyOf(ids, size * 2);
+        int index = size++;
+        int number = sequentialNumber(id);
+        if (number != index + 1) {
+            irregular.put(id, index);
+        }
+        // Kept only if get() could not rebuild it
+        ids[index] = number == index + 1 && id.equals(canonical(prefix, number)) ? null : id;
+        return index;
+    }
+
+    /**
+     * @return The index of the ID, or -1 if it has not been added.
+     */
+    int indexOf(String id) {
+        int number = sequentialNumber(id);
+        if (number > 0 && number <= size && id.equals(get(number - 1))) {
+            return number - 1;
+        }
+        Integer index = irregular.get(id);
+        return index == null ? -1 : index;
+    }
+
+    String get(int index) {
+        String id = ids[index];
+        return id != null ? id : canonical(prefix, index + 1);
+    }
+
+    int size() { return size; }
+
+    /**
+     * A view of the backing array. Entries below size() never change and growth
+     * copies the array, so a caller may keep reading those entries later.
+     */
+    View idsView() { return new View(prefix, ids); }
+
+    /**
+     * prefix-n with n zero-padded to three digits, as String.format("%c-%03d") would give.
+     */
+    static String canonical(char prefix, int number) {
+        char[] digits = new char[12];
+        int at = digits.length;
+        do {
+            digits[--at] = (char) ('0' + number % 10);
+            number /= 10;
+        } while (number > 0);
+        while (digits.length - at < 3) digits[--at] = '0';
+        digits[--at] = '-';
+        digits[--at] = prefix;
+        return new String(digits, at, digits.length - at);
+    }
+
+    /**
+     * @return n for an ID of the form prefix-n (e.g. 42 for "v-042"), or -1.
+     */
+    private int sequentialNumber(String id) {
+        int length = id.length();
+        if (length < 3 || length > 12 || id.charAt(0) != prefix || id.charAt(1) != '-') return -1;
+        long number = 0;
+        for (int i = 2; i < length; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            number = number * 10 + (c - '0');
+        }
+        return number > Integer.MAX_VALUE ? -1 : (int) number;
+    }
+}
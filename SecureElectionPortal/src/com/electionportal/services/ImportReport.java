@@ -0,0 +1,59 @@
+package com.electionportal.services;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk voter import: how many voters were registered and
+ * which rows were rejected, and why.
+ * Demonstrates: Encapsulation, Records
+ */
+public class ImportReport {
+
+    /**
+     * One rejected row of the roll file.
+     * @param lineNumber 1-based line in the file
+     */
+    public record RowError(long lineNumber, String username, String reason) {
+        @Override
+        public String toString() {
+            return "Line " + lineNumber + (username.isEmpty() ? "" : " (" + username + ")") + ": " + reason;
+        }
+    }
+
+    private int imported;
+    private final List<RowError> errors = new ArrayList<>();
+    private String failure; // Set when the whole import was refused
+
+    void addError(long lineNumber, String username, String reason) {
+        errors.add(new RowError(lineNumber, username, reason));
+    }
+
+    void setImported(int imported) { this.imported = imported; }
+    void fail(String failure) { this.failure = failure; }
+
+    public int getImported() { return imported; }
+    public List<RowError> getErrors() { return Collections.unmodifiableList(errors); }
+
+    /**
+     * @return Why nothing was imported (wrong phase, unreadable file), or null.
+     */
+    public String getFailure() { return failure; }
+    public boolean isSuccessful() { return failure == null; }
+
+    /**
+     * Writes every row error, one per line.
+     */
+    public void writeErrors(Path file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+            for (RowError error : errors) {
+                writer.println(error);
+            }
+        }
+    }
+}
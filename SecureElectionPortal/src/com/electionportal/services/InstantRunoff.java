@@ -0,0 +1,201 @@
+package com.electionportal.services;
+
+import com.electionportal.models.Candidate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instant-runoff (ranked-choice) count. Add the ballots as groups of
+ * identical rankings (BallotBox.addRankingsTo does this), then run() once.
+ *
+ * Each group is counted as one weight and keeps a pointer to its current
+ * preference. Every candidate holds the list of groups currently counting
+ * for them, so eliminating a candidate only touches that candidate's
+ * groups; the other ballots are never rescanned.
+ * The cost is O(groups x ranking length) for the whole count, plus
+ * O(candidates) per round, however many ballots share each ranking.
+ *
+ * Rounds continue until a candidate holds a majority of the ballots still in
+ * play. The candidate with the fewest votes is eliminated each round; a tie
+ * goes against whoever had fewer votes in the latest earlier round where they
+ * differed, and failing that against the candidate listed last.
+ * Demonstrates: Single Responsibility Principle, Primitive Arrays
+ */
+public class InstantRunoff {
+
+    /**
+     * One round of the count.
+     * @param votes candidate name -> votes, for candidates still in the count
+     * @param exhausted Ballots with no continuing candidate left to count for
+     * @param eliminated Name of the candidate eliminated after this round, or null in the final round
+     */
+    public record Round(int number, Map<String, Long> votes, long exhausted, String eliminated) {}
+
+    /**
+     * @param winner Name of the winner, or null if there were no countable ballots
+     */
+    public record Result(List<Round> rounds, String winner) {}
+
+    private final List<Candidate> candidates;
+    private final Map<String, Integer> indexById = new HashMap<>();
+
+    // Group g is `weights[g]` ballots ranking `preferences.get(g)` (slate indexes)
+    private final List<int[]> preferences = new ArrayList<>();
+    private long[] weights = new long[64];
+
+    public InstantRunoff(List<Candidate> candidates) {
+        this.candidates = List.copyOf(candidates);
+        for (int i = 0; i < this.candidates.size(); i++) {
+            indexById.put(this.candidates.get(i).getCandidateId(), i);
+        }
+    }
+
+    /**
+     * Maps candidate IDs to positions in this count's slate, so a caller with
+     * its own candidate numbering translates each ID once, not once per ranking.
+     * @return The slate index of each ID, or -1 for a candidate not on the slate
+     */
+    public int[] slateIndexes(String[] candidateIds) {
+        int[] indexes = new int[candidateIds.length];
+        for (int i = 0; i < candidateIds.length; i++) {
+            indexes[i] = indexById.getOrDefault(candidateIds[i], -1);
+        }
+        return indexes;
+    }
+
+    /**
+     * Adds ballots that share one ranking. Candidates not on the slate and
+     * repeated candidates are dropped from the ranking.
+     * @param ranking Candidate numbers in the caller's numbering, most preferred first
+     * @param slateIndexes Caller's numbering -> slate index (see slateIndexes)
+     */
+    public void addGroup(int[] ranking, int[] slateIndexes, long ballots) {
+        int[] translated = new int[ranking.length];
+        int length = 0;
+        for (int candidate : ranking) {
+            int index = slateIndexes[candidate];
+            if (index < 0) continue;
+            boolean repeated = false;
+            for (int i = 0; i < length && !repeated; i++) repeated = translated[i] == index;
+            if (!repeated) translated[length++] = index;
+        }
+        int g = preferences.size();
+        if (g == weights.length) weights = Arrays.copyOf(weights, g * 2);
+        preferences.add(length == translated.length ? translated : Arrays.copyOf(translated, length));
+        weights[g] = ballots;
+    }
+
+    /**
+     * Runs the count over every group added so far.
+     */
+    public Result run() {
+        int n = candidates.size();
+        int groupCount = preferences.size();
+        int[] position = new int[groupCount];
+        GroupList[] piles = new GroupList[n];
+        for (int c = 0; c < n; c++) piles[c] = new GroupList();
+        long[] tally = new long[n];
+        boolean[] continuing = new boolean[n];
+        Arrays.fill(continuing, true);
+        long exhausted = 0;
+
+        // Round 1: every group counts for its first preference
+        for (int g = 0; g < groupCount; g++) {
+            int[] ranking = preferences.get(g);
+            if (ranking.length == 0) {
+                exhausted += weights[g]; // Ranks no candidate on the slate
+            } else {
+                piles[ranking[0]].add(g);
+                tally[ranking[0]] += weights[g];
+            }
+        }
+
+        List<Round> rounds = new ArrayList<>();
+        List<long[]> history = new ArrayList<>();
+        int remaining = n;
+        while (true) {
+            long active = 0;
+            int leader = -1;
+            for (int c = 0; c < n; c++) {
+                if (!continuing[c]) continue;
+                active += tally[c];
+                if (leader < 0 || tally[c] > tally[leader]) leader = c;
+            }
+            history.add(tally.clone());
+
+            if (leader < 0 || active == 0) {
+                rounds.add(new Round(rounds.size() + 1, roundVotes(tally, continuing), exhausted, null));
+                return new Result(rounds, null);
+            }
+            if (remaining == 1 || tally[leader] * 2 > active) {
+                rounds.add(new Round(rounds.size() + 1, roundVotes(tally, continuing), exhausted, null));
+                return new Result(rounds, candidates.get(leader).getName());
+            }
+
+            int loser = pickLoser(tally, continuing, history);
+            rounds.add(new Round(rounds.size() + 1, roundVotes(tally, continuing), exhausted,
+                    candidates.get(loser).getName()));
+
+            // Only the loser's groups move, each to its next continuing preference
+            continuing[loser] = false;
+            remaining--;
+            GroupList pile = piles[loser];
+            for (int i = 0; i < pile.size; i++) {
+                int group = pile.items[i];
+                int[] ranking = preferences.get(group);
+                int next = position[group] + 1;
+                while (next < ranking.length && !continuing[ranking[next]]) next++;
+                position[group] = next;
+                if (next == ranking.length) {
+                    exhausted += weights[group];
+                } else {
+                    piles[ranking[next]].add(group);
+                    tally[ranking[next]] += weights[group];
+                }
+            }
+            piles[loser] = null;
+            tally[loser] = 0;
+        }
+    }
+
+    private int pickLoser(long[] tally, boolean[] continuing, List<long[]> history) {
+        int loser = -1;
+        for (int c = 0; c < tally.length; c++) {
+            if (continuing[c] && (loser < 0 || !beats(c, loser, history))) loser = c;
+        }
+        return loser;
+    }
+
+    // True if a ranks above b: more votes now, or in the latest earlier round where they differed.
+    // Candidates tied in every round rank in slate order, so the later one is eliminated.
+    private static boolean beats(int a, int b, List<long[]> history) {
+        for (int r = history.size() - 1; r >= 0; r--) {
+            long[] round = history.get(r);
+            if (round[a] != round[b]) return round[a] > round[b];
+        }
+        return a < b;
+    }
+
+    private Map<String, Long> roundVotes(long[] tally, boolean[] continuing) {
+        Map<String, Long> votes = new LinkedHashMap<>();
+        for (int c = 0; c < tally.length; c++) {
+            if (continuing[c]) votes.put(candidates.get(c).getName(), tally[c]);
+        }
+        return votes;
+    }
+
+    // Growable int list of group indexes
+    private static final class GroupList {
+        int[] items = new int[8];
+        int size;
+
+        void add(int group) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = group;
+        }
+    }
+}
@@ -0,0 +1,519 @@
+package com.electionportal.services;
+
+import com.electionportal.models.Candidate;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Offline integrity audit of a saved election: checks over the whole data
+ * set that users.csv and the saved ballots agree.
+ *   - every line parses, and no voter ID is registered twice
+ *   - every ballot is from a registered voter, and no voter has two
+ *   - every candidate a ballot names is in candidates.csv
+ *   - users.csv marks a voter as having voted exactly when there is a ballot
+ * The files are read as raw bytes in parallel chunks (see ChunkedLines).
+ * What is known about a voter is a few bits, indexed by the number in a
+ * canonical ID ("v-001"); other IDs go in a map. Memory therefore grows by
+ * under a byte per voter, not with the size of the files. Problems that
+ * only show once everything is read (a marked voter with no ballot, the
+ * first of two ballots) are located by a second pass, run only if needed.
+ * Demonstrates: Parallel Streams, Atomic bit sets
+ *
+ * Usage: IntegrityAudit [dataDir]   (default "data")
+ */
+public final class IntegrityAudit {
+
+    public enum Kind {
+        MALFORMED_LINE("line does not parse"),
+        DUPLICATE_VOTER("voter ID registered more than once"),
+        DUPLICATE_BALLOT("voter has more than one ballot"),
+        UNKNOWN_VOTER("ballot from a voter not in users.csv"),
+        UNKNOWN_CANDIDATE("ballot names a candidate not in candidates.csv"),
+        BALLOT_NOT_MARKED("ballot from a voter users.csv says has not voted"),
+        MARKED_WITHOUT_BALLOT("users.csv says voted, but there is no ballot");
+
+        private final String description;
+
+        Kind(String description) { this.description = description; }
+
+        public String getDescription() { return description; }
+    }
+
+    /**
+     * One problem found.
+     * @param line Line number in the file, from 1 (the record number for votes.bin)
+     */
+    public record Problem(Kind kind, String file, long line, String detail) {
+        @Override
+        public String toString() {
+            return file + ":" + line + ": " + kind.getDescription() + " (" + detail + ")";
+        }
+    }
+
+    /**
+     * The outcome of an audit.
+     * @param counts   Problems found, by kind; kinds with none are left out
+     * @param problems The first MAX_LISTED of each kind, by kind, then file and line
+     * @param warnings Reasons the saved files may not hold the whole election
+     */
+    public record Report(long users, long voted, long ballots, Map<Kind, Long> counts, List<Problem> problems,
+                         List<String> warnings, long elapsedMillis) {
+        public boolean isClean() { return counts.isEmpty(); }
+        public long count(Kind kind) { return counts.getOrDefault(kind, 0L); }
+    }
+
+    /**
+     * At most this many problems of each kind are listed; all of them are counted.
+     */
+    public static final int MAX_LISTED = 100;
+
+    // Facts kept per voter, one bit each
+    private static final int REGISTERED = 0;
+    private static final int REGISTERED_TWICE = 1;
+    private static final int VOTED = 2;
+    private static final int BALLOT = 3;
+    private static final int BALLOT_TWICE = 4;
+    private static final int FACTS = 5;
+
+    // No users.csv line is shorter, so no election has more voters than the file size / MIN_USER_LINE
+    private static final int MIN_USER_LINE = 16;
+    private static final int MAX_DETAIL = 80;
+
+    private final Path dataDir;
+    private final VoterFacts voters;
+    private final BitSet candidateNumbers = new BitSet();
+    private final Set<String> otherCandidates = new HashSet<>();
+    private final long[] counts = new long[Kind.values().length];
+    private final List<Problem> problems = new ArrayList<>();
+    private final List<String> warnings = new ArrayList<>();
+
+    private IntegrityAudit(Path dataDir, List<Candidate> candidates, long usersFileSize) {
+        this.dataDir = dataDir;
+        this.voters = new VoterFacts((int) Math.min(Integer.MAX_VALUE - 1, usersFileSize / MIN_USER_LINE + 1));
+        for (Candidate candidate : candidates) {
+            String id = candidate.getCandidateId();
+            byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+            int number = canonicalNumber(bytes, 0, bytes.length, 'c');
+            if (number >= 0) {
+                candidateNumbers.set(number);
+            } else {
+                otherCandidates.add(id);
+            }
+        }
+    }
+
+    /**
+     * Audits the saved election in dataDir (every precinct, if sharded).
+     */
+    public static Report run(Path dataDir) throws IOException {
+        return run(dataDir, true);
+    }
+
+    /**
+     * @param checkSaved Whether to warn about ballots the saved files may not
+     *                   hold yet; ElectionManager.auditIntegrity saves first
+     */
+    static Report run(Path dataDir, boolean checkSaved) throws IOException {
+        long start = System.nanoTime();
+        DataManager dataManager = new DataManager(dataDir);
+        Path usersFile = dataManager.getUsersFile();
+        boolean hasUsers = Files.exists(usersFile);
+        IntegrityAudit audit = new IntegrityAudit(dataDir, dataManager.loadCandidates(),
+                hasUsers ? Files.size(usersFile) : 0);
+
+        List<DataManager> stores = new ArrayList<>();
+        stores.add(dataManager);
+        for (String precinctId : dataManager.loadPrecincts()) {
+            stores.add(dataManager.precinctStore(precinctId));
+        }
+        List<Path> voteFiles = new ArrayList<>();
+        for (DataManager store : stores) voteFiles.add(savedVotes(store));
+
+        // 1. Who is registered, and who users.csv says has voted
+        long users = 0;
+        long voted = 0;
+        boolean registeredTwice = false;
+        if (hasUsers) {
+            for (UserPass pass : audit.scan(usersFile, () -> audit.new UserPass(false))) {
+                users += pass.users;
+                voted += pass.voted;
+                registeredTwice |= pass.twice;
+            }
+        }
+
+        // 2. Every ballot, against that
+        long ballots = 0;
+        long votedWithBallot = 0;
+        boolean ballotTwice = false;
+        long[] perStore = new long[stores.size()];
+        for (int i = 0; i < stores.size(); i++) {
+            for (BallotPass pass : audit.scanBallots(voteFiles.get(i), false)) {
+                perStore[i] += pass.ballots;
+                votedWithBallot += pass.votedWithBallot;
+                ballotTwice |= pass.twice;
+            }
+            ballots += perStore[i];
+        }
+
+        // 3. Back to the lines behind what only the whole data set shows
+        if (hasUsers && (registeredTwice || voted > votedWithBallot)) {
+            audit.scan(usersFile, () -> audit.new UserPass(true));
+        }
+        if (ballotTwice) {
+            for (Path file : voteFiles) audit.scanBallots(file, true);
+        }
+
+        if (checkSaved) {
+            for (int i = 0; i < stores.size(); i++) {
+                audit.checkSaved(stores.get(i), voteFiles.get(i), perStore[i]);
+            }
+        }
+        return audit.report(users, voted, ballots, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // The snapshot file VoteRecount would count: votes.csv, or votes.bin if that is all there is
+    private static Path savedVotes(DataManager store) {
+        Path votesCsv = store.getDataDir().resolve("votes.csv");
+        Path votesBin = store.getDataDir().resolve("votes.bin");
+        return !Files.exists(votesCsv) && Files.exists(votesBin) ? votesBin : votesCsv;
+    }
+
+    private List<BallotPass> scanBallots(Path file, boolean rescan) throws IOException {
+        if (!Files.exists(file)) return List.of();
+        if (!file.getFileName().toString().endsWith(".bin")) {
+            return scan(file, () -> new BallotPass(rescan));
+        }
+        // Fixed-size records: read in order, each as the line votes.csv would hold
+        BallotPass pass = new BallotPass(rescan);
+        long[] records = {0};
+        BinaryVoteStore.scan(file, (voter, candidate) -> {
+            byte[] line = (BinaryVoteStore.voterId(voter) + "," + BinaryVoteStore.candidateId(candidate))
+                    .getBytes(StandardCharsets.UTF_8);
+            long offset = BinaryVoteStore.HEADER_SIZE + records[0] * BinaryVoteStore.RECORD_SIZE;
+            pass.line(line, 0, line.length, records[0]++, offset);
+        });
+        return collect(file, List.of(new ChunkedLines.Chunk<>(pass, records[0])));
+    }
+
+    private <P extends Pass> List<P> scan(Path file, Supplier<P> passes) throws IOException {
+        return collect(file, ChunkedLines.scan(file, passes));
+    }
+
+    // Turns each chunk's findings into problems with absolute line numbers
+    private <P extends Pass> List<P> collect(Path file, List<ChunkedLines.Chunk<P>> chunks) {
+        String name = dataDir.relativize(file).toString();
+        long[] firstLines = ChunkedLines.firstLines(chunks);
+        List<P> passes = new ArrayList<>(chunks.size());
+        for (int i = 0; i < chunks.size(); i++) {
+            Pass pass = chunks.get(i).visitor();
+            for (Pass.Finding finding : pass.findings) {
+                if (listed(finding.kind()) < MAX_LISTED) {
+                    problems.add(new Problem(finding.kind(), name, firstLines[i] + finding.index(), finding.detail()));
+                }
+            }
+            for (int k = 0; k < counts.length; k++) counts[k] += pass.found[k];
+            passes.add(chunks.get(i).visitor());
+        }
+        return passes;
+    }
+
+    private long listed(Kind kind) {
+        return Math.min(counts[kind.ordinal()], MAX_LISTED);
+    }
+
+    private void checkSaved(DataManager store, Path votesFile, long ballots) {
+        String name = dataDir.relativize(votesFile).toString();
+        if (store.hasJournalTail()) {
+            warnings.add(name + ": ballots were journaled after the last checkpoint; they are in no saved file"
+                    + " and were not audited");
+        }
+        long checkpointed = store.checkpointedBallots();
+        if (checkpointed >= 0 && checkpointed != ballots) {
+            warnings.add(name + " holds " + ballots + " ballot(s) but the newest checkpoint holds " + checkpointed
+                    + "; the election was checkpointed after the last full save, or the file was changed");
+        }
+    }
+
+    private Report report(long users, long voted, long ballots, long elapsedMillis) {
+        Map<Kind, Long> byKind = new EnumMap<>(Kind.class);
+        for (Kind kind : Kind.values()) {
+            if (counts[kind.ordinal()] > 0) byKind.put(kind, counts[kind.ordinal()]);
+        }
+        List<Problem> sorted = new ArrayList<>(problems);
+        sorted.sort(Comparator.comparing(Problem::kind)); // Stable: file and line order within a kind
+        return new Report(users, voted, ballots, byKind, List.copyOf(sorted), List.copyOf(warnings), elapsedMillis);
+    }
+
+    // --- Passes ---
+
+    /**
+     * One chunk's share of a pass: its findings, with lines counted within the chunk.
+     */
+    private abstract static class Pass implements ChunkedLines.Visitor {
+        record Finding(Kind kind, long index, String detail) {}
+
+        final List<Finding> findings = new ArrayList<>();
+        final long[] found = new long[Kind.values().length];
+
+        void report(Kind kind, long index, String detail) {
+            if (found[kind.ordinal()]++ < MAX_LISTED) findings.add(new Finding(kind, index, detail));
+        }
+    }
+
+    /**
+     * users.csv, parsed as DataManager.parseUser does. The first pass records
+     * each voter; the rescan reports duplicate IDs and marked voters with no ballot.
+     */
+    private final class UserPass extends Pass {
+        private final boolean rescan;
+        private final int[] ends = new int[8];
+        long users;
+        long voted;
+        boolean twice;
+
+        UserPass(boolean rescan) { this.rescan = rescan; }
+
+        @Override
+        public void line(byte[] line, int from, int to, long index, long offset) {
+            if (from == to) return; // Blank lines are skipped on load too
+            int fields = split(line, from, to, ends);
+            boolean voter = matches(line, from, ends[0], "VOTER") && (fields == 6 || fields == 7)
+                    && ends[1] > ends[0] + 1;
+            if (!voter) {
+                if (fields >= 5 && matches(line, from, ends[0], "ADMIN")) {
+                    if (!rescan) users++;
+                } else if (!rescan) {
+                    report(Kind.MALFORMED_LINE, index, "not a user record: " + fields + " field(s), type \""
+                            + text(line, from, ends[0]) + "\"");
+                }
+                return;
+            }
+            int idFrom = ends[0] + 1;
+            int idTo = ends[1];
+            int flagFrom = ends[4] + 1;
+            int flagTo = ends[5];
+            boolean marked = matchesIgnoreCase(line, flagFrom, flagTo, "true"); // As Boolean.parseBoolean reads it
+            if (rescan) {
+                if (voters.has(line, idFrom, idTo, REGISTERED_TWICE)) {
+                    report(Kind.DUPLICATE_VOTER, index, text(line, idFrom, idTo));
+                }
+                if (marked && !voters.has(line, idFrom, idTo, BALLOT)) {
+                    report(Kind.MARKED_WITHOUT_BALLOT, index, text(line, idFrom, idTo));
+                }
+                return;
+            }
+            users++;
+            if (!marked && !matchesIgnoreCase(line, flagFrom, flagTo, "false")) {
+                report(Kind.MALFORMED_LINE, index, text(line, idFrom, idTo) + ": hasVoted is \""
+                        + text(line, flagFrom, flagTo) + "\"");
+            }
+            if (!voters.set(line, idFrom, idTo, REGISTERED)) {
+                voters.set(line, idFrom, idTo, REGISTERED_TWICE);
+                twice = true;
+            }
+            if (marked && voters.set(line, idFrom, idTo, VOTED)) voted++;
+        }
+    }
+
+    /**
+     * Ballot lines, "voterId,ranking". The first pass checks each ballot and
+     * records it; the rescan reports every ballot of a voter who has two.
+     */
+    private final class BallotPass extends Pass {
+        private final boolean rescan;
+        long ballots;
+        long votedWithBallot;
+        boolean twice;
+
+        BallotPass(boolean rescan) { this.rescan = rescan; }
+
+        @Override
+        public void line(byte[] line, int from, int to, long index, long offset) {
+            int comma = -1;
+            for (int i = from; i < to; i++) {
+                if (line[i] != ',') continue;
+                if (comma >= 0) {
+                    comma = -1; // More than two fields: skipped on load
+                    break;
+                }
+                comma = i;
+            }
+            if (comma <= from || comma + 1 >= to) {
+                if (!rescan && from < to) report(Kind.MALFORMED_LINE, index, text(line, from, to));
+                return;
+            }
+            if (rescan) {
+                if (voters.has(line, from, comma, BALLOT_TWICE)) {
+                    report(Kind.DUPLICATE_BALLOT, index, text(line, from, comma));
+                }
+                return;
+            }
+
+            ballots++;
+            boolean malformed = false;
+            int start = comma + 1;
+            for (int i = start; i <= to; i++) {
+                if (i < to && line[i] != '>') continue;
+                if (i == start) {
+                    malformed = true; // An empty preference
+                } else if (!isCandidate(line, start, i)) {
+                    report(Kind.UNKNOWN_CANDIDATE, index, text(line, start, i));
+                }
+                start = i + 1;
+            }
+            if (malformed) report(Kind.MALFORMED_LINE, index, text(line, from, to));
+
+            if (!voters.has(line, from, comma, REGISTERED)) {
+                report(Kind.UNKNOWN_VOTER, index, text(line, from, comma));
+            } else if (!voters.has(line, from, comma, VOTED)) {
+                report(Kind.BALLOT_NOT_MARKED, index, text(line, from, comma));
+            }
+            if (voters.set(line, from, comma, BALLOT)) {
+                if (voters.has(line, from, comma, VOTED)) votedWithBallot++;
+            } else {
+                voters.set(line, from, comma, BALLOT_TWICE);
+                twice = true;
+            }
+        }
+    }
+
+    private boolean isCandidate(byte[] bytes, int from, int to) {
+        int number = canonicalNumber(bytes, from, to, 'c');
+        if (number >= 0) return candidateNumbers.get(number);
+        return otherCandidates.contains(new String(bytes, from, to - from, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * What is known about each voter, settable from many threads at once.
+     * Canonical IDs up to the limit index bit sets; other IDs, rare in
+     * practice, are kept in a map.
+     */
+    private static final class VoterFacts {
+        private final int limit;
+        private final AtomicBitSet[] bits = new AtomicBitSet[FACTS];
+        private final ConcurrentHashMap<String, AtomicInteger> others = new ConcurrentHashMap<>();
+
+        VoterFacts(int limit) {
+            this.limit = limit;
+            for (int i = 0; i < FACTS; i++) bits[i] = new AtomicBitSet();
+        }
+
+        /**
+         * @return True if this call set the fact, false if it was already set.
+         */
+        boolean set(byte[] bytes, int from, int to, int fact) {
+            int number = canonicalNumber(bytes, from, to, 'v');
+            if (number >= 0 && number < limit) {
+                AtomicBitSet set = bits[fact];
+                if (number >= set.capacity()) set.ensureCapacity(number + 1);
+                return set.setIfClear(number);
+            }
+            int mask = 1 << fact;
+            AtomicInteger facts = others.computeIfAbsent(
+                    new String(bytes, from, to - from, StandardCharsets.UTF_8), id -> new AtomicInteger());
+            return (facts.getAndUpdate(f -> f | mask) & mask) == 0;
+        }
+
+        boolean has(byte[] bytes, int from, int to, int fact) {
+            int number = canonicalNumber(bytes, from, to, 'v');
+            if (number >= 0 && number < limit) return bits[fact].get(number);
+            AtomicInteger facts = others.get(new String(bytes, from, to - from, StandardCharsets.UTF_8));
+            return facts != null && (facts.get() & (1 << fact)) != 0;
+        }
+    }
+
+    // --- Byte helpers ---
+
+    /**
+     * @return n if the bytes are exactly IdDictionary.canonical(prefix, n), else -1.
+     */
+    static int canonicalNumber(byte[] bytes, int from, int to, char prefix) {
+        int digits = to - from - 2;
+        if (digits < 3 || digits > 9 || bytes[from] != prefix || bytes[from + 1] != '-') return -1;
+        if (digits > 3 && bytes[from + 2] == '0') return -1; // Padded past three digits
+        int number = 0;
+        for (int i = from + 2; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) return -1;
+            number = number * 10 + digit;
+        }
+        return number;
+    }
+
+    // Comma-separated fields: field k ends at ends[k] (the first few only)
+    private static int split(byte[] bytes, int from, int to, int[] ends) {
+        int fields = 0;
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == ',' && fields < ends.length) ends[fields++] = i;
+            else if (bytes[i] == ',') fields++;
+        }
+        if (fields < ends.length) ends[fields] = to;
+        return fields + 1;
+    }
+
+    private static boolean matches(byte[] bytes, int from, int to, String ascii) {
+        if (to - from != ascii.length()) return false;
+        for (int i = 0; i < ascii.length(); i++) {
+            if (bytes[from + i] != ascii.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean matchesIgnoreCase(byte[] bytes, int from, int to, String ascii) {
+        if (to - from != ascii.length()) return false;
+        for (int i = 0; i < ascii.length(); i++) {
+            if (Character.toLowerCase((char) bytes[from + i]) != ascii.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static String text(byte[] bytes, int from, int to) {
+        String text = new String(bytes, from, Math.min(to - from, MAX_DETAIL), StandardCharsets.UTF_8);
+        return to - from > MAX_DETAIL ? text + "..." : text;
+    }
+
+    /**
+     * Prints a report, problems first, the way the admin menu shows it.
+     */
+    public static void print(Report report) {
+        for (Problem problem : report.problems()) {
+            System.out.println("  " + problem);
+        }
+        for (Map.Entry<Kind, Long> entry : report.counts().entrySet()) {
+            long count = entry.getValue();
+            System.out.println("  " + entry.getKey() + ": " + count
+                    + (count > MAX_LISTED ? " (first " + MAX_LISTED + " listed)" : ""));
+        }
+        System.out.println("  " + report.users() + " user(s), " + report.voted() + " marked as voted, "
+                + report.ballots() + " ballot(s), checked in " + report.elapsedMillis() + " ms");
+        for (String warning : report.warnings()) {
+            System.out.println("  Warning: " + warning);
+        }
+        System.out.println(report.isClean() ? "  No problems found." : "  Problems found.");
+    }
+
+    /**
+     * Standalone audit of the saved files in dataDir.
+     */
+    public static void main(String[] args) throws IOException {
+        Path dataDir = Path.of(args.length > 0 ? args[0] : "data");
+        System.out.println("===== INTEGRITY AUDIT: " + dataDir.toAbsolutePath() + " =====");
+        Report report = run(dataDir);
+        print(report);
+        System.out.println("============================");
+        if (!report.isClean()) System.exit(1);
+    }
+}
@@ -0,0 +1,271 @@
+package com.electionportal.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Append-only Merkle tree over one precinct's ballots, in cast order, as
+ * defined for Certificate Transparency (RFC 6962 / RFC 9162):
+ *   leaf = SHA-256(0x00 | "voterId,ranking")   (the ballot's votes.csv line)
+ *   node = SHA-256(0x01 | left | right)
+ * and a tree of n leaves splits at the largest power of two below n. Any
+ * change to a saved ballot, or a ballot dropped, changes the root.
+ *
+ * Ballots are added by catchUp as they are saved, each in amortized O(1)
+ * hashes. Only nodes of height STORED_HEIGHT and up are kept, about two
+ * hashes per 16 ballots (4 bytes a ballot); the few below them are rehashed
+ * from the ballots when a proof needs them, so a proof still costs O(log n).
+ * Demonstrates: Cryptographic Hashing (MessageDigest), Fork/Join
+ */
+public final class MerkleLog {
+
+    public static final int HASH_BYTES = 32;
+
+    /**
+     * Evidence that a ballot is in the tree of the first size ballots.
+     * Hashes are lower-case hex; path runs from the leaf's sibling up.
+     */
+    public record Proof(long index, long size, String leaf, List<String> path, String root) {
+        /**
+         * Recomputes the root from the leaf and the path (RFC 9162, 2.1.3.2).
+         * @return True if it matches the root given.
+         */
+        public boolean verify() {
+            if (index < 0 || index >= size) return false;
+            long fn = index;
+            long sn = size - 1;
+            byte[] r = HEX.parseHex(leaf);
+            for (String hex : path) {
+                if (sn == 0) return false;
+                byte[] p = HEX.parseHex(hex);
+                if ((fn & 1) == 1 || fn == sn) {
+                    r = hashNodes(p, r);
+                    while ((fn & 1) == 0 && fn != 0) {
+                        fn >>= 1;
+                        sn >>= 1;
+                    }
+                } else {
+                    r = hashNodes(r, p);
+                }
+                fn >>= 1;
+                sn >>= 1;
+            }
+            return sn == 0 && HEX.formatHex(r).equals(root);
+        }
+    }
+
+    /**
+     * A precinct's root as published when the election closed.
+     */
+    public record PublishedRoot(String precinctId, long size, String root) {}
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    // Nodes below this height are not kept; a proof rehashes the 2^STORED_HEIGHT ballots around its leaf
+    private static final int STORED_HEIGHT = 4;
+    private static final int BLOCK = 1 << STORED_HEIGHT;
+    // Ranges smaller than this are hashed on one thread by rootOf
+    private static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    });
+
+    // levels[h - STORED_HEIGHT] holds the complete nodes of height h, left to right
+    private byte[][] levels = new byte[0][];
+    // Leaf hashes of the block of BLOCK ballots being filled
+    private final byte[] pending = new byte[BLOCK * HASH_BYTES];
+    private long size;
+
+    /**
+     * @return The number of ballots in the tree.
+     */
+    public synchronized long size() { return size; }
+
+    /**
+     * Adds the ballots of the view not yet in the tree. Views of the same box
+     * are prefixes of one another, so an older view than the last adds nothing.
+     */
+    public synchronized void catchUp(BallotBox.View ballots) {
+        for (long i = size; i < ballots.size(); i++) {
+            append(leafHash(ballots, (int) i));
+        }
+    }
+
+    private void append(byte[] leaf) {
+        System.arraycopy(leaf, 0, pending, (int) (size % BLOCK) * HASH_BYTES, HASH_BYTES);
+        size++;
+        if (size % BLOCK != 0) return;
+
+        // A block is complete: keep its root, then every node it completes above it
+        byte[] node = hashPending(0, BLOCK);
+        long index = size / BLOCK - 1;
+        int level = 0;
+        store(level, index, node);
+        while ((index & 1) == 1) {
+            node = hashNodes(stored(level, index - 1), node);
+            index >>= 1;
+            store(++level, index, node);
+        }
+    }
+
+    /**
+     * @return The root of the tree of the first n ballots (n <= size()), as hex.
+     */
+    public synchronized String root(long n, BallotBox.View ballots) {
+        if (n > size) throw new IllegalArgumentException("only " + size + " ballots in the tree");
+        return HEX.formatHex(n == 0 ? sha256() : hashRange(0, n, ballots));
+    }
+
+    /**
+     * Proves ballot index is in the tree of the first n ballots (index < n <= size()).
+     * @param ballots A view holding at least n ballots, for the heights not stored
+     */
+    public synchronized Proof proof(long index, long n, BallotBox.View ballots) {
+        if (index < 0 || index >= n || n > size) {
+            throw new IllegalArgumentException("no ballot " + index + " in a tree of " + n);
+        }
+        List<String> path = new ArrayList<>();
+        path(index, 0, n, ballots, path);
+        return new Proof(index, n, HEX.formatHex(leafHash(ballots, (int) index)), List.copyOf(path),
+                HEX.formatHex(hashRange(0, n, ballots)));
+    }
+
+    // PATH(m, D[lo:hi]) of RFC 6962, 2.1.1: the sibling hashes from the leaf up
+    private void path(long m, long lo, long hi, BallotBox.View ballots, List<String> out) {
+        if (hi - lo == 1) return;
+        long k = Long.highestOneBit(hi - lo - 1);
+        if (m < lo + k) {
+            path(m, lo, lo + k, ballots, out);
+            out.add(HEX.formatHex(hashRange(lo + k, hi, ballots)));
+        } else {
+            path(m, lo + k, hi, ballots, out);
+            out.add(HEX.formatHex(hashRange(lo, lo + k, ballots)));
+        }
+    }
+
+    // MTH(D[lo:hi]): a stored node when the range is one, else split as the tree does
+    private byte[] hashRange(long lo, long hi, BallotBox.View ballots) {
+        long n = hi - lo;
+        if (n == 1) {
+            return lo >= size - size % BLOCK ? pendingLeaf(lo) : leafHash(ballots, (int) lo);
+        }
+        int height = Long.numberOfTrailingZeros(n);
+        if (n == Long.highestOneBit(n) && lo % n == 0 && height >= STORED_HEIGHT) {
+            return stored(height - STORED_HEIGHT, lo >> height);
+        }
+        long k = Long.highestOneBit(n - 1);
+        return hashNodes(hashRange(lo, lo + k, ballots), hashRange(lo + k, hi, ballots));
+    }
+
+    private byte[] pendingLeaf(long i) {
+        int at = (int) (i % BLOCK) * HASH_BYTES;
+        return Arrays.copyOfRange(pending, at, at + HASH_BYTES);
+    }
+
+    // The root of the perfect subtree over pending leaves [from, from + n)
+    private byte[] hashPending(int from, int n) {
+        if (n == 1) return pendingLeaf(from);
+        return hashNodes(hashPending(from, n / 2), hashPending(from + n / 2, n / 2));
+    }
+
+    private byte[] stored(int level, long index) {
+        int at = (int) index * HASH_BYTES;
+        return Arrays.copyOfRange(levels[level], at, at + HASH_BYTES);
+    }
+
+    private void store(int level, long index, byte[] node) {
+        if (level == levels.length) {
+            levels = Arrays.copyOf(levels, level + 1);
+            levels[level] = new byte[16 * HASH_BYTES];
+        }
+        int at = (int) index * HASH_BYTES;
+        if (at == levels[level].length) levels[level] = Arrays.copyOf(levels[level], at * 2);
+        System.arraycopy(node, 0, levels[level], at, HASH_BYTES);
+    }
+
+    // --- Full verification ---
+
+    /**
+     * Hashes the first n ballots of the view from scratch, in parallel on
+     * the fork/join pool, without the stored nodes.
+     * @return The root as hex, to compare with root() or a published root
+     */
+    public static String rootOf(BallotBox.View ballots, int n) {
+        if (n == 0) return HEX.formatHex(sha256());
+        return HEX.formatHex(ForkJoinPool.commonPool().invoke(new RangeHash(ballots, 0, n)));
+    }
+
+    // RecursiveTask is Serializable, but fork/join tasks are never serialized
+    @SuppressWarnings("serial")
+    private static final class RangeHash extends RecursiveTask<byte[]> {
+        private final BallotBox.View ballots;
+        private final int lo;
+        private final int hi;
+
+        RangeHash(BallotBox.View ballots, int lo, int hi) {
+            this.ballots = ballots;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected byte[] compute() {
+            if (hi - lo <= PARALLEL_THRESHOLD) return hash(lo, hi);
+            int k = Integer.highestOneBit(hi - lo - 1);
+            RangeHash left = new RangeHash(ballots, lo, lo + k);
+            left.fork();
+            byte[] right = new RangeHash(ballots, lo + k, hi).compute();
+            return hashNodes(left.join(), right);
+        }
+
+        private byte[] hash(int from, int to) {
+            if (to - from == 1) return leafHash(ballots, from);
+            int k = Integer.highestOneBit(to - from - 1);
+            return hashNodes(hash(from, from + k), hash(from + k, to));
+        }
+    }
+
+    // --- Hashing ---
+
+    /**
+     * The leaf hash of a ballot, as a voter can compute it for their own.
+     */
+    public static String leafHash(String voterId, String rankingField) {
+        return HEX.formatHex(leafHashOf(voterId, rankingField));
+    }
+
+    private static byte[] leafHash(BallotBox.View ballots, int i) {
+        return leafHashOf(ballots.voterIdAt(i), ballots.rankingFieldAt(i));
+    }
+
+    private static byte[] leafHashOf(String voterId, String rankingField) {
+        MessageDigest digest = SHA_256.get();
+        digest.update((byte) 0x00);
+        digest.update((voterId + "," + rankingField).getBytes(StandardCharsets.UTF_8));
+        return digest.digest();
+    }
+
+    private static byte[] hashNodes(byte[] left, byte[] right) {
+        MessageDigest digest = SHA_256.get();
+        digest.update((byte) 0x01);
+        digest.update(left);
+        digest.update(right);
+        return digest.digest();
+    }
+
+    private static byte[] sha256() {
+        return SHA_256.get().digest();
+    }
+}
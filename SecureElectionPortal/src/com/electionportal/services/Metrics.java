@@ -0,0 +1,115 @@
+package com.electionportal.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Named counters and latency histograms for one election.
+ * ElectionManager owns it and shares it with DataManager and AuthService.
+ * Snapshots can be printed on the admin dashboard or written as text or JSON.
+ * Demonstrates: Concurrent Collections, Encapsulation
+ */
+public class Metrics {
+
+    // Metric names, grouped by the component that records them
+    public static final String LOGIN = "auth.login";
+    public static final String LOGIN_ATTEMPTS = "auth.login.attempts";
+    public static final String LOGIN_FAILURES = "auth.login.failures";
+    public static final String LOGIN_BATCH = "auth.loginAll";
+    public static final String REGISTER_VOTER = "election.registerVoter";
+    public static final String REGISTRATIONS = "election.registrations";
+    public static final String REGISTRATION_FAILURES = "election.registrations.failed";
+    public static final String IMPORT_VOTERS = "election.importVoters";
+    public static final String CAST_VOTE = "election.castVote";
+    public static final String VOTES_ACCEPTED = "election.votes.accepted";
+    public static final String VOTES_REJECTED = "election.votes.rejected";
+    public static final String TALLY = "election.tally";
+    public static final String TALLY_RUNOFF = "election.tallyRunoff";
+    public static final String VERIFY_TALLY = "election.verifyTally";
+    public static final String SAVE_ALL = "election.saveAllData";
+    public static final String FLUSH = "election.flush";
+    public static final String LOAD_ALL = "election.loadAllData";
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, n -> new LongAdder());
+    }
+
+    public LatencyHistogram timer(String name) {
+        return timers.computeIfAbsent(name, n -> new LatencyHistogram());
+    }
+
+    public void increment(String name) {
+        counter(name).increment();
+    }
+
+    // --- Snapshots ---
+
+    /**
+     * @return A human-readable table of every counter and timer.
+     */
+    public String snapshotText() {
+        StringBuilder out = new StringBuilder();
+        out.append("--- Metrics (").append(Instant.now()).append(") ---\n");
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+            out.append(String.format("  %-32s %,d%n", entry.getKey(), entry.getValue().sum()));
+        }
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(timers).entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            out.append(String.format("  %-32s n=%,d p50=%s p99=%s max=%s%n", entry.getKey(), h.getCount(),
+                    formatNanos(h.getPercentileNanos(50)), formatNanos(h.getPercentileNanos(99)),
+                    formatNanos(h.getMaxNanos())));
+        }
+        return out.toString();
+    }
+
+    /**
+     * @return The same data as a JSON object, latencies in nanoseconds.
+     */
+    public String snapshotJson() {
+        StringBuilder out = new StringBuilder();
+        out.append("{\n  \"timestamp\": \"").append(Instant.now()).append("\",\n  \"counters\": {");
+        String separator = "\n";
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+            out.append(separator).append("    \"").append(entry.getKey()).append("\": ").append(entry.getValue().sum());
+            separator = ",\n";
+        }
+        out.append("\n  },\n  \"timers\": {");
+        separator = "\n";
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(timers).entrySet()) {
+            LatencyHistogram h = entry.getValue();
+            out.append(separator).append("    \"").append(entry.getKey()).append("\": {")
+                    .append("\"count\": ").append(h.getCount())
+                    .append(", \"meanNanos\": ").append(h.getMeanNanos())
+                    .append(", \"p50Nanos\": ").append(h.getPercentileNanos(50))
+                    .append(", \"p99Nanos\": ").append(h.getPercentileNanos(99))
+                    .append(", \"maxNanos\": ").append(h.getMaxNanos())
+                    .append("}");
+            separator = ",\n";
+        }
+        out.append("\n  }\n}\n");
+        return out.toString();
+    }
+
+    /**
+     * Writes a snapshot to the file: JSON if the name ends in ".json", text otherwise.
+     */
+    public void writeSnapshot(Path file) throws IOException {
+        String content = file.toString().endsWith(".json") ? snapshotJson() : snapshotText();
+        Files.writeString(file, content);
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 10_000) return nanos + "ns";
+        if (nanos < 10_000_000) return (nanos / 1_000) + "us";
+        return (nanos / 1_000_000) + "ms";
+    }
+}
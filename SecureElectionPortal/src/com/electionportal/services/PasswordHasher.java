@@ -0,0 +1,135 @@
+package com.electionportal.services;
+
+import com.electionportal.models.User;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SHA-256 password hashing with one reusable MessageDigest per thread,
+ * constant-time comparison of raw hash bytes, and a bounded worker pool
+ * for verifying whole batches of logins at once.
+ * Stored hashes stay Base64 strings, so users.csv is unchanged.
+ * Demonstrates: ThreadLocal, Thread Pools
+ */
+public class PasswordHasher implements AutoCloseable {
+
+    // MessageDigest is not thread-safe, but it is reusable after digest()
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            return null; // Callers fall back (see User.simulateHash)
+        }
+    });
+
+    private final ExecutorService workers;
+    private final int threads;
+
+    /**
+     * @param threads Worker threads for verifyAll; the task queue is bounded
+     *                and the submitting thread helps out when it is full.
+     */
+    public PasswordHasher(int threads) {
+        this.threads = Math.max(1, threads);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(this.threads, this.threads, 1L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(this.threads * 4),
+                runnable -> {
+                    Thread t = new Thread(runnable, "password-verifier");
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        // Hashing comes in bursts (a login storm); the workers exit once it has passed
+        pool.allowCoreThreadTimeOut(true);
+        this.workers = pool;
+    }
+
+    // --- Single hashes (any thread) ---
+
+    /**
+     * @return The raw SHA-256 bytes of the password, or null if SHA-256 is unavailable.
+     */
+    public static byte[] hash(String password) {
+        MessageDigest digest = DIGEST.get();
+        if (digest == null) return null;
+        return digest.digest(password.getBytes(StandardCharsets.UTF_8)); // digest() also resets it
+    }
+
+    /**
+     * @return The Base64 form stored in users.csv, or null if SHA-256 is unavailable.
+     */
+    public static String hashToString(String password) {
+        byte[] hash = hash(password);
+        return hash == null ? null : Base64.getEncoder().encodeToString(hash);
+    }
+
+    /**
+     * @return The raw bytes of a stored Base64 hash, or null if it is not Base64.
+     */
+    public static byte[] decode(String storedHash) {
+        try {
+            return Base64.getDecoder().decode(storedHash);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Hashes the password and compares it with the expected bytes in constant time.
+     */
+    public static boolean matches(String password, byte[] expectedHash) {
+        byte[] actual = hash(password);
+        return actual != null && MessageDigest.isEqual(actual, expectedHash);
+    }
+
+    // --- Batches (worker pool) ---
+
+    /**
+     * Checks many (user, password) pairs on the worker pool.
+     * A null user counts as a failed check.
+     * @return result[i] is true if passwords[i] is right for users[i]
+     */
+    public boolean[] verifyAll(List<? extends User> users, List<String> passwords) {
+        int size = users.size();
+        boolean[] results = new boolean[size];
+        int slice = Math.max(1, (size + threads - 1) / threads);
+
+        List<Future<?>> pending = new ArrayList<>();
+        for (int from = 0; from < size; from += slice) {
+            int start = from;
+            int end = Math.min(size, from + slice);
+            pending.add(workers.submit(() -> {
+                for (int i = start; i < end; i++) {
+                    User user = users.get(i);
+                    results[i] = user != null && user.validatePassword(passwords.get(i));
+                }
+            }));
+        }
+        for (Future<?> future : pending) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                System.err.println("Error verifying passwords: " + e.getCause());
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        workers.shutdown();
+    }
+}
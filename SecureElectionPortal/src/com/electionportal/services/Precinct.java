@@ -0,0 +1,252 @@
+package com.electionportal.services;
+
+import com.electionportal.models.Candidate;
+import com.electionportal.models.Vote;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One shard of an election: the ballots of the voters assigned to it, its
+ * own live counters, and its own vote file and journal. Precincts accept
+ * ballots independently of each other, so voters in different precincts
+ * never share a lock, a file or a disk.
+ * Demonstrates: Encapsulation, Concurrency (ReadWriteLock)
+ */
+public class Precinct {
+
+    private final String id;
+    // Checkpoints, journal segments and votes.csv / votes.bin for this precinct only
+    private final DataManager store;
+    private final BallotBox ballotBox = new BallotBox();
+    private final TallyEngine tallyEngine = new TallyEngine();
+    // Hashes the ballots as they are saved, so any later change shows
+    private final MerkleLog merkleLog = new MerkleLog();
+
+    // Ballots are added under the read lock, so many go in side by side;
+    // checkpoints take the write lock so no ballot lands between capturing
+    // the ballots and sealing the journal.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Ballots covered by the newest checkpoint, and whether one is on its way
+    private final AtomicLong checkpointed = new AtomicLong();
+    private final AtomicBoolean checkpointQueued = new AtomicBoolean();
+    // Where the newest sealed checkpoint ends, so the next holds only the ballots
+    // after it; -1 makes the next one hold every ballot
+    private volatile long chainEnd = -1;
+
+    Precinct(String id, DataManager store) {
+        this.id = id;
+        this.store = store;
+    }
+
+    public String getId() { return id; }
+
+    /**
+     * @return Ballots accepted by this precinct so far.
+     */
+    public long getBallotsCast() { return tallyEngine.getTotalVotes(); }
+
+    /**
+     * @return candidate name -> votes in this precinct, in candidate order.
+     */
+    public Map<String, Integer> results(List<Candidate> candidates) {
+        return tallyEngine.results(candidates);
+    }
+
+    BallotBox getBallotBox() { return ballotBox; }
+    DataManager getStore() { return store; }
+    ReadWriteLock getLock() { return lock; }
+
+    void addCandidate(String candidateId) {
+        ballotBox.addCandidate(candidateId);
+        tallyEngine.addCandidate(candidateId);
+    }
+
+    /**
+     * Loads the saved ballots into the ballot box and flags their voters.
+     * Counters are set by resetCounters.
+     */
+    void loadBallots() {
+        // Ballots stream straight into the int arrays; no Vote objects are kept
+        store.forEachStoredVote(ballotBox::addBallot);
+        ballotBox.markBallotsVoted();
+        checkpointed.set(ballotBox.size());
+        // Ballots from votes.csv, or a checkpoint not read in full, are in no chain to add to
+        long restored = store.getRecoveredBallots();
+        chainEnd = restored == ballotBox.size() ? restored : -1;
+    }
+
+    void resetCounters(List<Candidate> candidates) {
+        tallyEngine.rebuild(candidates, ballotBox.countByCandidate());
+    }
+
+    /**
+     * Adds a ballot; the caller has already flipped the voter's flag.
+     * Nothing is added unless voting is still open and, if journaled, the
+     * record was written (and forced, with group commit) first.
+     * @param journal Also append it to this precinct's journal
+     * @param open Checked under the read lock, which ElectionManager.changeState
+     *             waits out by taking every precinct's write lock
+     * @return False if the ballot was not added.
+     */
+    boolean accept(Vote vote, boolean journal, BooleanSupplier open) {
+        lock.readLock().lock();
+        try {
+            if (!open.getAsBoolean()) return false;
+            if (journal && !store.appendVote(vote)) { // One record covers the vote and the hasVoted change
+                return false;
+            }
+            // Ballot and count change together under the box's monitor, which
+            // capture() also holds, so a snapshot never sees one without the other
+            synchronized (ballotBox) {
+                ballotBox.addBallot(vote.getVoterId(), vote.getRankingField());
+                tallyEngine.record(vote.getCandidateId());
+            }
+            return true;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * True, once, when at least interval ballots have arrived since the last
+     * checkpoint; the caller then runs checkpoint() and checkpointDone().
+     */
+    boolean checkpointDue(int interval) {
+        return interval > 0 && getBallotsCast() - checkpointed.get() >= interval
+                && checkpointQueued.compareAndSet(false, true);
+    }
+
+    void checkpointDone() {
+        checkpointQueued.set(false);
+    }
+
+    /**
+     * A checkpoint whose ballots are captured and journal segment sealed, not yet written.
+     * @param first The first ballot it writes; 0 for all of them
+     */
+    record Seal(long sequence, long first, BallotBox.View ballots) {}
+
+    /**
+     * Checkpoints this precinct: seal() then save(). Only the ballots since
+     * the last checkpoint are written, so the cost is that of one interval.
+     * @return The ballots saved, or null if the checkpoint failed.
+     */
+    BallotBox.View checkpoint() {
+        Seal seal = seal(false);
+        return seal == null ? null : save(seal);
+    }
+
+    /**
+     * Captures the ballots (O(1)) and seals the journal segment holding
+     * them, under the write lock so no ballot falls between the two.
+     * @param full Write every ballot, starting a new chain of checkpoints,
+     *             rather than those since the last seal
+     * @return null if the journal could not be sealed.
+     */
+    Seal seal(boolean full) {
+        lock.writeLock().lock();
+        try {
+            long sequence = store.rotateJournal();
+            BallotBox.View ballots = ballotBox.view();
+            long first = full || chainEnd < 0 ? 0 : chainEnd;
+            chainEnd = ballots.size();
+            return new Seal(sequence, first, ballots);
+        } catch (IOException e) {
+            System.err.println("Error sealing the journal of precinct " + id + ": " + e.getMessage());
+            return null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes a sealed checkpoint. Needs no lock; ballots keep arriving meanwhile.
+     * @return The ballots saved, or null if the checkpoint failed.
+     */
+    BallotBox.View save(Seal seal) {
+        if (!store.writeCheckpoint(seal.sequence(), seal.first(), seal.ballots())) {
+            chainEnd = -1; // Later checkpoints would build on one that is not there
+            return null;
+        }
+        checkpointed.accumulateAndGet(seal.ballots().size(), Math::max);
+        merkleLog.catchUp(seal.ballots());
+        return seal.ballots();
+    }
+
+    // --- Merkle log ---
+
+    /**
+     * The root over every ballot accepted so far, to publish when voting ends.
+     */
+    MerkleLog.PublishedRoot merkleRoot() {
+        BallotBox.View ballots = ballotBox.view();
+        merkleLog.catchUp(ballots);
+        return new MerkleLog.PublishedRoot(id, ballots.size(), merkleLog.root(ballots.size(), ballots));
+    }
+
+    /**
+     * Proves the voter's ballot is in the tree of the first size ballots.
+     * @param size -1 for every ballot accepted so far
+     * @return null if the voter has no ballot among them
+     */
+    MerkleLog.Proof prove(String voterId, long size) {
+        BallotBox.View ballots = ballotBox.view();
+        merkleLog.catchUp(ballots);
+        long n = size < 0 ? ballots.size() : Math.min(size, ballots.size());
+        int index = ballots.ballotOf(ballotBox.indexOfVoter(voterId));
+        if (index < 0 || index >= n) return null;
+        return merkleLog.proof(index, n, ballots);
+    }
+
+    /**
+     * Rehashes every ballot in parallel and compares the result with the
+     * incremental tree and, if given, the published root.
+     */
+    boolean verifyMerkleLog(MerkleLog.PublishedRoot published) {
+        BallotBox.View ballots = ballotBox.view();
+        merkleLog.catchUp(ballots);
+        String root = MerkleLog.rootOf(ballots, ballots.size());
+        boolean ok = root.equals(merkleLog.root(ballots.size(), ballots));
+        if (published != null && published.size() != ballots.size()) {
+            // Ballots accepted after the root was published (the election was reopened)
+            root = published.size() < ballots.size() ? MerkleLog.rootOf(ballots, (int) published.size()) : null;
+        }
+        return published == null ? ok : ok && published.root().equals(root);
+    }
+
+    /**
+     * @return Votes per candidate, aligned with the given candidate list.
+     */
+    long[] countsFor(List<Candidate> candidates) {
+        long[] counts = new long[candidates.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = tallyEngine.getCount(candidates.get(i).getCandidateId());
+        }
+        return counts;
+    }
+
+    /**
+     * Captures the ballots and counters together, for ElectionSnapshot.
+     * Call while holding the ballot box's monitor.
+     */
+    ElectionSnapshot.PrecinctView capture(List<Candidate> candidates) {
+        return new ElectionSnapshot.PrecinctView(id, ballotBox, ballotBox.view(), countsFor(candidates));
+    }
+
+    // Call with the write lock held
+    boolean countersMatchBallots() {
+        return tallyEngine.matchesCounts(ballotBox.countByCandidate());
+    }
+
+    // Call with the write lock held, after a save
+    boolean countersMatchStore() {
+        return tallyEngine.matchesCounts(store.countStoredVotes());
+    }
+}
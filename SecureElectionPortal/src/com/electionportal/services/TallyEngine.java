@@ -0,0 +1,83 @@
+package com.electionportal.services;
+
+import com.electionportal.models.Candidate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps per-candidate vote counters up to date as ballots are accepted,
+ * so results and turnout never need a pass over every Vote.
+ * Demonstrates: Concurrent Collections, Single Responsibility Principle
+ */
+public class TallyEngine {
+
+    // LongAdder spreads contended increments over cells instead of one hot field
+    private final Map<String, LongAdder> countsByCandidate = new ConcurrentHashMap<>();
+    private final LongAdder totalVotes = new LongAdder();
+
+    /**
+     * Resets every counter from the loaded candidates and per-candidate vote counts.
+     * Called once at startup; afterwards the counters are maintained by record().
+     * @param counts candidate ID -> number of votes
+     */
+    public void rebuild(List<Candidate> candidates, Map<String, Long> counts) {
+        countsByCandidate.clear();
+        totalVotes.reset();
+        for (Candidate c : candidates) {
+            addCandidate(c.getCandidateId());
+        }
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            LongAdder count = countsByCandidate.computeIfAbsent(entry.getKey(), id -> new LongAdder());
+            count.add(entry.getValue());
+            totalVotes.add(entry.getValue());
+        }
+    }
+
+    public void addCandidate(String candidateId) {
+        countsByCandidate.putIfAbsent(candidateId, new LongAdder());
+    }
+
+    /**
+     * Counts one accepted ballot.
+     */
+    public void record(String candidateId) {
+        countsByCandidate.computeIfAbsent(candidateId, id -> new LongAdder()).increment();
+        totalVotes.increment();
+    }
+
+    public long getCount(String candidateId) {
+        LongAdder count = countsByCandidate.get(candidateId);
+        return count == null ? 0 : count.sum();
+    }
+
+    public long getTotalVotes() { return totalVotes.sum(); }
+
+    /**
+     * Builds the name -> vote count results in O(candidates).
+     */
+    public Map<String, Integer> results(List<Candidate> candidates) {
+        Map<String, Integer> results = new LinkedHashMap<>();
+        for (Candidate c : candidates) {
+            results.put(c.getName(), (int) getCount(c.getCandidateId()));
+        }
+        return results;
+    }
+
+    /**
+     * Compares the live counters with a recount produced elsewhere,
+     * e.g. from the ballot arrays or by scanning the saved vote file.
+     * @param recount candidate ID -> number of votes
+     */
+    public boolean matchesCounts(Map<String, Long> recount) {
+        long total = 0;
+        for (long count : recount.values()) total += count;
+        if (getTotalVotes() != total) return false;
+        for (Map.Entry<String, LongAdder> entry : countsByCandidate.entrySet()) {
+            if (entry.getValue().sum() != recount.getOrDefault(entry.getKey(), 0L)) return false;
+        }
+        return countsByCandidate.keySet().containsAll(recount.keySet());
+    }
+}
@@ -0,0 +1,186 @@
+package com.electionportal.services;
+
+import com.electionportal.models.User;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Sorted, searchable, paged view of the registered users for admin screens.
+ *
+ * Two sorted indexes are kept: users by username, and every word-start of
+ * every full name ("anna lee" is filed under "anna lee" and "lee"). A prefix
+ * search is then a range of one index, so a page costs O(log n + page size)
+ * however many users there are. Paging is by cursor (the key of the last
+ * row shown) rather than by offset, so page 10,000 is as cheap as page 1.
+ *
+ * The indexes are built on first use, since most runs never open the
+ * directory, and kept current by UserIndex after that. They hold names
+ * only; the users on a page are looked up in the UserIndex.
+ * Demonstrates: Collections (ConcurrentSkipListMap), Keyset Pagination
+ */
+public class UserDirectory {
+
+    /**
+     * How a query matches users, and the order results come back in.
+     */
+    public enum Match {
+        USERNAME,  // Username starts with the query; sorted by username
+        NAME,      // A word of the full name starts with the query; sorted by that name, then username
+        CONTAINS   // Username or full name contains the query anywhere; sorted by username (scans)
+    }
+
+    /**
+     * One page of results.
+     * @param next Cursor for the following page, or null if this is the last page
+     */
+    public record Page(List<User> users, String next) {
+        public boolean hasMore() { return next != null; }
+    }
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    // Separates the name part of a name-index key from the username that makes it unique
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final UserIndex source;
+    private volatile boolean built;
+    private final ConcurrentSkipListMap<String, Row> byUsername = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, Row> byName = new ConcurrentSkipListMap<>();
+
+    // A username with the user's full name already normalized, so scans don't redo it per query
+    private record Row(String username, String name) {}
+
+    /**
+     * @param source Every registered user; read once when the indexes are first built
+     */
+    UserDirectory(UserIndex source) {
+        this.source = source;
+    }
+
+    /**
+     * Files a newly registered user. Nothing to do until the indexes exist.
+     */
+    synchronized void add(User user) {
+        if (built) index(user.getUsername(), user.getFullName());
+    }
+
+    /**
+     * Drops the indexes; they are rebuilt from the source on next use.
+     */
+    synchronized void clear() {
+        built = false;
+        byUsername.clear();
+        byName.clear();
+    }
+
+    /**
+     * Finds one page of users.
+     * @param query The text to match; case is ignored, and "" matches everyone
+     * @param after The cursor from the previous page, or null for the first page
+     * @param limit Page size, at most MAX_PAGE_SIZE
+     */
+    public Page find(Match match, String query, String after, int limit) {
+        ensureBuilt();
+        String q = normalize(query);
+        int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        return switch (match) {
+            case USERNAME -> prefixPage(byUsername, q, after, size, false);
+            case NAME -> prefixPage(byName, q, after, size, true);
+            case CONTAINS -> containsPage(q, after, size);
+        };
+    }
+
+    private Page prefixPage(ConcurrentSkipListMap<String, Row> index, String q, String after, int size,
+                            boolean byNameWord) {
+        NavigableMap<String, Row> range = after == null ? index.tailMap(q, true) : index.tailMap(after, false);
+        List<User> users = new ArrayList<>(size);
+        String last = null;
+        for (Map.Entry<String, Row> entry : range.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(q)) break;
+            // A name can match at more than one word; list the user only at the first
+            if (byNameWord && !isFirstMatch(entry.getValue().name(), key, q)) continue;
+            if (users.size() == size) return new Page(users, last);
+            addUser(users, entry.getValue());
+            last = key;
+        }
+        return new Page(users, null);
+    }
+
+    private Page containsPage(String q, String after, int size) {
+        NavigableMap<String, Row> range = after == null ? byUsername : byUsername.tailMap(after, false);
+        List<User> users = new ArrayList<>(size);
+        String last = null;
+        for (Map.Entry<String, Row> entry : range.entrySet()) {
+            Row row = entry.getValue();
+            if (!entry.getKey().contains(q) && !row.name().contains(q)) continue;
+            if (users.size() == size) return new Page(users, last);
+            addUser(users, row);
+            last = entry.getKey();
+        }
+        return new Page(users, null);
+    }
+
+    private void addUser(List<User> users, Row row) {
+        User user = source.find(row.username());
+        if (user != null) users.add(user);
+    }
+
+    // True if this name-index key is the user's earliest word-start that matches q
+    private static boolean isFirstMatch(String name, String key, String q) {
+        int position = name.length() - key.indexOf(KEY_SEPARATOR);
+        for (int start : wordStarts(name)) {
+            if (name.startsWith(q, start)) return start == position;
+        }
+        return true;
+    }
+
+    private void ensureBuilt() {
+        if (built) return;
+        synchronized (this) {
+            if (built) return;
+            source.forEachName(this::index);
+            built = true;
+        }
+    }
+
+    private void index(String username, String fullName) {
+        String key = UserIndex.key(username);
+        String name = normalize(fullName);
+        Row row = new Row(key, name);
+        byUsername.put(key, row);
+        for (int start : wordStarts(name)) {
+            byName.put(name.substring(start) + KEY_SEPARATOR + key, row);
+        }
+    }
+
+    private static List<Integer> wordStarts(String name) {
+        List<Integer> starts = new ArrayList<>();
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) != ' ' && (i == 0 || name.charAt(i - 1) == ' ')) starts.add(i);
+        }
+        return starts;
+    }
+
+    // Lower case, trimmed, runs of whitespace folded to one space
+    private static String normalize(String text) {
+        if (text == null) return "";
+        StringBuilder folded = new StringBuilder(text.length());
+        boolean space = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = folded.length() > 0;
+            } else {
+                if (space) folded.append(' ');
+                folded.append(c);
+                space = false;
+            }
+        }
+        return folded.toString().toLowerCase(Locale.ROOT);
+    }
+}
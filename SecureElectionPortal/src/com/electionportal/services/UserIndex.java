@@ -0,0 +1,650 @@
+package com.electionportal.services;
+
+import com.electionportal.models.User;
+import com.electionportal.models.Voter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Case-insensitive username lookup over all registered users.
+ * ElectionManager owns it and keeps it current; AuthService reads from it.
+ * Demonstrates: Collections (ConcurrentHashMap, LinkedHashMap as an LRU), Encapsulation
+ *
+ * Users saved in users.csv are not kept as objects. load() builds only an
+ * index: for each user, the hash of their username and the byte offset of
+ * their line, in two primitive arrays (12 bytes a slot). A User is built
+ * from its line on first lookup and kept in a bounded LRU cache, so memory
+ * follows the users who actually log in rather than the size of the roll.
+ * The file is parsed in parallel chunks (see ChunkedLines) and the chunks
+ * are merged in file order, so voters get the same ballot-box slots as
+ * they would from a single pass.
+ * Users registered since the last save are not in the file yet; they stay
+ * in memory until save() writes them.
+ *
+ * Any number of User objects may exist for the same voter (one evicted
+ * from the cache, one read back later). That is safe because a voter's
+ * "has voted" flag lives in their BallotBox, not in the object.
+ *
+ * Lookups are safe from any thread; writes come from ElectionManager's
+ * synchronized registration and save paths. The sorted, searchable
+ * UserDirectory over the same users is kept current from here.
+ */
+public class UserIndex {
+
+    public static final int DEFAULT_CACHE_SIZE = 100_000;
+
+    /**
+     * What load() reports for each voter line, so ballot boxes can be set up without Voter objects.
+     */
+    public interface VoterVisitor {
+        void visit(String voterId, boolean hasVoted, String precinctId);
+    }
+
+    /**
+     * A voter's "has voted" flag and precinct as save() should write them.
+     */
+    public record VoterState(boolean hasVoted, String precinctId) {}
+
+    // users.csv is scanned in blocks this big
+    private static final int SCAN_BUFFER = 1 << 20;
+    // Most lines fit in one read of this many bytes
+    private static final int LINE_GUESS = 256;
+    // The cache is split so concurrent logins rarely wait on the same lock
+    private static final int CACHE_STRIPES = 16;
+
+    // users.csv, or null for an index that lives only in memory
+    private Path file;
+    // Open on the file the table describes; replaced (under the write lock) by save()
+    private FileChannel channel;
+    // Where each user's line starts in the file
+    private volatile OffsetTable table = new OffsetTable();
+    private final ReadWriteLock fileLock = new ReentrantReadWriteLock();
+    // Binds each voter read from the file to its ballot box before anyone sees it
+    private volatile Consumer<Voter> binder = voter -> {};
+
+    // Users not in the file yet, by key and in registration order
+    private final Map<String, User> unsaved = new ConcurrentHashMap<>();
+    private final List<User> unsavedOrder = new ArrayList<>();
+
+    private final LruCache[] cache = new LruCache[CACHE_STRIPES];
+    private volatile int voterCount;
+    // Made on first use (getDirectory), so the constructor does not hand out this
+    private volatile UserDirectory directory;
+
+    public UserIndex() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param cacheSize How many users read from the file are kept as objects
+     */
+    public UserIndex(int cacheSize) {
+        for (int i = 0; i < CACHE_STRIPES; i++) {
+            cache[i] = new LruCache(Math.max(1, cacheSize / CACHE_STRIPES));
+        }
+    }
+
+    /**
+     * Replaces the index contents with the given users, held in memory with no file behind them.
+     */
+    public void rebuild(List<User> users) {
+        fileLock.writeLock().lock();
+        try {
+            reset(null, voter -> {});
+        } finally {
+            fileLock.writeLock().unlock();
+        }
+        clearDirectory();
+        for (User user : users) {
+            add(user);
+        }
+    }
+
+    /**
+     * Replaces the index contents with the users in the file. Only the index
+     * is built; each voter is reported to the visitor as it is read.
+     * @param binder Called on every Voter read from the file later, before it is returned
+     */
+    public void load(Path usersFile, VoterVisitor visitor, Consumer<Voter> binder) throws IOException {
+        fileLock.writeLock().lock();
+        try {
+            reset(usersFile, binder);
+            if (!Files.exists(usersFile)) return;
+
+            channel = FileChannel.open(usersFile, StandardOpenOption.READ);
+            // Parsing and hashing run in parallel; the merge below is in file order
+            List<ChunkedLines.Chunk<IndexChunk>> chunks = ChunkedLines.scan(usersFile, IndexChunk::new);
+            int users = 0;
+            for (ChunkedLines.Chunk<IndexChunk> chunk : chunks) users += chunk.visitor().users;
+            table.reserve(users);
+            int voters = 0;
+            for (ChunkedLines.Chunk<IndexChunk> chunk : chunks) {
+                IndexChunk parsed = chunk.visitor();
+                for (int i = 0; i < parsed.users; i++) {
+                    table.insert(parsed.hashes[i], parsed.offsets[i]);
+                }
+                for (int i = 0; i < parsed.voters; i++) {
+                    visitor.visit(parsed.voterIds[i], parsed.voted.get(i), parsed.precinctIds[i]);
+                }
+                voters += parsed.voters;
+            }
+            voterCount = voters;
+        } finally {
+            fileLock.writeLock().unlock();
+            // Outside the lock: building the directory takes its own monitor, then this lock
+            clearDirectory();
+        }
+    }
+
+    /**
+     * Adds a newly registered user. It stays in memory until the next save().
+     */
+    public void add(User user) {
+        synchronized (unsavedOrder) {
+            unsaved.put(key(user.getUsername()), user);
+            unsavedOrder.add(user);
+        }
+        // Without a directory yet there is nothing to update; it reads this index when made
+        UserDirectory current = directory;
+        if (current != null) current.add(user);
+        if (user instanceof Voter) {
+            voterCount++;
+        }
+    }
+
+    public UserDirectory getDirectory() {
+        UserDirectory current = directory;
+        if (current == null) {
+            synchronized (this) {
+                current = directory;
+                if (current == null) directory = current = new UserDirectory(this);
+            }
+        }
+        return current;
+    }
+
+    private void clearDirectory() {
+        UserDirectory current = directory;
+        if (current != null) current.clear();
+    }
+
+    /**
+     * @return The user with this username (ignoring case), or null if none.
+     */
+    public User find(String username) {
+        if (username == null) return null;
+        String key = key(username);
+        User user = unsaved.get(key);
+        if (user != null) return user;
+        LruCache stripe = cache[key.hashCode() & (CACHE_STRIPES - 1)];
+        synchronized (stripe) {
+            user = stripe.get(key);
+        }
+        if (user != null) return user;
+
+        user = readUser(key);
+        if (user == null) return null;
+        if (user instanceof Voter v) binder.accept(v);
+        synchronized (stripe) {
+            // Another thread may have read the same user meanwhile; keep one
+            User raced = stripe.putIfAbsent(key, user);
+            return raced != null ? raced : user;
+        }
+    }
+
+    public boolean contains(String username) {
+        return find(username) != null;
+    }
+
+    public int getVoterCount() { return voterCount; }
+
+    public int size() {
+        // save() moves users from unsaved to the table under the write lock
+        fileLock.readLock().lock();
+        try {
+            synchronized (unsavedOrder) {
+                return table.size + unsavedOrder.size();
+            }
+        } finally {
+            fileLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return The ID the next registered voter should get, e.g. "v-004".
+     */
+    public String nextVoterId() {
+        return String.format("v-%03d", voterCount + 1);
+    }
+
+    /**
+     * The first count users in registration order, as objects. Users that
+     * are not cached are built (and bound) but not cached, so this costs a
+     * full read of users.csv; it is meant for reports and tools.
+     */
+    public List<User> getUsers(int count) {
+        List<User> users = new ArrayList<>(Math.min(count, size()));
+        fileLock.readLock().lock();
+        try {
+            if (channel != null) {
+                scan(channel, (offset, line) -> {
+                    if (users.size() == count) return;
+                    User user = cachedOrParsed(line);
+                    if (user != null) users.add(user);
+                });
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading users: " + e.getMessage());
+        } finally {
+            fileLock.readLock().unlock();
+        }
+        synchronized (unsavedOrder) {
+            for (User user : unsavedOrder) {
+                if (users.size() == count) break;
+                users.add(user);
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Every user's username and full name, without building User objects.
+     */
+    void forEachName(BiConsumer<String, String> action) {
+        fileLock.readLock().lock();
+        try {
+            if (channel != null) {
+                scan(channel, (offset, line) -> {
+                    String[] parts = fieldsOf(line);
+                    if (parts != null) action.accept(parts[2], parts[3]);
+                });
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading users: " + e.getMessage());
+        } finally {
+            fileLock.readLock().unlock();
+        }
+        List<User> pending;
+        synchronized (unsavedOrder) {
+            pending = List.copyOf(unsavedOrder);
+        }
+        for (User user : pending) {
+            action.accept(user.getUsername(), user.getFullName());
+        }
+    }
+
+    /**
+     * @return How many User objects are in memory: cached, or not saved yet.
+     */
+    int loadedCount() {
+        int count = 0;
+        for (LruCache stripe : cache) {
+            synchronized (stripe) {
+                count += stripe.size();
+            }
+        }
+        synchronized (unsavedOrder) {
+            return count + unsavedOrder.size();
+        }
+    }
+
+    /**
+     * Closes users.csv. The index must not be used afterwards.
+     */
+    public synchronized void close() {
+        fileLock.writeLock().lock();
+        try {
+            closeChannel();
+        } finally {
+            fileLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Every User object currently in memory: the cached ones and those not saved yet.
+     */
+    void forEachLoaded(Consumer<User> action) {
+        List<User> loaded = new ArrayList<>();
+        for (LruCache stripe : cache) {
+            synchronized (stripe) {
+                loaded.addAll(stripe.values());
+            }
+        }
+        synchronized (unsavedOrder) {
+            loaded.addAll(unsavedOrder);
+        }
+        loaded.forEach(action);
+    }
+
+    /**
+     * Rewrites users.csv: every line already in it, with each voter's flag
+     * and precinct as given by state (null leaves the line as it was), then
+     * the users registered since the last save. The index is rebuilt from the
+     * offsets as the lines are written, so no second read is needed.
+     */
+    synchronized void save(Function<String, VoterState> state) throws IOException {
+        if (file == null) return;
+        List<User> pending;
+        synchronized (unsavedOrder) {
+            pending = List.copyOf(unsavedOrder);
+        }
+        FileChannel current = channel; // Only save() replaces it
+        OffsetTable rebuilt = new OffsetTable();
+        DataManager.replaceAtomically(file, temp -> {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), SCAN_BUFFER)) {
+                long[] position = {0};
+                if (current != null) {
+                    scan(current, (offset, line) -> {
+                        String[] parts = fieldsOf(line);
+                        if (parts == null) return;
+                        VoterState voter = isVoter(parts) ? state.apply(parts[1]) : null;
+                        if (voter != null) {
+                            // The first five fields are kept exactly as they were
+                            int fifthComma = nthComma(line, 5);
+                            line = line.substring(0, fifthComma) + "," + voter.hasVoted()
+                                    + (voter.precinctId() == null ? "" : "," + voter.precinctId());
+                        }
+                        position[0] += writeLine(out, line, parts[2], position[0], rebuilt);
+                    });
+                }
+                for (User user : pending) {
+                    position[0] += writeLine(out, DataManager.formatUser(user), user.getUsername(), position[0], rebuilt);
+                }
+            }
+        });
+
+        FileChannel reopened = FileChannel.open(file, StandardOpenOption.READ);
+        fileLock.writeLock().lock();
+        try {
+            closeChannel();
+            channel = reopened;
+            table = rebuilt;
+            // Saved users can now be read back; keep them cached, since they registered recently
+            for (User user : pending) {
+                String key = key(user.getUsername());
+                LruCache stripe = cache[key.hashCode() & (CACHE_STRIPES - 1)];
+                synchronized (stripe) {
+                    stripe.putIfAbsent(key, user);
+                }
+            }
+            synchronized (unsavedOrder) {
+                unsavedOrder.subList(0, pending.size()).clear();
+                for (User user : pending) unsaved.remove(key(user.getUsername()));
+            }
+        } finally {
+            fileLock.writeLock().unlock();
+        }
+    }
+
+    private static int writeLine(OutputStream out, String line, String username, long position,
+                                 OffsetTable rebuilt) throws IOException {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
+        out.write('\n');
+        rebuilt.insert(key(username).hashCode(), position);
+        return bytes.length + 1;
+    }
+
+    // Looks the key up in the file; null if no line has this username
+    private User readUser(String key) {
+        int hash = key.hashCode();
+        fileLock.readLock().lock();
+        try {
+            OffsetTable current = table;
+            if (current.size == 0) return null;
+            int mask = current.hashes.length - 1;
+            for (int slot = spread(hash) & mask; current.offsets[slot] != 0; slot = (slot + 1) & mask) {
+                if (current.hashes[slot] != hash) continue;
+                // Same hash: read the line to rule out a collision
+                User user = DataManager.parseUser(readLine(current.offsets[slot] - 1));
+                if (user != null && key(user.getUsername()).equals(key)) return user;
+            }
+            return null;
+        } catch (IOException e) {
+            System.err.println("Error reading user: " + e.getMessage());
+            return null;
+        } finally {
+            fileLock.readLock().unlock();
+        }
+    }
+
+    private User cachedOrParsed(String line) {
+        String[] parts = fieldsOf(line);
+        if (parts == null) return null;
+        String key = key(parts[2]);
+        User user = unsaved.get(key);
+        if (user != null) return user;
+        LruCache stripe = cache[key.hashCode() & (CACHE_STRIPES - 1)];
+        synchronized (stripe) {
+            user = stripe.get(key);
+        }
+        if (user != null) return user;
+        user = DataManager.parseUser(line);
+        if (user instanceof Voter v) binder.accept(v);
+        return user;
+    }
+
+    private String readLine(long offset) throws IOException {
+        for (int size = LINE_GUESS; ; size *= 2) {
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) > 0) {
+                // Positional reads may return short; keep going until full or at the end
+            }
+            int read = buffer.position();
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') return decode(buffer.array(), 0, i);
+            }
+            if (read < size) return decode(buffer.array(), 0, read);
+        }
+    }
+
+    // Call only while holding the write lock
+    private void reset(Path usersFile, Consumer<Voter> binder) {
+        closeChannel();
+        file = usersFile;
+        this.binder = binder;
+        table = new OffsetTable();
+        voterCount = 0;
+        synchronized (unsavedOrder) {
+            unsaved.clear();
+            unsavedOrder.clear();
+        }
+        for (LruCache stripe : cache) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    private void closeChannel() {
+        if (channel == null) return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing users file: " + e.getMessage());
+        }
+        channel = null;
+    }
+
+    /**
+     * What load() takes from one chunk of users.csv, in file order: every
+     * user's username hash and line offset, and every voter's ID, flag and
+     * precinct.
+     */
+    private static final class IndexChunk implements ChunkedLines.Visitor {
+        int[] hashes = new int[1024];
+        long[] offsets = new long[1024];
+        int users;
+        String[] voterIds = new String[1024];
+        String[] precinctIds = new String[1024];
+        final BitSet voted = new BitSet();
+        int voters;
+        // One String per precinct in the chunk, not one per voter
+        private final Map<String, String> precincts = new HashMap<>();
+
+        @Override
+        public void line(byte[] bytes, int from, int to, long index, long offset) {
+            String[] parts = fieldsOf(new String(bytes, from, to - from, StandardCharsets.UTF_8));
+            if (parts == null) return;
+            if (users == hashes.length) {
+                hashes = Arrays.copyOf(hashes, users * 2);
+                offsets = Arrays.copyOf(offsets, users * 2);
+            }
+            hashes[users] = key(parts[2]).hashCode();
+            offsets[users++] = offset;
+            if (!isVoter(parts)) return;
+            if (voters == voterIds.length) {
+                voterIds = Arrays.copyOf(voterIds, voters * 2);
+                precinctIds = Arrays.copyOf(precinctIds, voters * 2);
+            }
+            voterIds[voters] = parts[1];
+            voted.set(voters, Boolean.parseBoolean(parts[5]));
+            precinctIds[voters++] = parts.length == 7 ? precincts.computeIfAbsent(parts[6], id -> id) : null;
+        }
+    }
+
+    private interface LineVisitor {
+        void visit(long offset, String line) throws IOException;
+    }
+
+    // Calls the visitor with every line of the file and the byte offset it starts at
+    private static void scan(FileChannel channel, LineVisitor visitor) throws IOException {
+        byte[] buffer = new byte[SCAN_BUFFER];
+        long bufferStart = 0;
+        int filled = 0;
+        while (true) {
+            int read = channel.read(ByteBuffer.wrap(buffer, filled, buffer.length - filled), bufferStart + filled);
+            if (read < 0) {
+                if (filled > 0) visitor.visit(bufferStart, decode(buffer, 0, filled));
+                return;
+            }
+            int scanFrom = filled;
+            filled += read;
+            int lineStart = 0;
+            for (int i = scanFrom; i < filled; i++) {
+                if (buffer[i] != '\n') continue;
+                visitor.visit(bufferStart + lineStart, decode(buffer, lineStart, i));
+                lineStart = i + 1;
+            }
+            // Carry the unfinished line to the front of the buffer
+            System.arraycopy(buffer, lineStart, buffer, 0, filled - lineStart);
+            bufferStart += lineStart;
+            filled -= lineStart;
+            if (filled == buffer.length) buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+    }
+
+    private static String decode(byte[] bytes, int start, int end) {
+        return new String(bytes, start, ChunkedLines.contentEnd(bytes, start, end) - start, StandardCharsets.UTF_8);
+    }
+
+    // The fields of a well-formed users.csv line (see DataManager.parseUser), or null
+    private static String[] fieldsOf(String line) {
+        String[] parts = line.split(",");
+        if (parts.length < 5) return null;
+        if ("VOTER".equals(parts[0]) && (parts.length == 6 || parts.length == 7)) return parts;
+        return "ADMIN".equals(parts[0]) ? parts : null;
+    }
+
+    private static boolean isVoter(String[] parts) {
+        return "VOTER".equals(parts[0]);
+    }
+
+    private static int nthComma(String line, int n) {
+        int index = -1;
+        for (int i = 0; i < n; i++) index = line.indexOf(',', index + 1);
+        return index;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    static String key(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Open-addressed hash table from username hash to line offset: two
+     * primitive arrays, kept at most half full. Offsets are stored plus
+     * one, so 0 marks an empty slot. Equal hashes are told apart by reading
+     * the line.
+     */
+    private static class OffsetTable {
+        int[] hashes = new int[0];
+        long[] offsets = new long[0];
+        int size;
+
+        void insert(int hash, long offset) {
+            if ((size + 1) * 2 > hashes.length) resize(Math.max(1024, hashes.length * 2));
+            int mask = hashes.length - 1;
+            int slot = spread(hash) & mask;
+            while (offsets[slot] != 0) slot = (slot + 1) & mask;
+            hashes[slot] = hash;
+            offsets[slot] = offset + 1;
+            size++;
+        }
+
+        /**
+         * Makes room for this many entries in all, so inserting them never grows the table.
+         */
+        void reserve(int entries) {
+            if (entries * 2L > hashes.length) resize(Math.max(1024, Integer.highestOneBit(entries * 2 - 1) << 1));
+        }
+
+        private void resize(int capacity) {
+            int[] oldHashes = hashes;
+            long[] oldOffsets = offsets;
+            hashes = new int[capacity];
+            offsets = new long[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldHashes.length; i++) {
+                if (oldOffsets[i] == 0) continue;
+                int slot = spread(oldHashes[i]) & mask;
+                while (offsets[slot] != 0) slot = (slot + 1) & mask;
+                hashes[slot] = oldHashes[i];
+                offsets[slot] = oldOffsets[i];
+            }
+        }
+    }
+
+    /**
+     * A LinkedHashMap in access order that drops its least recently used entry when full.
+     */
+    private static class LruCache extends LinkedHashMap<String, User> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        LruCache(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, User> eldest) {
+            return size() > capacity;
+        }
+    }
+}
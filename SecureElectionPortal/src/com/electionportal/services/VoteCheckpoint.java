@@ -0,0 +1,165 @@
+package com.electionportal.services;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Checksummed snapshot of a run of one precinct's ballots, written by
+ * DataManager.writeCheckpoint. A checkpoint whose first ballot is 0 holds
+ * every ballot; any other holds those since the checkpoint before it, so
+ * writing one costs the ballots of one interval, not all of them.
+ *
+ * Layout (big-endian, java.io.DataOutput encoding):
+ *   header  : magic "EPCK" (int) | version (int) | sequence (long) | first ballot (long) | ballot count (long)
+ *   records : voter ID (UTF) | field number (int)
+ *             field number -1 introduces a new ranking field, given next as UTF;
+ *             fields are numbered in the order they first appear
+ *   trailer : CRC32C of every byte before it (int)
+ *
+ * A plain ballot's ranking field is its candidate ID, so the few distinct
+ * fields are written once and each ballot costs its voter ID and an int.
+ * Version 1 files, from before incremental checkpoints, have no first
+ * ballot field and hold every ballot.
+ * Demonstrates: java.io Data Streams, Checksums (CRC32C)
+ */
+final class VoteCheckpoint {
+
+    static final int MAGIC = 0x4550434B; // "EPCK"
+    static final int VERSION = 2;
+    private static final int VERSION_1 = 1;
+    private static final int MIN_HEADER_SIZE = 24; // Version 1
+    static final int TRAILER_SIZE = 4;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int NEW_FIELD = -1;
+
+    private VoteCheckpoint() {}
+
+    /**
+     * What a checkpoint holds: ballots first to end - 1 of its precinct.
+     */
+    record Header(long sequence, long first, long count) {
+        long end() { return first + count; }
+    }
+
+    /**
+     * Writes ballots first onwards of the view.
+     */
+    static void write(Path file, long sequence, long first, BallotBox.View ballots) throws IOException {
+        CRC32C checksum = new CRC32C();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(Files.newOutputStream(file), checksum), BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sequence);
+            out.writeLong(first);
+            out.writeLong(ballots.size() - first);
+            Map<String, Integer> fields = new HashMap<>();
+            for (int i = (int) first; i < ballots.size(); i++) {
+                out.writeUTF(ballots.voterIdAt(i));
+                String field = ballots.rankingFieldAt(i);
+                Integer number = fields.get(field);
+                if (number != null) {
+                    out.writeInt(number);
+                } else {
+                    fields.put(field, fields.size());
+                    out.writeInt(NEW_FIELD);
+                    out.writeUTF(field);
+                }
+            }
+            out.flush(); // Everything so far goes through the checksum
+            out.writeInt((int) checksum.getValue());
+        }
+    }
+
+    /**
+     * @return True if the file is complete and its checksum matches.
+     */
+    static boolean verify(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long end = channel.size() - TRAILER_SIZE;
+            if (end < MIN_HEADER_SIZE) return false;
+            CRC32C checksum = new CRC32C();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            long position = 0;
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(BUFFER_SIZE, end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) return false;
+                buffer.flip();
+                checksum.update(buffer);
+                position += read;
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+            while (trailer.hasRemaining()) {
+                if (channel.read(trailer, end + trailer.position()) < 0) return false;
+            }
+            return trailer.getInt(0) == (int) checksum.getValue();
+        }
+    }
+
+    /**
+     * Reads the header, without checking the rest of the file.
+     */
+    static Header header(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            return readHeader(file, in);
+        }
+    }
+
+    private static Header readHeader(Path file, DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException(file + " is not a checkpoint file");
+        }
+        int version = in.readInt();
+        if (version != VERSION && version != VERSION_1) {
+            throw new IOException(file + " is checkpoint version " + version);
+        }
+        long sequence = in.readLong();
+        long first = version == VERSION_1 ? 0 : in.readLong();
+        return new Header(sequence, first, in.readLong());
+    }
+
+    /**
+     * Streams the file's ballots, in order, as (voterId, rankingField). Call verify first.
+     * @return The number of ballots read.
+     */
+    static long read(Path file, long sequence, BiConsumer<String, String> visitor) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            Header header = readHeader(file, in);
+            if (header.sequence() != sequence) {
+                throw new IOException(file + " holds a different checkpoint");
+            }
+            long count = header.count();
+            List<String> fields = new ArrayList<>();
+            for (long i = 0; i < count; i++) {
+                String voterId = in.readUTF();
+                int number = in.readInt();
+                String field;
+                if (number == NEW_FIELD) {
+                    field = in.readUTF();
+                    fields.add(field);
+                } else {
+                    field = fields.get(number);
+                }
+                visitor.accept(voterId, field);
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.electionportal.services;
+
+import com.electionportal.models.Candidate;
+import com.electionportal.models.Vote;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming audit recount of a saved vote file. votes.csv is read in
+ * parallel chunks (see ChunkedLines); each chunk is counted into its own
+ * per-candidate counters, and the chunk counters are merged at the end.
+ * No Vote objects or per-line Strings are created, so memory stays bounded
+ * by the buffers in flight and the number of candidates, however many
+ * ballots the file holds.
+ * Demonstrates: Parallel Streams, java.nio positional reads
+ *
+ * Usage: VoteRecount [dataDir]   (default "data")
+ */
+public final class VoteRecount {
+
+    private VoteRecount() {}
+
+    /**
+     * Counts the ballots in a votes.csv file, accepting the same lines
+     * DataManager.loadVotes does ("voterId,candidateId"). A ranked ballot
+     * counts for its first preference.
+     * @return candidate ID -> number of votes
+     */
+    public static Map<String, Long> countCsv(Path votesFile) throws IOException {
+        Map<String, Long> totals = new HashMap<>();
+        if (!Files.exists(votesFile)) return totals;
+
+        for (ChunkedLines.Chunk<CandidateCounts> chunk : ChunkedLines.scan(votesFile, CandidateCounts::new)) {
+            chunk.visitor().mergeInto(totals);
+        }
+        return totals;
+    }
+
+    /**
+     * Recounts the saved snapshot and formats it like ElectionManager.tallyVotes:
+     * candidate name -> votes, in candidate order, zero counts included.
+     */
+    public static Map<String, Integer> results(List<Candidate> candidates, Map<String, Long> counts) {
+        TallyEngine engine = new TallyEngine();
+        engine.rebuild(candidates, counts);
+        return engine.results(candidates);
+    }
+
+    /**
+     * Per-chunk counters keyed by the candidate ID's raw bytes
+     * (open addressing), so counting a line allocates nothing.
+     */
+    private static final class CandidateCounts implements ChunkedLines.Visitor {
+        private byte[][] keys = new byte[16][];
+        private long[] counts = new long[16];
+        private int size;
+
+        /**
+         * Counts one "voterId,candidateId" (or "voterId,ranking") line spanning [from, to).
+         */
+        @Override
+        public void line(byte[] line, int from, int to, long index, long offset) {
+            int comma = -1;
+            for (int i = from; i < to; i++) {
+                if (line[i] == ',') {
+                    if (comma >= 0) return; // Not a two-field line
+                    comma = i;
+                }
+            }
+            if (comma < 0 || comma + 1 == to) return;
+            int end = comma + 1;
+            while (end < to && line[end] != '>') end++; // First preference of a ranked ballot
+            add(line, comma + 1, end);
+        }
+
+        private void add(byte[] key, int from, int to) {
+            int slot = slotFor(key, from, to);
+            if (keys[slot] != null) {
+                counts[slot]++;
+                return;
+            }
+            keys[slot] = Arrays.copyOfRange(key, from, to);
+            counts[slot] = 1;
+            if (++size * 2 > keys.length) grow();
+        }
+
+        /**
+         * @return The slot holding this key, or the empty slot where it belongs.
+         */
+        private int slotFor(byte[] key, int from, int to) {
+            int hash = 1;
+            for (int i = from; i < to; i++) hash = 31 * hash + key[i];
+            int mask = keys.length - 1;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (keys[slot] != null && !Arrays.equals(keys[slot], 0, keys[slot].length, key, from, to)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            byte[][] oldKeys = keys;
+            long[] oldCounts = counts;
+            keys = new byte[oldKeys.length * 2][];
+            counts = new long[oldKeys.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == null) continue;
+                int slot = slotFor(oldKeys[i], 0, oldKeys[i].length);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+
+        void mergeInto(Map<String, Long> totals) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != null) {
+                    totals.merge(new String(keys[i], StandardCharsets.UTF_8), counts[i], Long::sum);
+                }
+            }
+        }
+    }
+
+    // Counts one vote snapshot, whichever format it was saved in
+    // The newest valid checkpoint if there is one, else votes.csv / votes.bin
+    private static Map<String, Long> countSnapshot(DataManager store) throws IOException {
+        if (store.hasCheckpoint()) {
+            Map<String, Long> counts = new HashMap<>();
+            store.forEachStoredVote((voterId, rankingField) -> {
+                int separator = rankingField.indexOf(Vote.RANKING_SEPARATOR);
+                counts.merge(separator < 0 ? rankingField : rankingField.substring(0, separator), 1L, Long::sum);
+            });
+            return counts;
+        }
+        Path dir = store.getDataDir();
+        Path votesCsv = dir.resolve("votes.csv");
+        Path votesBin = dir.resolve("votes.bin");
+        if (!Files.exists(votesCsv) && Files.exists(votesBin)) {
+            return BinaryVoteStore.countByCandidate(votesBin);
+        }
+        return countCsv(votesCsv);
+    }
+
+    /**
+     * Standalone recount: prints the results of the saved snapshot in dataDir
+     * (summed over its precincts, if any) in the same form as the admin tally.
+     */
+    public static void main(String[] args) throws IOException {
+        Path dataDir = Path.of(args.length > 0 ? args[0] : "data");
+        DataManager dataManager = new DataManager(dataDir);
+        List<Candidate> candidates = dataManager.loadCandidates();
+        List<DataManager> stores = new ArrayList<>();
+        stores.add(dataManager);
+        for (String precinctId : dataManager.loadPrecincts()) {
+            stores.add(dataManager.precinctStore(precinctId));
+        }
+
+        long start = System.nanoTime();
+        Map<String, Long> counts = new HashMap<>();
+        boolean journaled = false;
+        for (DataManager store : stores) {
+            countSnapshot(store).forEach((id, n) -> counts.merge(id, n, Long::sum));
+            journaled |= !store.loadJournal().isEmpty();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        long total = 0;
+        for (long count : counts.values()) total += count;
+        System.out.println("===== RECOUNT: " + dataDir.toAbsolutePath() + " =====");
+        for (Map.Entry<String, Integer> entry : results(candidates, counts).entrySet()) {
+            System.out.println("  " + entry.getKey() + ": " + entry.getValue() + " vote(s)");
+        }
+        long unknown = total;
+        for (Candidate c : candidates) unknown -= counts.getOrDefault(c.getCandidateId(), 0L);
+        if (unknown > 0) {
+            System.out.println("  (" + unknown + " ballot(s) for candidate IDs not in candidates.csv)");
+        }
+        System.out.println("  Total: " + total + " ballot(s), counted in " + elapsedMillis + " ms");
+        if (journaled) {
+            System.out.println("  Warning: the journal holds ballots not yet in the snapshot; they are not counted.");
+        }
+        System.out.println("============================");
+    }
+}
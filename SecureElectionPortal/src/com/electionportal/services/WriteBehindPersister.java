@@ -0,0 +1,108 @@
+package com.electionportal.services;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write-behind saving for ElectionManager. Mutations mark the collections
+ * they changed as dirty and return at once; a background thread waits a
+ * short delay, so a burst of changes is coalesced, then writes only the
+ * files that are dirty.
+ * Demonstrates: Concurrency (ScheduledExecutorService, atomics), Single Responsibility Principle
+ *
+ * The persister only tracks what is dirty and when to flush; the writer it is
+ * given decides how. The writer must call takeDirty itself, under whatever
+ * lock makes its snapshot consistent, so a synchronous flush and a background
+ * flush never write the same change out of order.
+ */
+public class WriteBehindPersister implements AutoCloseable {
+
+    /**
+     * The separately saved pieces of an election.
+     */
+    public enum Part { USERS, CANDIDATES, VOTES, STATE }
+
+    private static final Part[] PARTS = Part.values();
+
+    private final AtomicInteger dirtyBits = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Runnable flushAction;
+    private final long delayMillis;
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * @param flushAction Called on the background thread to write the dirty parts
+     * @param delayMillis How long changes are collected before a flush starts
+     */
+    public WriteBehindPersister(Runnable flushAction, long delayMillis) {
+        this.flushAction = flushAction;
+        this.delayMillis = delayMillis;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Only needed while a flush is pending
+        scheduler.setKeepAliveTime(1, TimeUnit.SECONDS);
+        scheduler.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Records a change and makes sure a flush is coming. Never blocks on I/O.
+     */
+    public void markDirty(Part... parts) {
+        int bits = 0;
+        for (Part part : parts) {
+            bits |= 1 << part.ordinal();
+        }
+        dirtyBits.accumulateAndGet(bits, (current, added) -> current | added);
+        if (flushScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(this::runFlush, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public boolean isDirty() {
+        return dirtyBits.get() != 0;
+    }
+
+    /**
+     * Clears and returns the dirty set. Changes marked after this call
+     * are left for the next flush.
+     */
+    public Set<Part> takeDirty() {
+        int bits = dirtyBits.getAndSet(0);
+        Set<Part> parts = EnumSet.noneOf(Part.class);
+        for (Part part : PARTS) {
+            if ((bits & (1 << part.ordinal())) != 0) parts.add(part);
+        }
+        return parts;
+    }
+
+    private void runFlush() {
+        // Clear first: anything marked while the flush runs schedules another one
+        flushScheduled.set(false);
+        try {
+            flushAction.run();
+        } catch (RuntimeException e) {
+            System.err.println("Error in background save: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stops the background thread. Anything still dirty is left for the
+     * owner's final synchronous flush.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,511 @@
+package com.electionportal.web;
+
+import com.electionportal.models.*;
+import com.electionportal.services.AuthService;
+import com.electionportal.services.ElectionManager;
+import com.electionportal.services.ElectionRegistry;
+import com.electionportal.services.ElectionSnapshot;
+import com.electionportal.services.InstantRunoff;
+import com.electionportal.services.MerkleLog;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP front end for the portal, so many voters can be served at once
+ * instead of one console session. Built on the JDK's com.sun.net.httpserver;
+ * every request runs on its own virtual thread.
+ *
+ * Endpoints (request bodies are application/x-www-form-urlencoded,
+ * responses are JSON, the session token goes in "Authorization: Bearer ..."):
+ *   POST /api/login         username, password -> token and user type
+ *   POST /api/logout        ends the session
+ *   GET  /api/candidates    the candidate list
+ *   POST /api/vote          candidateId, or ranking (IDs comma-separated, most preferred first)   (voter)
+ *   POST /api/admin/state   state              (admin)
+ *   GET  /api/admin/tally   results            (admin, election CLOSED)
+ *   GET  /api/admin/runoff  instant-runoff rounds and winner   (admin, election CLOSED)
+ *   GET  /api/admin/turnout live ballots cast, overall and per precinct   (admin)
+ *   GET  /api/admin/metrics metrics snapshot   (admin)
+ *
+ * Given an ElectionRegistry instead of one election, the same endpoints are
+ * served for each election under /elections/&lt;id&gt;/api/..., and GET
+ * /elections lists the elections. A session token only works for the
+ * election it logged in to, and only until that election is unloaded.
+ * Any session ends after SESSION_IDLE_MILLIS without a request.
+ *
+ * Demonstrates: Concurrency (virtual threads), Separation of Concerns
+ */
+public class ElectionHttpServer implements AutoCloseable {
+
+    private static final int MAX_BODY_BYTES = 8 * 1024;
+
+    static {
+        // The JDK server writes headers and body separately; with Nagle's algorithm
+        // on, each small response waits for the client's delayed ACK (~40 ms).
+        // Read once when the first server is created, so set it before that.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private static final String ELECTIONS = "/elections";
+
+    public static final long SESSION_IDLE_MILLIS = 30 * 60_000;
+    // How often sessions past their idle time are dropped, besides on use
+    private static final long SESSION_SWEEP_MILLIS = 60_000;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // Set when serving many elections, null when serving one
+    private final ElectionRegistry registry;
+
+    // The endpoints under /api/, by the rest of their path
+    private final Map<String, Route> routes = new HashMap<>();
+
+    // Session token -> logged-in username, valid only for the election (and load) it logged in to.
+    // The User itself is looked up per request, so a session does not keep it in memory.
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final ScheduledExecutorService sessionSweeper = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("session-sweeper").daemon().factory());
+
+    /**
+     * Serves one election under /api/.
+     */
+    public ElectionHttpServer(ElectionManager electionManager, AuthService authService, int port) throws IOException {
+        this.registry = null;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        addRoutes();
+        sweepSessions();
+        Election election = new Election(null, 0, electionManager, authService);
+        for (Map.Entry<String, Route> route : routes.entrySet()) {
+            String path = "/api/" + route.getKey();
+            // A context matches every path it prefixes; only the exact path is this endpoint
+            server.createContext(path, exchange -> {
+                if (exchange.getRequestURI().getPath().equals(path)) {
+                    handle(exchange, route.getValue(), election);
+                } else {
+                    respond(exchange, Response.error(404, "No such endpoint."));
+                }
+            });
+        }
+    }
+
+    /**
+     * Serves every election of the registry, each under /elections/&lt;id&gt;/api/.
+     * GET /elections lists them.
+     */
+    public ElectionHttpServer(ElectionRegistry registry, int port) throws IOException {
+        this.registry = registry;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executor);
+        addRoutes();
+        sweepSessions();
+        server.createContext(ELECTIONS, this::routeElection);
+    }
+
+    private void addRoutes() {
+        routes.put("login", new Route("POST", this::login));
+        routes.put("logout", new Route("POST", this::logout));
+        routes.put("candidates", new Route("GET", this::candidates));
+        routes.put("vote", new Route("POST", this::vote));
+        routes.put("receipt", new Route("GET", this::receipt));
+        routes.put("roots", new Route("GET", this::roots));
+        routes.put("admin/state", new Route("POST", this::changeState));
+        routes.put("admin/tally", new Route("GET", this::tally));
+        routes.put("admin/runoff", new Route("GET", this::runoff));
+        routes.put("admin/turnout", new Route("GET", this::turnout));
+        routes.put("admin/metrics", new Route("GET", this::metrics));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * @return The port actually bound (useful when constructed with port 0).
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void sweepSessions() {
+        sessionSweeper.scheduleWithFixedDelay(() -> {
+            long now = System.currentTimeMillis();
+            sessions.values().removeIf(session -> session.expired(now));
+        }, SESSION_SWEEP_MILLIS, SESSION_SWEEP_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.close();
+        sessionSweeper.shutdownNow();
+    }
+
+    // --- Endpoints ---
+
+    private Response login(HttpExchange exchange, Election election) throws IOException {
+        Map<String, String> form = readForm(exchange);
+        User user = election.auth().login(form.getOrDefault("username", ""), form.getOrDefault("password", ""));
+        if (user == null) {
+            return Response.error(401, "Invalid username or password.");
+        }
+        String token = newToken();
+        sessions.put(token, new Session(election.id(), election.generation(), user.getUsername()));
+        return new Response(200, "{\"token\":\"" + token + "\",\"userType\":\"" + user.getUserType() + "\"}");
+    }
+
+    private Response logout(HttpExchange exchange, Election election) {
+        if (sessionUser(exchange, election) == null) {
+            return Response.error(401, "Not logged in.");
+        }
+        sessions.remove(token(exchange));
+        return new Response(200, "{\"status\":\"logged out\"}");
+    }
+
+    private Response candidates(HttpExchange exchange, Election election) {
+        List<Candidate> candidates = election.manager().getCandidates();
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < candidates.size(); i++) {
+            Candidate c = candidates.get(i);
+            if (i > 0) json.append(',');
+            json.append("{\"id\":").append(quote(c.getCandidateId()))
+                    .append(",\"name\":").append(quote(c.getName()))
+                    .append(",\"party\":").append(quote(c.getParty()))
+                    .append(",\"platform\":").append(quote(c.getPlatform()))
+                    .append('}');
+        }
+        return new Response(200, json.append(']').toString());
+    }
+
+    private Response vote(HttpExchange exchange, Election election) throws IOException {
+        if (!(sessionUser(exchange, election) instanceof Voter voter)) {
+            return Response.error(401, "Log in as a voter first.");
+        }
+        Map<String, String> form = readForm(exchange);
+        List<String> ranking = form.containsKey("ranking")
+                ? Arrays.asList(form.get("ranking").split(","))
+                : List.of(form.getOrDefault("candidateId", ""));
+        if (election.manager().castVote(voter, ranking)) {
+            return new Response(200, "{\"status\":\"accepted\"}");
+        }
+        // castVote only says no; work out which rule refused the ballot
+        if (election.manager().getCurrentState() != ElectionState.VOTING) {
+            return Response.error(409, "Voting is not currently open.");
+        }
+        if (voter.hasVoted()) {
+            return Response.error(409, "You have already cast your vote.");
+        }
+        if (!election.manager().isValidRanking(ranking)) {
+            return Response.error(400, "Invalid Candidate ID or ranking.");
+        }
+        // A valid ballot for an open election: its journal record could not be written
+        return Response.error(503, "Your vote could not be recorded. Please try again.");
+    }
+
+    private Response receipt(HttpExchange exchange, Election election) {
+        if (!(sessionUser(exchange, election) instanceof Voter voter)) {
+            return Response.error(401, "Log in as a voter first.");
+        }
+        MerkleLog.Proof proof = election.manager().proveBallot(voter);
+        if (proof == null) {
+            return Response.error(404, "No ballot recorded for you yet.");
+        }
+        StringBuilder json = new StringBuilder("{\"index\":").append(proof.index())
+                .append(",\"size\":").append(proof.size())
+                .append(",\"leaf\":").append(quote(proof.leaf()))
+                .append(",\"root\":").append(quote(proof.root()))
+                .append(",\"path\":[");
+        for (int i = 0; i < proof.path().size(); i++) {
+            if (i > 0) json.append(',');
+            json.append(quote(proof.path().get(i)));
+        }
+        return new Response(200, json.append("]}").toString());
+    }
+
+    private Response roots(HttpExchange exchange, Election election) {
+        StringBuilder json = new StringBuilder("[");
+        List<MerkleLog.PublishedRoot> roots = election.manager().getPublishedRoots();
+        for (int i = 0; i < roots.size(); i++) {
+            MerkleLog.PublishedRoot root = roots.get(i);
+            if (i > 0) json.append(',');
+            json.append("{\"precinct\":").append(quote(root.precinctId()))
+                    .append(",\"size\":").append(root.size())
+                    .append(",\"root\":").append(quote(root.root()))
+                    .append('}');
+        }
+        return new Response(200, json.append(']').toString());
+    }
+
+    private Response changeState(HttpExchange exchange, Election election) throws IOException {
+        if (!(sessionUser(exchange, election) instanceof Administrator)) {
+            return Response.error(403, "Administrator login required.");
+        }
+        ElectionState newState;
+        try {
+            newState = ElectionState.valueOf(readForm(exchange).getOrDefault("state", ""));
+        } catch (IllegalArgumentException e) {
+            return Response.error(400, "Unknown election state.");
+        }
+        boolean changed = election.manager().changeState(newState);
+        return new Response(200, "{\"state\":\"" + election.manager().getCurrentState() + "\",\"changed\":" + changed + "}");
+    }
+
+    private Response tally(HttpExchange exchange, Election election) {
+        if (!(sessionUser(exchange, election) instanceof Administrator)) {
+            return Response.error(403, "Administrator login required.");
+        }
+        Map<String, Integer> results = election.manager().tallyVotes();
+        if (results == null) {
+            return Response.error(409, "Cannot tally votes until the election is 'CLOSED'.");
+        }
+        StringBuilder json = new StringBuilder("{");
+        String separator = "";
+        for (Map.Entry<String, Integer> entry : results.entrySet()) {
+            json.append(separator).append(quote(entry.getKey())).append(':').append(entry.getValue());
+            separator = ",";
+        }
+        return new Response(200, json.append('}').toString());
+    }
+
+    private Response turnout(HttpExchange exchange, Election election) {
+        if (!(sessionUser(exchange, election) instanceof Administrator)) {
+            return Response.error(403, "Administrator login required.");
+        }
+        ElectionSnapshot snapshot = election.manager().snapshot();
+        StringBuilder json = new StringBuilder("{\"state\":\"").append(snapshot.getState())
+                .append("\",\"registered\":").append(snapshot.getRegisteredVoterCount())
+                .append(",\"ballotsCast\":").append(snapshot.getBallotsCast())
+                .append(",\"precincts\":{");
+        String separator = "";
+        for (String precinctId : snapshot.getPrecinctIds()) {
+            json.append(separator).append(quote(precinctId)).append(':').append(snapshot.getBallotsCast(precinctId));
+            separator = ",";
+        }
+        return new Response(200, json.append("}}").toString());
+    }
+
+    private Response runoff(HttpExchange exchange, Election election) {
+        if (!(sessionUser(exchange, election) instanceof Administrator)) {
+            return Response.error(403, "Administrator login required.");
+        }
+        InstantRunoff.Result result = election.manager().tallyRunoff();
+        if (result == null) {
+            return Response.error(409, "Cannot tally votes until the election is 'CLOSED'.");
+        }
+        StringBuilder json = new StringBuilder("{\"winner\":");
+        json.append(result.winner() == null ? "null" : quote(result.winner())).append(",\"rounds\":[");
+        for (int i = 0; i < result.rounds().size(); i++) {
+            InstantRunoff.Round round = result.rounds().get(i);
+            if (i > 0) json.append(',');
+            json.append("{\"round\":").append(round.number()).append(",\"votes\":{");
+            String separator = "";
+            for (Map.Entry<String, Long> entry : round.votes().entrySet()) {
+                json.append(separator).append(quote(entry.getKey())).append(':').append(entry.getValue());
+                separator = ",";
+            }
+            json.append("},\"exhausted\":").append(round.exhausted())
+                    .append(",\"eliminated\":").append(round.eliminated() == null ? "null" : quote(round.eliminated()))
+                    .append('}');
+        }
+        return new Response(200, json.append("]}").toString());
+    }
+
+    private Response metrics(HttpExchange exchange, Election election) {
+        if (!(sessionUser(exchange, election) instanceof Administrator)) {
+            return Response.error(403, "Administrator login required.");
+        }
+        return new Response(200, election.manager().getMetrics().snapshotJson());
+    }
+
+    // --- Plumbing ---
+
+    private interface Endpoint {
+        Response serve(HttpExchange exchange, Election election) throws IOException;
+    }
+
+    private record Route(String method, Endpoint endpoint) {}
+
+    // The election a request is for; id is null when only one is served
+    private record Election(String id, long generation, ElectionManager manager, AuthService auth) {}
+
+    private static final class Session {
+        final String electionId;
+        final long generation;
+        final String username;
+        volatile long lastUsed = System.currentTimeMillis();
+
+        Session(String electionId, long generation, String username) {
+            this.electionId = electionId;
+            this.generation = generation;
+            this.username = username;
+        }
+
+        boolean expired(long now) {
+            return now - lastUsed > SESSION_IDLE_MILLIS;
+        }
+    }
+
+    // Thrown by readForm; handle() answers it with 413
+    private static final class BodyTooLargeException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    private record Response(int status, String json) {
+        static Response error(int status, String message) {
+            return new Response(status, "{\"error\":" + quote(message) + "}");
+        }
+    }
+
+    /**
+     * Serves /elections (the list) and /elections/&lt;id&gt;/api/...; the election
+     * is leased, and loaded if need be, for the length of the request.
+     */
+    private void routeElection(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        if (path.equals(ELECTIONS) || path.equals(ELECTIONS + "/")) {
+            handle(exchange, new Route("GET", (ex, none) -> elections()), null);
+            return;
+        }
+        String[] parts = path.substring(ELECTIONS.length()).split("/", 4); // "", id, "api", endpoint
+        Route route = parts.length == 4 && parts[2].equals("api") ? routes.get(parts[3]) : null;
+        if (route == null) {
+            respond(exchange, Response.error(404, "No such endpoint."));
+            return;
+        }
+        try (ElectionRegistry.Lease lease = registry.acquire(parts[1])) {
+            if (lease == null) {
+                respond(exchange, Response.error(404, "No such election."));
+                return;
+            }
+            handle(exchange, route, new Election(lease.id(), lease.generation(), lease.manager(), lease.auth()));
+        } catch (RuntimeException e) {
+            System.err.println("Error loading election " + parts[1] + ": " + e.getMessage());
+            respond(exchange, Response.error(500, "Internal error."));
+        }
+    }
+
+    private Response elections() {
+        StringBuilder json = new StringBuilder("[");
+        List<String> ids = registry.list();
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"id\":").append(quote(ids.get(i))).append('}');
+        }
+        return new Response(200, json.append(']').toString());
+    }
+
+    private void handle(HttpExchange exchange, Route route, Election election) throws IOException {
+        Response response;
+        if (!route.method().equals(exchange.getRequestMethod())) {
+            response = Response.error(405, "Use " + route.method() + ".");
+        } else {
+            try {
+                response = route.endpoint().serve(exchange, election);
+            } catch (BodyTooLargeException e) {
+                response = Response.error(413, "Request body over " + MAX_BODY_BYTES + " bytes.");
+            } catch (RuntimeException e) {
+                System.err.println("Error handling " + exchange.getRequestURI() + ": " + e.getMessage());
+                response = Response.error(500, "Internal error.");
+            }
+        }
+        respond(exchange, response);
+    }
+
+    private static void respond(HttpExchange exchange, Response response) throws IOException {
+        try (exchange) {
+            byte[] body = response.json().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(response.status(), body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+    private User sessionUser(HttpExchange exchange, Election election) {
+        String token = token(exchange);
+        Session session = token == null ? null : sessions.get(token);
+        if (session == null || !Objects.equals(session.electionId, election.id())) return null;
+        long now = System.currentTimeMillis();
+        if (session.generation != election.generation() || session.expired(now)) {
+            // Idle too long, or the election was unloaded since: log in again
+            sessions.remove(token);
+            return null;
+        }
+        session.lastUsed = now;
+        return election.manager().getUserIndex().find(session.username);
+    }
+
+    private static String token(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) return null;
+        return header.substring("Bearer ".length()).trim();
+    }
+
+    private String newToken() {
+        byte[] bytes = new byte[24];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    private static Map<String, String> readForm(HttpExchange exchange) throws IOException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            // One byte over the limit tells a body that fits from one that was cut off
+            body = in.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (body.length > MAX_BODY_BYTES) {
+            throw new BodyTooLargeException();
+        }
+        Map<String, String> form = new HashMap<>();
+        for (String pair : new String(body, StandardCharsets.UTF_8).split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            form.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return form;
+    }
+
+    private static String quote(String value) {
+        StringBuilder out = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+                    else out.append(c);
+                }
+            }
+        }
+        return out.append('"').toString();
+    }
+}